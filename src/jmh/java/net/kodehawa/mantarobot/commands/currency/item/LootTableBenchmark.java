@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.currency.item;
+
+import net.kodehawa.mantarobot.commands.currency.item.special.helpers.attributes.Tiered;
+import net.kodehawa.mantarobot.utils.commands.RandomCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Compares picking the contents of a crate from the precomputed {@link LootTable}s against the old selection,
+ * which filtered every item into seven pools and built a {@link RandomCollection} on every crate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LootTableBenchmark {
+    @Param({"MINE", "MINE_PREMIUM", "PREMIUM"})
+    public ItemType.LootboxType type;
+
+    @Param({"3", "5"})
+    public int amount;
+
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(new SplittableRandom().nextLong());
+        LootTable.of(type);
+    }
+
+    @Benchmark
+    public List<Item> aliasTable() {
+        return LootTable.of(type).select(amount, random);
+    }
+
+    @Benchmark
+    public List<Item> rebuiltCollection() {
+        return selectItems(amount, type);
+    }
+
+    // ItemHelper#selectItems, before the tables were precomputed.
+    @SuppressWarnings("fallthrough")
+    private List<Item> selectItems(int amount, ItemType.LootboxType type) {
+        List<Item> common = handleItemDrop(i -> i.getItemType() == ItemType.COMMON, true);
+        List<Item> rare = handleItemDrop(i -> i.getItemType() == ItemType.RARE, false);
+        List<Item> premium = handleItemDrop(i -> i.getItemType() == ItemType.PREMIUM, false);
+
+        List<Item> mine = handleItemDrop(i ->
+                (i.getItemType() == ItemType.MINE ||
+                i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                i.getItemType() == ItemType.MINE_PICK) && i != ItemReference.ROCK, true
+        );
+
+        List<Item> fish = handleItemDrop(i -> i.getItemType() == ItemType.FISHING ||  i.getItemType() == ItemType.FISHROD, true);
+        List<Item> chop = handleItemDrop(i -> i.getItemType() == ItemType.CHOP_DROP ||  i.getItemType() == ItemType.CHOP_AXE, true);
+
+        List<Item> premiumMine = handleItemDrop(i ->
+                i.getItemType() == ItemType.CAST_MINE ||
+                i.getItemType() == ItemType.MINE_PICK ||
+                i.getItemType() == ItemType.MINE ||
+                i.getItemType() == ItemType.MINE_RARE ||
+                i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                i.getItemType() == ItemType.MINE_RARE_PICK, false
+        );
+
+        List<Item> premiumFish = handleItemDrop(i ->
+                i.getItemType() == ItemType.FISHROD ||
+                i.getItemType() == ItemType.FISHROD_RARE ||
+                i.getItemType() == ItemType.FISHING ||
+                i.getItemType() == ItemType.FISHING_RARE, false
+        );
+
+        List<Item> premiumChop = handleItemDrop(i ->
+                i.getItemType() == ItemType.CHOP_DROP ||
+                i.getItemType() == ItemType.CHOP_AXE ||
+                i.getItemType() == ItemType.CHOP_RARE_AXE, false
+        );
+
+        RandomCollection<Item> items = new RandomCollection<>(random);
+        switch (type) {
+            case PREMIUM:
+                premium.forEach(i -> items.add(2, i));
+            case RARE:
+                rare.forEach(i -> items.add(5, i));
+            case COMMON:
+                common.forEach(i -> items.add(20, i));
+                break;
+            case CHOP_PREMIUM:
+                premiumChop.forEach(i -> items.add(8, i));
+                break;
+            case FISH_PREMIUM:
+                premiumFish.forEach(i -> items.add(8, i));
+                break;
+            case MINE_PREMIUM:
+                premiumMine.forEach(i -> items.add(8, i));
+                break;
+            case MINE:
+                mine.forEach(i -> items.add(8, i));
+                break;
+            case FISH:
+                fish.forEach(i -> items.add(8, i));
+                break;
+            case CHOP:
+                chop.forEach(i -> items.add(8, i));
+        }
+
+        List<Item> list = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            list.add(items.next());
+        }
+
+        return list;
+    }
+
+    private List<Item> handleItemDrop(Predicate<Item> predicate, boolean normal) {
+        List<Item> all = Arrays.stream(ItemReference.ALL)
+                .filter(i -> i.isBuyable() || i.isSellable()).toList();
+
+        return all.stream()
+                .filter(predicate)
+                .filter(item -> {
+                    if (normal) {
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
+                            return random.nextFloat() <= 0.02f;
+                        }
+
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 100) {
+                            return random.nextFloat() <= 0.05f;
+                        }
+                    } else {
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
+                            return random.nextFloat() <= 0.10f;
+                        }
+
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 300) {
+                            return random.nextFloat() <= 0.40f;
+                        }
+                    }
+
+                    return true;
+                })
+                .sorted(Comparator.comparingLong(Item::getValue))
+                .collect(Collectors.toList());
+    }
+}
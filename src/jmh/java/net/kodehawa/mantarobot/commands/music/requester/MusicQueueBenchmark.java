@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music.requester;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a whole playlist the way AudioLoader does (queue size limit, fair queue check, then queue the track),
+ * on a {@link MusicQueue} and on the old ConcurrentLinkedDeque, where the fair queue check streamed the whole queue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MusicQueueBenchmark {
+    private static final int QUEUE_LIMIT = 10_000;
+    private static final int FAIR_QUEUE = 4;
+
+    @Param({"500", "2000", "8000"})
+    public int playlistSize;
+
+    private List<AudioTrack> playlist;
+
+    @Setup
+    public void setup() {
+        playlist = new ArrayList<>(playlistSize);
+        for (int i = 0; i < playlistSize; i++) {
+            playlist.add(track("https://example.com/track/" + i, 180_000 + i));
+        }
+    }
+
+    @Benchmark
+    public long musicQueue() {
+        var queue = new MusicQueue();
+        for (var track : playlist) {
+            var info = track.getInfo();
+            if (queue.size() > QUEUE_LIMIT || queue.countOf(info.uri) > FAIR_QUEUE) {
+                continue;
+            }
+
+            queue.offer(track);
+        }
+
+        queue.shuffle(new Random(1));
+        return queue.getTotalDuration() + queue.page(queue.size() / 2, 30).size();
+    }
+
+    @Benchmark
+    public long legacyDeque() {
+        var queue = new ConcurrentLinkedDeque<AudioTrack>();
+        for (var track : playlist) {
+            var info = track.getInfo();
+            if (queue.size() > QUEUE_LIMIT
+                    || queue.stream().filter(t -> info.uri.equals(t.getInfo().uri)).count() > FAIR_QUEUE) {
+                continue;
+            }
+
+            queue.offer(track);
+        }
+
+        List<AudioTrack> shuffled = new ArrayList<>(queue);
+        Collections.shuffle(shuffled, new Random(1));
+        queue.clear();
+        queue.addAll(shuffled);
+
+        var duration = queue.stream()
+                .filter(t -> t.getDuration() != Long.MAX_VALUE)
+                .mapToLong(t -> t.getInfo().length).sum();
+        return duration + queue.stream().skip(queue.size() / 2).limit(30).count();
+    }
+
+    private static AudioTrack track(String uri, long length) {
+        var info = new AudioTrackInfo("Track", "Author", length, uri, false, uri);
+        return (AudioTrack) Proxy.newProxyInstance(
+                AudioTrack.class.getClassLoader(),
+                new Class<?>[] { AudioTrack.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInfo" -> info;
+                    case "getDuration" -> length;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
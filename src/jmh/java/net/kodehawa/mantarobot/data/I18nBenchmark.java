@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.data;
+
+import net.kodehawa.mantarobot.utils.LanguageKeyNotFoundException;
+import net.kodehawa.mantarobot.utils.Utils;
+import net.kodehawa.mantarobot.utils.data.JsonDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the flattened {@link I18n} table against the old lookup, which walked the nested language maps
+ * on every call and fell back to walking en_US again on a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class I18nBenchmark {
+    @Param({"commands.profile.timezone.success", "commands.fish.trash.success", "general.boom_quotes"})
+    public String key;
+
+    @Param({"en_US", "es_ES"})
+    public String language;
+
+    private I18n i18n;
+    private Map<String, ?> nested;
+    private Map<String, ?> nestedFallback;
+
+    @Setup
+    public void setup() throws IOException {
+        i18n = I18n.getForLanguage(language);
+        nested = read(language);
+        nestedFallback = read("en_US");
+    }
+
+    @Benchmark
+    public String flattened() {
+        return i18n.get(key);
+    }
+
+    @Benchmark
+    public String nestedWalk() {
+        return Utils.fixInlineCodeblockDirection(walk(nested, key.split("\\."), false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> read(String language) throws IOException {
+        try (var is = I18nBenchmark.class.getResourceAsStream("/assets/languages/" + language + ".json")) {
+            return (Map<String, ?>) JsonDataManager.fromJson(is, Map.class);
+        }
+    }
+
+    // The lookup I18n#get used before the table was flattened.
+    @SuppressWarnings("unchecked")
+    private String walk(Map<String, ?> map, String[] parts, boolean recursion) {
+        var index = 0;
+        while (index != parts.length - 1) {
+            Object maybeMap = map.get(parts[index]);
+            if (maybeMap instanceof Map) {
+                map = (Map<String, ?>) maybeMap;
+                index++;
+            } else {
+                if (recursion) {
+                    throw new LanguageKeyNotFoundException("Missing i18n key " + String.join(".", parts));
+                }
+
+                return walk(nestedFallback, parts, true);
+            }
+        }
+
+        Object maybeString = map.get(parts[index]);
+        if (maybeString instanceof String) {
+            return (String) maybeString;
+        }
+
+        if (maybeString instanceof Collection) {
+            Collection<String> c = ((Collection<String>) maybeString);
+            return c.stream()
+                    .skip(ThreadLocalRandom.current().nextInt(c.size()))
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+        }
+
+        if (recursion) {
+            throw new LanguageKeyNotFoundException("Missing i18n key " + String.join(".", parts));
+        }
+
+        return walk(nestedFallback, parts, true);
+    }
+}
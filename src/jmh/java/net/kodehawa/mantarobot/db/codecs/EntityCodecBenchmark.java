@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.db.codecs;
+
+import net.kodehawa.mantarobot.db.entities.MongoGuild;
+import net.kodehawa.mantarobot.db.entities.MongoUser;
+import net.kodehawa.mantarobot.db.entities.Player;
+import net.kodehawa.mantarobot.db.entities.PlayerStats;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.Conventions;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.MongoClientSettings.getDefaultCodecRegistry;
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Encodes and decodes entities with {@link EntityCodec} and with the driver's POJO codec, set up the same way
+ * MantaroData does. Entities load the config when created, so this needs a config.json on the working directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityCodecBenchmark {
+    @Param({"guild", "player", "user", "stats"})
+    public String entity;
+
+    private Object value;
+    private Codec<Object> pojoCodec;
+    private Codec<Object> entityCodec;
+    private byte[] encoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        List<Convention> conventions = Arrays.asList(
+                Conventions.CLASS_AND_PROPERTY_CONVENTION, Conventions.ANNOTATION_CONVENTION, Conventions.OBJECT_ID_GENERATORS, Conventions.SET_PRIVATE_FIELDS_CONVENTION
+        );
+        var pojoCodecProvider = PojoCodecProvider.builder()
+                .automatic(true)
+                .register(new MapCodecProvider())
+                .conventions(conventions)
+                .build();
+        CodecRegistry pojoRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(pojoCodecProvider));
+        CodecRegistry entityRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(
+                new EntityCodecProvider(conventions, Player.class, MongoUser.class, MongoGuild.class, PlayerStats.class), pojoCodecProvider
+        ));
+
+        value = switch (entity) {
+            case "guild" -> {
+                var guild = MongoGuild.of("339872348098");
+                guild.getAutoroles().put("member", "339872348099");
+                guild.getChannelSpecificDisabledCommands().put("339872348100", new ArrayList<>(List.of("play", "skip", "queue")));
+                guild.getDisabledCommands().addAll(List.of("nsfw", "rule34"));
+                yield guild;
+            }
+            case "player" -> {
+                var player = Player.of("339872348098");
+                for (var i = 0; i < 40; i++) {
+                    player.getInventory().put("item" + i, i + 1);
+                }
+
+                yield player;
+            }
+            case "user" -> MongoUser.of("339872348098");
+            default -> PlayerStats.of("339872348098");
+        };
+
+        pojoCodec = (Codec<Object>) pojoRegistry.get(value.getClass());
+        entityCodec = (Codec<Object>) entityRegistry.get(value.getClass());
+        encoded = encode(pojoCodec);
+    }
+
+    @Benchmark
+    public Object pojoDecode() {
+        return decode(pojoCodec);
+    }
+
+    @Benchmark
+    public Object entityDecode() {
+        return decode(entityCodec);
+    }
+
+    @Benchmark
+    public byte[] pojoEncode() {
+        return encode(pojoCodec);
+    }
+
+    @Benchmark
+    public byte[] entityEncode() {
+        return encode(entityCodec);
+    }
+
+    private byte[] encode(Codec<Object> codec) {
+        var buffer = new BasicOutputBuffer();
+        try (var writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, value, EncoderContext.builder().build());
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private Object decode(Codec<Object> codec) {
+        try (var reader = new BsonBinaryReader(ByteBuffer.wrap(encoded))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
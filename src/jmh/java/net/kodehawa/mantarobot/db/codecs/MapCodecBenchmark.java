@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.db.codecs;
+
+import net.kodehawa.mantarobot.commands.currency.item.PlayerEquipment.EquipmentType;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.EnumCodec;
+import org.bson.codecs.IntegerCodec;
+import org.bson.codecs.StringCodec;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a map with the specialized key codecs and with the previous {@link MapCodec}, which wrote each
+ * key through a throwaway document under a random UUID name and read it back through a synthesized JSON document.
+ * "string" is an inventory-like map, "enum" a map of equipment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapCodecBenchmark {
+    @Param({"string", "enum"})
+    public String keys;
+
+    @Param({"6", "100"})
+    public int size;
+
+    private Map<Object, Integer> map;
+    private Codec<Map<Object, Integer>> specialized;
+    private Codec<Map<Object, Integer>> legacy;
+    private byte[] encoded;
+
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setup() {
+        map = new HashMap<>();
+        Class keyClass;
+        Codec keyCodec;
+        if (keys.equals("enum")) {
+            keyClass = EquipmentType.class;
+            keyCodec = new EnumCodec<>(EquipmentType.class);
+            var values = EquipmentType.values();
+            for (int i = 0; i < Math.min(size, values.length); i++) {
+                map.put(values[i], i);
+            }
+        } else {
+            keyClass = String.class;
+            keyCodec = new StringCodec();
+            for (int i = 0; i < size; i++) {
+                map.put("item-" + i, i);
+            }
+        }
+
+        Class mapClass = Map.class;
+        specialized = new MapCodec(mapClass, MapKeyCodec.of(keyClass, () -> keyCodec), new IntegerCodec());
+        legacy = new LegacyMapCodec(keyCodec, new IntegerCodec());
+        encoded = encode(specialized);
+    }
+
+    @Benchmark
+    public byte[] specializedEncode() {
+        return encode(specialized);
+    }
+
+    @Benchmark
+    public byte[] legacyEncode() {
+        return encode(legacy);
+    }
+
+    @Benchmark
+    public Map<Object, Integer> specializedDecode() {
+        return decode(specialized);
+    }
+
+    @Benchmark
+    public Map<Object, Integer> legacyDecode() {
+        return decode(legacy);
+    }
+
+    private byte[] encode(Codec<Map<Object, Integer>> codec) {
+        var buffer = new BasicOutputBuffer();
+        try (var writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeName("map");
+            codec.encode(writer, map, EncoderContext.builder().build());
+            writer.writeEndDocument();
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private Map<Object, Integer> decode(Codec<Map<Object, Integer>> codec) {
+        try (var reader = new BsonBinaryReader(ByteBuffer.wrap(encoded))) {
+            reader.readStartDocument();
+            reader.readName();
+            var result = codec.decode(reader, DecoderContext.builder().build());
+            reader.readEndDocument();
+            return result;
+        }
+    }
+
+    // MapCodec before the key codecs were specialized.
+    private static class LegacyMapCodec<K, T> implements Codec<Map<K, T>> {
+        private final Codec<K> keyCodec;
+        private final Codec<T> valueCodec;
+
+        LegacyMapCodec(Codec<K> keyCodec, Codec<T> valueCodec) {
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Map<K, T> map, EncoderContext encoderContext) {
+            try (var dummyWriter = new BsonDocumentWriter(new BsonDocument())) {
+                dummyWriter.writeStartDocument();
+                writer.writeStartDocument();
+                for (var entry : map.entrySet()) {
+                    var dummyId = UUID.randomUUID().toString();
+                    dummyWriter.writeName(dummyId);
+                    keyCodec.encode(dummyWriter, entry.getKey(), encoderContext);
+
+                    var documentValue = dummyWriter.getDocument().asDocument().get(dummyId);
+                    writer.writeName(documentValue.asString().getValue());
+
+                    valueCodec.encode(writer, entry.getValue(), encoderContext);
+                }
+
+                dummyWriter.writeEndDocument();
+            }
+
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public Map<K, T> decode(BsonReader reader, DecoderContext context) {
+            reader.readStartDocument();
+            Map<K, T> map = new HashMap<>();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                var nameReader = new JsonReader("{\"key:\":\"" + reader.readName() + "\"}");
+                nameReader.readStartDocument();
+                nameReader.readBsonType();
+                map.put(keyCodec.decode(nameReader, context), valueCodec.decode(reader, context));
+                nameReader.readEndDocument();
+            }
+
+            reader.readEndDocument();
+            return map;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<Map<K, T>> getEncoderClass() {
+            return (Class<Map<K, T>>) (Class<?>) Map.class;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Roll throughput with a lot of threads rolling at once, like during peak hours: {@link GameRandom} against the
+ * static SecureRandom (and plain Random) fields commands used to share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(16)
+public class GameRandomBenchmark {
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Random sharedRandom = new Random();
+    private final Random gameRandom = GameRandom.get();
+
+    @Benchmark
+    public int secureRandom() {
+        return secureRandom.nextInt(400);
+    }
+
+    @Benchmark
+    public int sharedRandom() {
+        return sharedRandom.nextInt(400);
+    }
+
+    @Benchmark
+    public int gameRandom() {
+        return gameRandom.nextInt(400);
+    }
+}
@@ -17,6 +17,7 @@
 
 package lavalink.client.io;
 
+import net.kodehawa.mantarobot.commands.music.NodeLoad;
 import org.java_websocket.drafts.Draft;
 import org.json.JSONObject;
 
@@ -32,6 +33,8 @@ public class LessAnnoyingLavalinkSocket extends LavalinkSocket {
             "WebSocketClosedEvent"
     );
 
+    private volatile NodeLoad load = NodeLoad.UNKNOWN;
+
     LessAnnoyingLavalinkSocket(String name, Lavalink<?> lavalink, URI serverUri,
                                Draft protocolDraft, Map<String, String> headers) {
         super(name, lavalink, serverUri, protocolDraft, headers);
@@ -40,8 +43,13 @@ public class LessAnnoyingLavalinkSocket extends LavalinkSocket {
     @Override
     public void onMessage(String message) {
         var json = new JSONObject(message);
+        var op = json.optString("op");
+
+        if ("stats".equals(op)) {
+            load = NodeLoad.fromStats(json, System.currentTimeMillis());
+        }
 
-        if ("event".equals(json.optString("op"))) {
+        if ("event".equals(op)) {
             var name = json.optString("type");
 
             if (!KNOWN_EVENTS.contains(name)) {
@@ -51,4 +59,11 @@ public class LessAnnoyingLavalinkSocket extends LavalinkSocket {
 
         super.onMessage(message);
     }
+
+    /**
+     * @return The load this node reported last, or {@link NodeLoad#UNKNOWN} if it hasn't reported any yet.
+     */
+    public NodeLoad getLoad() {
+        return load;
+    }
 }
@@ -18,7 +18,6 @@
 package net.kodehawa.mantarobot;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import lavalink.client.io.LavalinkLoadBalancer;
 import lavalink.client.io.LessAnnoyingJdaLavalink;
 import lavalink.client.io.jda.JdaLavalink;
 import net.dv8tion.jda.api.JDA;
@@ -29,7 +28,9 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.utils.MiscUtil;
 import net.kodehawa.lib.imageboards.ImageBoard;
 import net.kodehawa.mantarobot.commands.currency.item.ItemHelper;
+import net.kodehawa.mantarobot.commands.currency.profile.HubBadges;
 import net.kodehawa.mantarobot.commands.music.MantaroAudioManager;
+import net.kodehawa.mantarobot.commands.music.NodeBalancer;
 import net.kodehawa.mantarobot.commands.utils.birthday.BirthdayCacher;
 import net.kodehawa.mantarobot.commands.utils.birthday.BirthdayTask;
 import net.kodehawa.mantarobot.commands.utils.polls.PollTask;
@@ -150,9 +151,11 @@ public class MantaroBot {
                 lavaLink.addNode(new URI(node), config.lavalinkPass);
             }
 
-            // Choose the server with the lowest player amount
-            lavaLink.getLoadBalancer().addPenalty(LavalinkLoadBalancer.Penalties::getPlayerPenalty);
-            lavaLink.getLoadBalancer().addPenalty(LavalinkLoadBalancer.Penalties::getCpuPenalty);
+            // The load balancer already weighs players, CPU and lost frames, this adds what it misses
+            // and moves links off nodes that are struggling.
+            var nodeBalancer = new NodeBalancer(lavaLink);
+            lavaLink.getLoadBalancer().addPenalty(nodeBalancer);
+            executorService.scheduleAtFixedRate(nodeBalancer::rebalance, 1, 1, TimeUnit.MINUTES);
         }
 
         LogUtils.log("Startup",
@@ -243,7 +246,6 @@ public class MantaroBot {
         );
     }
 
-    @SuppressWarnings("unused")
     public int getShardIdForGuild(long guildId) {
         return (int) ((guildId >> 22) % getShardManager().getShardsTotal());
     }
@@ -265,19 +267,14 @@ public class MantaroBot {
 
     private void startExecutors() {
         log.info("Starting executors...");
-        // Handle the delivery of reminders, assuming this is the master node (Node 0).
+        // Handle the delivery of reminders and the finished polls. Every node handles the ones on its shards.
         if (isMasterNode()) {
-            ScheduledExecutorService reminderExecutor = Executors.newSingleThreadScheduledExecutor(
-                    new ThreadFactoryBuilder().setNameFormat("Mantaro Reminder Handler").build()
-            );
-            reminderExecutor.scheduleAtFixedRate(ReminderTask::handle, 0, 30, TimeUnit.SECONDS);
+            ReminderTask.migrate();
+            PollTask.migrate();
         }
 
-        // Handle the finished polls
-        ScheduledExecutorService pollExecutor = Executors.newSingleThreadScheduledExecutor(
-                new ThreadFactoryBuilder().setNameFormat("Mantaro Poll Handler").build()
-        );
-        pollExecutor.scheduleAtFixedRate(PollTask::handle, 0, 30, TimeUnit.SECONDS);
+        ReminderTask.SCHEDULER.start();
+        PollTask.SCHEDULER.start();
 
         // Yes, this is needed.
         ScheduledExecutorService ratelimitMapExecutor = Executors.newSingleThreadScheduledExecutor(
@@ -290,6 +287,12 @@ public class MantaroBot {
                 new ThreadFactoryBuilder().setNameFormat("Mantaro Statistics Posting").build()
         );
         postExecutor.scheduleAtFixedRate(() -> postStats(getShardManager()), 10, 10, TimeUnit.MINUTES);
+
+        // Keep who has badges from their Mantaro Hub roles, so profiles don't have to look it up.
+        ScheduledExecutorService hubBadgesExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Mantaro Hub Badges").setDaemon(true).build()
+        );
+        hubBadgesExecutor.scheduleAtFixedRate(HubBadges::refresh, 1, 10, TimeUnit.MINUTES);
     }
 
     public void startCheckingBirthdays() {
@@ -58,6 +58,7 @@ import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.CustomCommand;
 import net.kodehawa.mantarobot.db.entities.MongoGuild;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.StringUtils;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.DiscordUtils;
@@ -67,11 +68,11 @@ import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -88,7 +89,7 @@ public class CustomCmds {
 
     private static final Map<String, CustomCommand> customCommands = new ConcurrentHashMap<>();
     private static final Logger log = LoggerFactory.getLogger(CustomCmds.class);
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
     //People spamming crap... we cant have nice things owo
     private static final IncreasingRateLimiter customRatelimiter = new IncreasingRateLimiter.Builder()
             .spamTolerance(2)
@@ -40,20 +40,21 @@ import net.kodehawa.mantarobot.core.modules.commands.help.HelpContent;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.Player;
 import net.kodehawa.mantarobot.db.entities.PlayerStats;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.IncreasingRateLimiter;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 
-import java.security.SecureRandom;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 @Module
 public class GambleCmds {
-    private static final SecureRandom secureRandom = new SecureRandom();
+    private static final Random random = GameRandom.get();
     private static final int SLOTS_MAX_MONEY = 50_000;
     private static final int TICKETS_MAX_AMOUNT = 100; // Technically ~8,000 credits.
     private static final long GAMBLE_ABSOLUTE_MAX_MONEY = Integer.MAX_VALUE;
@@ -350,7 +351,7 @@ public class GambleCmds {
         if (coinSelect) {
             // Substract slot tickets.
             player.processItem(ItemReference.SLOT_COIN, (int) -coinAmount);
-            slotsChance = slotsChance + Math.max(6, secureRandom.nextInt(12) + 1);
+            slotsChance = slotsChance + Math.max(6, random.nextInt(12) + 1);
             money = 70L * coinAmount;
         }
 
@@ -368,21 +369,21 @@ public class GambleCmds {
                 builder.append("\n");
             }
 
-            builder.append(emotes[secureRandom.nextInt(emotes.length)]);
+            builder.append(emotes[random.nextInt(emotes.length)]);
         }
 
         var toSend = builder.toString();
         var gains = 0;
         var rows = toSend.split("\\r?\\n");
 
-        var chance = secureRandom.nextInt(100);
+        var chance = random.nextInt(100);
         if (chance < slotsChance) {
-            rows[1] = winCombinations.get(secureRandom.nextInt(winCombinations.size()));
+            rows[1] = winCombinations.get(random.nextInt(winCombinations.size()));
         }
 
         if (winCombinations.contains(rows[1])) {
             isWin = true;
-            var maxGains = secureRandom.nextInt((int) Math.round(money * 1.76)) + 16;
+            var maxGains = random.nextInt((int) Math.round(money * 1.76)) + 16;
             gains = (int) Math.max(money / 6, maxGains);
         }
 
@@ -446,20 +447,20 @@ public class GambleCmds {
             switch (amount) {
                 case "all", "everything" -> {
                     i = player.getCurrentMoney();
-                    multiplier = 1.3d + (secureRandom.nextInt(1350) / 1000d);
-                    luck = 19 + (int) (multiplier * 13) + secureRandom.nextInt(18);
+                    multiplier = 1.3d + (random.nextInt(1350) / 1000d);
+                    luck = 19 + (int) (multiplier * 13) + random.nextInt(18);
                 }
                 case "half" -> {
                     i = player.getCurrentMoney() == 1 ? 1 : player.getCurrentMoney() / 2;
 
-                    multiplier = 1.2d + (secureRandom.nextInt(1350) / 1000d);
-                    luck = 18 + (int) (multiplier * 13) + secureRandom.nextInt(18);
+                    multiplier = 1.2d + (random.nextInt(1350) / 1000d);
+                    luck = 18 + (int) (multiplier * 13) + random.nextInt(18);
                 }
                 case "quarter" -> {
                     i = player.getCurrentMoney() == 1 ? 1 : player.getCurrentMoney() / 4;
 
-                    multiplier = 1.1d + (secureRandom.nextInt(1250) / 1000d);
-                    luck = 18 + (int) (multiplier * 12) + secureRandom.nextInt(18);
+                    multiplier = 1.1d + (random.nextInt(1250) / 1000d);
+                    luck = 18 + (int) (multiplier * 12) + random.nextInt(18);
                 }
                 default -> {
                     i = 0;
@@ -476,8 +477,8 @@ public class GambleCmds {
                         throw new UnsupportedOperationException();
                     }
 
-                    multiplier = 1.1d + (i / ((double) player.getCurrentMoney()) * secureRandom.nextInt(1300) / 1000d);
-                    luck = 17 + (int) (multiplier * 13) + secureRandom.nextInt(12);
+                    multiplier = 1.1d + (i / ((double) player.getCurrentMoney()) * random.nextInt(1300) / 1000d);
+                    luck = 17 + (int) (multiplier * 13) + random.nextInt(12);
                 }
             }
         } catch (NumberFormatException | NullPointerException e) {
@@ -515,7 +516,6 @@ public class GambleCmds {
 
     private static void proceedGamble(IContext ctx, Player player, int luck, long i, long gains, long bet) {
         var stats = MantaroData.db().getPlayerStats(ctx.getMember());
-        final SecureRandom random = new SecureRandom();
 
         if (luck > random.nextInt(140)) {
             if (player.addMoney(gains)) {
@@ -58,7 +58,7 @@ import static net.kodehawa.mantarobot.commands.image.ImageboardUtils.getImage;
 
 @Module
 public class ImageCmds {
-    private static final URLCache imageCache = new URLCache(20);
+    private static final URLCache imageCache = URLCache.DEFAULT;
     private static final String[] catResponses = {
             "Aww, here, take a cat.", "%mention%, are you sad? ;w; take a cat!",
             "You should all have a cat in your life, but an image will do.",
@@ -51,8 +51,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.bson.conversions.Bson;
 import redis.clients.jedis.Jedis;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -99,7 +100,7 @@ public class LeaderboardCmd {
                             generateLeaderboardEmbed(ctx,
                                     ctx.getLanguageContext().get("commands.leaderboard.inner.money_old").formatted(EmoteReference.MONEY),
                                     "commands.leaderboard.money", moneyLeaderboard,
-                                    player -> Pair.of(getMember(ctx, player.getId()),
+                                    player -> Pair.of(player.getId(),
                                             String.valueOf(player.getOldMoney())), "%s**%s** - $%,d"
                             ).build()
                     );
@@ -114,7 +115,7 @@ public class LeaderboardCmd {
                                 "commands.leaderboard.money", moneyLeaderboard,
                                 player -> {
                                     var money = player.getNewMoney();
-                                    return Pair.of(getMember(ctx, player.getId()), String.valueOf(money));
+                                    return Pair.of(player.getId(), String.valueOf(money));
                                 }, "%s**%s** - $%,d"
                         ).build()
                 );
@@ -131,7 +132,7 @@ public class LeaderboardCmd {
                         generateLeaderboardEmbed(ctx,
                                 ctx.getLanguageContext().get("commands.leaderboard.inner.gamble").formatted(EmoteReference.MONEY),
                                 "commands.leaderboard.gamble", gambleLeaderboard,
-                                stats -> Pair.of(getMember(ctx, stats.getId()), String.valueOf(stats.getGambleWins())), "%s**%s** - %,d"
+                                stats -> Pair.of(stats.getId(), String.valueOf(stats.getGambleWins())), "%s**%s** - %,d"
                         ).build()
                 );
             }
@@ -147,7 +148,7 @@ public class LeaderboardCmd {
                         generateLeaderboardEmbed(ctx,
                                 ctx.getLanguageContext().get("commands.leaderboard.inner.slots").formatted(EmoteReference.MONEY),
                                 "commands.leaderboard.slots", slotsLeaderboard,
-                                stats -> Pair.of(getMember(ctx, stats.getId()),
+                                stats -> Pair.of(stats.getId(),
                                         String.valueOf(stats.getSlotsWins())), "%s**%s** - %,d"
                         ).build()
                 );
@@ -165,7 +166,7 @@ public class LeaderboardCmd {
                         generateLeaderboardEmbed(ctx,
                                 ctx.getLanguageContext().get("commands.leaderboard.inner.rep").formatted(EmoteReference.REP),
                                 "commands.leaderboard.reputation", reputationLeaderboard,
-                                player -> Pair.of(getMember(ctx, player.getId()), String.valueOf(player.getReputation())), "%s**%s** - %,d")
+                                player -> Pair.of(player.getId(), String.valueOf(player.getReputation())), "%s**%s** - %,d")
                                 .build()
                 );
             }
@@ -183,7 +184,7 @@ public class LeaderboardCmd {
                                         .formatted(EmoteReference.POPPER), "commands.leaderboard.daily", dailyLeaderboard,
                                 player -> {
                                     var streak = player.getDailyStreak();
-                                    return Pair.of(getMember(ctx, player.getId()), String.valueOf(streak));
+                                    return Pair.of(player.getId(), String.valueOf(streak));
                                 }, "%s**%s** - %sx")
                                 .build()
                 );
@@ -202,7 +203,7 @@ public class LeaderboardCmd {
                                 "commands.leaderboard.claim", claimLeaderboard,
                                 user -> {
                                     var timesClaimed = user.getTimesClaimed();
-                                    return Pair.of(getMember(ctx, user.getId()), String.valueOf(timesClaimed));
+                                    return Pair.of(user.getId(), String.valueOf(timesClaimed));
                                 }, "%s**%s** - %,d")
                                 .build()
                 );
@@ -222,7 +223,7 @@ public class LeaderboardCmd {
                                 "commands.leaderboard.game", gameLeaderboard,
                                 player -> {
                                     var gamesWon = player.getGamesWon();
-                                    return Pair.of(getMember(ctx, player.getId()), String.valueOf(gamesWon));
+                                    return Pair.of(player.getId(), String.valueOf(gamesWon));
                                 }, "%s**%s** - %,d")
                                 .build()
                 );
@@ -241,9 +242,11 @@ public class LeaderboardCmd {
 
     private static <T> EmbedBuilder generateLeaderboardEmbed(IContext ctx, String description, String leaderboardKey,
                                                              AggregateIterable<T> lbObject,
-                                                             Function<T, Pair<CachedLeaderboardMember, String>> mapFunction,
+                                                             Function<T, Pair<String, String>> mapFunction,
                                                              String format) {
         var languageContext = ctx.getLanguageContext();
+        var rows = StreamSupport.stream(lbObject.spliterator(), false).map(mapFunction).toList();
+        var members = getMembers(ctx, rows.stream().map(Pair::getKey).toList());
         return new EmbedBuilder()
                 .setAuthor(languageContext.get("commands.leaderboard.header"),
                         null,
@@ -251,11 +254,10 @@ public class LeaderboardCmd {
                 ).setDescription(description)
                 .addField(
                         languageContext.get(leaderboardKey),
-                        StreamSupport.stream(lbObject.spliterator(), false)
-                                .map(mapFunction)
-                                .filter(p -> Objects.nonNull(p.getKey()))
+                        rows.stream()
+                                .filter(p -> members.get(p.getKey()) != null)
                                 .map(p -> {
-                                    final var lbMember = p.getKey();
+                                    final var lbMember = members.get(p.getKey());
                                     //This is... an interesting place to do it lol
                                     if (lbMember.getId() == ctx.getAuthor().getIdLong()) {
                                         var player = MantaroData.db().getPlayer(ctx.getAuthor());
@@ -278,60 +280,92 @@ public class LeaderboardCmd {
     }
 
     /**
-     * Caches a user in redis if they're in the leaderboard. This speeds up User lookup times tenfold.
+     * Caches users in redis if they're in the leaderboard. This speeds up User lookup times tenfold.
      * The key will expire after 48 hours in the set, then we will just re-cache it as needed.
      * This should also take care of username changes.
      * <p>
-     * This value is saved in Redis, so it can be used cross-node.
-     * This also fixes leaderboards being incomplete in some nodes.
-     * <p>
      * This method is necessary to avoid calling Discord every single time we call a leaderboard,
      * since this might create hundreds of API requests in a few seconds, causing some nice 429s.
+     * Every row is looked up on the same Redis call, instead of one or two calls per row.
      *
-     * @param id The id of the user.
-     * @return A instance of CachedLeaderboardMember.
-     * This can either be retrieved from Redis or cached on the spot if the cache didn't exist for it.
+     * @param ids The ids of the users on the leaderboard.
+     * @return The CachedLeaderboardMember of each user, keyed by id.
+     * These can either be retrieved from Redis or cached on the spot if the cache didn't exist for them.
+     * Users that couldn't be found aren't on the map, this is later handled on generateLeaderboardEmbed.
      */
-    private static CachedLeaderboardMember getMember(IContext ctx, String id) {
+    private static Map<String, CachedLeaderboardMember> getMembers(IContext ctx, List<String> ids) {
+        var members = new HashMap<String, CachedLeaderboardMember>();
+        if (ids.isEmpty()) {
+            return members;
+        }
+
         try(Jedis jedis = MantaroData.getDefaultJedisPool().getResource()) {
-            var savedTo = "cachedlbuser:" + id;
-            var missed = "lbmiss:" + id;
+            var keys = new String[ids.size() * 2];
+            for (int i = 0; i < ids.size(); i++) {
+                keys[i * 2] = "cachedlbuser:" + ids.get(i);
+                keys[i * 2 + 1] = "lbmiss:" + ids.get(i);
+            }
+
+            var values = jedis.mget(keys);
+            for (int i = 0; i < ids.size(); i++) {
+                var id = ids.get(i);
+                var json = values.get(i * 2);
+                if (json != null) {
+                    try {
+                        members.put(id, JsonDataManager.fromJson(json, CachedLeaderboardMember.class));
+                    } catch (JsonProcessingException e) { // This would be odd, really.
+                        e.printStackTrace();
+                    }
+
+                    continue;
+                }
 
-            var json = jedis.get(savedTo);
-            if (json == null) {
                 // No need to keep trying missed entries for a while. Entry should have a TTL of 12 hours.
-                if (jedis.get(missed) != null) {
-                    return null;
+                if (values.get(i * 2 + 1) != null) {
+                    continue;
                 }
 
-                // Sadly a .complete() call for a User won't fill the internal cache, as JDA has no way to TTL it, instead, we will add it
-                // to our own cache in Redis, and expire it in 48 hours to avoid it filling up endlessly.
-                // This is to avoid having to do calls to discord all the time a leaderboard is retrieved, and only do the calls whenever
-                // it's absolutely needed, or when we need to re-populate the cache.
-                var user = ctx.getShardManager().retrieveUserById(id).complete();
-
-                // If no user was found, we need to return null. This is later handled on generateLeaderboardEmbed.
-                if (user == null) {
-                    jedis.set(missed, "1");
-                    jedis.expire(missed, TimeUnit.HOURS.toSeconds(12));
-                    return null;
+                var cached = cacheMember(ctx, jedis, id);
+                if (cached != null) {
+                    members.put(id, cached);
                 }
+            }
+        }
 
-                CachedLeaderboardMember cached = new CachedLeaderboardMember(
-                        user.getIdLong(), user.getName(), user.getDiscriminator(), System.currentTimeMillis()
-                );
-                jedis.set(savedTo, JsonDataManager.toJson(cached));
+        return members;
+    }
 
-                // Set the value to expire in 48 hours.
-                jedis.expire(savedTo, TimeUnit.HOURS.toSeconds(48));
-                return cached;
-            } else {
-                return JsonDataManager.fromJson(json, CachedLeaderboardMember.class);
-            }
+    private static CachedLeaderboardMember cacheMember(IContext ctx, Jedis jedis, String id) {
+        var savedTo = "cachedlbuser:" + id;
+        var missed = "lbmiss:" + id;
+
+        // Sadly a .complete() call for a User won't fill the internal cache, as JDA has no way to TTL it, instead, we will add it
+        // to our own cache in Redis, and expire it in 48 hours to avoid it filling up endlessly.
+        // This is to avoid having to do calls to discord all the time a leaderboard is retrieved, and only do the calls whenever
+        // it's absolutely needed, or when we need to re-populate the cache.
+        var user = ctx.getShardManager().retrieveUserById(id).complete();
+
+        // If no user was found, we need to return null. This is later handled on generateLeaderboardEmbed.
+        if (user == null) {
+            jedis.set(missed, "1");
+            jedis.expire(missed, TimeUnit.HOURS.toSeconds(12));
+            return null;
+        }
+
+        CachedLeaderboardMember cached = new CachedLeaderboardMember(
+                user.getIdLong(), user.getName(), user.getDiscriminator(), System.currentTimeMillis()
+        );
+
+        try {
+            jedis.set(savedTo, JsonDataManager.toJson(cached));
         } catch (JsonProcessingException e) { // This would be odd, really.
             e.printStackTrace();
             return null;
         }
+
+        // Set the value to expire in 48 hours.
+        jedis.expire(savedTo, TimeUnit.HOURS.toSeconds(48));
+        return cached;
     }
 
     private static void send(IContext ctx, MessageEmbed embed) {
@@ -46,6 +46,7 @@ import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -96,8 +97,9 @@ public class MarryCmd {
                 }
 
                 // This is just for checking purposes, so we don't need the DBUser itself.
-                var proposingUserData = ctx.getDBUser(proposingUser);
-                var proposedToUserData = ctx.getDBUser(proposedToUser);
+                var userData = ctx.db().getUsers(List.of(proposingUser.getId(), proposedToUser.getId()));
+                var proposingUserData = userData.get(proposingUser.getId());
+                var proposedToUserData = userData.get(proposedToUser.getId());
 
                 // Again just for checking, and no need to change.
                 final var proposingPlayer = ctx.getPlayer(proposingUser);
@@ -304,8 +306,9 @@ public class MarryCmd {
                 final var daysMarried = TimeUnit.of(ChronoUnit.MILLIS).toDays(System.currentTimeMillis() - currentMarriage.getMarriageCreationMillis());
 
                 if (daysMarried > 356) { // we assume non leap years for our own sanity
-                    Player authorPlayer = ctx.getPlayer();
-                    Player marriedToPlayer = ctx.getPlayer(marriedTo);
+                    var players = ctx.db().getPlayers(List.of(author.getId(), marriedTo.getId()));
+                    Player authorPlayer = players.get(author.getId());
+                    Player marriedToPlayer = players.get(marriedTo.getId());
                     if (authorPlayer.addBadgeIfAbsent(Badge.LASTING_MARRIAGE)) {
                         authorPlayer.updateAllChanged();
                     }
@@ -41,6 +41,7 @@ import net.kodehawa.mantarobot.core.modules.commands.base.Context;
 import net.kodehawa.mantarobot.core.modules.commands.help.HelpContent;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.Player;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.CustomFinderUtil;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
@@ -48,12 +49,12 @@ import net.kodehawa.mantarobot.utils.commands.campaign.Campaign;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.IncreasingRateLimiter;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 
-import java.security.SecureRandom;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 @Module
@@ -78,7 +79,7 @@ public class MoneyCmds {
             .prefix("loot")
             .build();
 
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
 
     @Subscribe
     public void register(CommandRegistry cr) {
@@ -471,8 +472,9 @@ public class MoneyCmds {
             }
         }
 
-        var loot = ground.collectItems();
-        var moneyFound = ground.collectMoney() + Math.max(0, random.nextInt(70));
+        var collected = ground.collect();
+        var loot = collected.items();
+        var moneyFound = collected.money() + Math.max(0, random.nextInt(70));
 
         // Make the credits minimum 10, instead of... 1
         if (moneyFound != 0) {
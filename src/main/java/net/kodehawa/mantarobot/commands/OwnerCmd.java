@@ -27,6 +27,7 @@ import net.kodehawa.mantarobot.core.CommandRegistry;
 import net.kodehawa.mantarobot.core.command.NewCommand;
 import net.kodehawa.mantarobot.core.command.NewContext;
 import net.kodehawa.mantarobot.core.command.argument.Parsers;
+import net.kodehawa.mantarobot.core.command.processor.CommandTracer;
 import net.kodehawa.mantarobot.core.command.meta.Category;
 import net.kodehawa.mantarobot.core.command.meta.Help;
 import net.kodehawa.mantarobot.core.command.meta.Permission;
@@ -54,6 +55,7 @@ import java.awt.Color;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -75,6 +77,7 @@ public class OwnerCmd {
         cr.register(RefreshPledges.class);
         cr.register(AddOwnerPremium.class);
         cr.register(Blacklist.class);
+        cr.register(SlowTraces.class);
     }
 
     @Permission(CommandPermission.OWNER)
@@ -141,6 +144,26 @@ public class OwnerCmd {
         }
     }
 
+    @Permission(CommandPermission.OWNER)
+    @Category(CommandCategory.OWNER)
+    @Help(description = "Dumps the latest slow command invocations, with the time each phase took.")
+    public static class SlowTraces extends NewCommand {
+        @Override
+        protected void process(NewContext ctx) {
+            var traces = CommandTracer.getSlowTraces();
+            if (traces.isEmpty()) {
+                ctx.send("No slow commands recorded on this node.");
+                return;
+            }
+
+            var dump = traces.stream()
+                    .map(trace -> "[%s] %s".formatted(Instant.ofEpochMilli(trace.getStartedAt()), trace))
+                    .collect(Collectors.joining("\n"));
+
+            ctx.sendFile(dump.getBytes(StandardCharsets.UTF_8), "traces.txt");
+        }
+    }
+
     @Permission(CommandPermission.OWNER)
     @Category(CommandCategory.OWNER)
     public static class GiveItem extends NewCommand {
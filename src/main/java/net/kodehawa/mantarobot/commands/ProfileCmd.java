@@ -19,24 +19,22 @@ package net.kodehawa.mantarobot.commands;
 
 import com.google.common.eventbus.Subscribe;
 import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.MessageEmbed;
-import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
-import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
 import net.dv8tion.jda.api.interactions.components.text.TextInputStyle;
 import net.dv8tion.jda.api.interactions.modals.Modal;
-import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.item.ItemHelper;
 import net.kodehawa.mantarobot.commands.currency.item.ItemReference;
 import net.kodehawa.mantarobot.commands.currency.item.PlayerEquipment;
 import net.kodehawa.mantarobot.commands.currency.item.special.helpers.Breakable;
 import net.kodehawa.mantarobot.commands.currency.profile.Badge;
+import net.kodehawa.mantarobot.commands.currency.profile.HubBadges;
 import net.kodehawa.mantarobot.commands.currency.profile.ProfileComponent;
+import net.kodehawa.mantarobot.commands.currency.profile.ProfileLoader;
 import net.kodehawa.mantarobot.commands.currency.profile.StatsComponent;
 import net.kodehawa.mantarobot.core.CommandRegistry;
 import net.kodehawa.mantarobot.core.command.meta.Category;
@@ -67,7 +65,6 @@ import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 import java.awt.Color;
 import java.time.DateTimeException;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -560,23 +557,16 @@ public class ProfileCmd {
 
     private static MessageEmbed buildProfile(IContext ctx, User userLooked) {
         final var memberLooked = ctx.getGuild().getMember(userLooked);
-        final var player = ctx.getPlayer(userLooked);
-        final var dbUser = ctx.getDBUser(userLooked);
+        final var profile = ProfileLoader.load(userLooked);
+        final var player = profile.player();
+        final var dbUser = profile.dbUser();
         final var config = MantaroData.config().get();
 
         // Cache waifu value.
-        player.waifuCachedValue(WaifuCmd.calculateWaifuValue(player, userLooked).getFinalValue());
+        player.waifuCachedValue(WaifuCmd.calculateWaifuValue(player, dbUser).getFinalValue());
 
         // start of badge assigning
-        final var mh = MantaroBot.getInstance().getShardManager().getGuildById("213468583252983809");
-        Member mhMember = null;
-        if (mh != null) {
-            try {
-                mhMember = mh.retrieveMemberById(userLooked.getId()).useCache(true).complete();
-            } catch (ErrorResponseException ignored) { } // Expected UNKNOWN_MEMBER
-        }
-
-        Badge.assignBadges(player, player.getStats(), dbUser);
+        Badge.assignBadges(player, profile.stats(), dbUser);
         var christmasBadgeAssign = player.containsItem(ItemReference.CHRISTMAS_TREE_SPECIAL) || player.containsItem(ItemReference.BELL_SPECIAL);
         // Manual badges
         if (config.isOwner(userLooked)) {
@@ -587,22 +577,9 @@ public class ProfileCmd {
             player.addBadgeIfAbsent(Badge.CHRISTMAS);
         }
 
-        // Requires a valid Member in Mantaro Hub.
-        if (mhMember != null) {
-            // Admin
-            if (containsRole(mhMember, 315910951994130432L)) {
-                player.addBadgeIfAbsent(Badge.COMMUNITY_ADMIN);
-            }
-
-            // Patron - Donator
-            if (containsRole(mhMember, 290902183300431872L, 290257037072531466L)) {
-                player.addBadgeIfAbsent(Badge.DONATOR_2);
-            }
-
-            // Translator
-            if (containsRole(mhMember, 407156441812828162L)) {
-                player.addBadgeIfAbsent(Badge.TRANSLATOR);
-            }
+        // Admin, Patron/Donator and Translator, from their roles in Mantaro Hub.
+        for (var badge : HubBadges.of(userLooked.getId())) {
+            player.addBadgeIfAbsent(badge);
         }
         // end of badge assigning
 
@@ -610,9 +587,9 @@ public class ProfileCmd {
         final var badges = player.getBadges();
         Collections.sort(badges);
 
-        final var marriage = MantaroData.db().getMarriage(dbUser.getMarriageId());
+        final var marriage = profile.marriage();
         final var ringHolder = player.containsItem(ItemReference.RING) && marriage != null;
-        final var holder = new ProfileComponent.Holder(userLooked, player, dbUser, marriage, badges);
+        final var holder = new ProfileComponent.Holder(userLooked, player, dbUser, marriage, profile.marriedTo(), badges);
         final var profileBuilder = new EmbedBuilder();
         var description = lang.get("commands.profile.no_desc");
 
@@ -631,7 +608,7 @@ public class ProfileCmd {
                         ctx.getAuthor().getEffectiveAvatarUrl()
                 );
 
-        var hasCustomOrder = dbUser.isPremium() && !player.getProfileComponents().isEmpty();
+        var hasCustomOrder = profile.premium() && !player.getProfileComponents().isEmpty();
         var usedOrder = hasCustomOrder ? player.getProfileComponents() : defaultOrder;
         if ((!config.isPremiumBot() && player.getOldMoney() < 5000 && !hasCustomOrder) ||
                 (player.isHiddenLegacy() && !hasCustomOrder)) {
@@ -668,8 +645,4 @@ public class ProfileCmd {
                     .formatted(equipment.getDurability().get(entry.getKey()), ((Breakable) item).getMaxDurability());
         }).collect(Collectors.joining("\n"));
     }
-
-    private static boolean containsRole(Member member, long... roles) {
-        return member.getRoles().stream().map(Role::getIdLong).anyMatch(id -> Arrays.stream(roles).anyMatch(i -> i == id));
-    }
 }
@@ -40,6 +40,7 @@ import net.kodehawa.mantarobot.core.listeners.operations.core.Operation;
 import net.kodehawa.mantarobot.core.modules.Module;
 import net.kodehawa.mantarobot.core.modules.commands.base.CommandCategory;
 import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.entities.MongoUser;
 import net.kodehawa.mantarobot.db.entities.Player;
 import net.kodehawa.mantarobot.utils.commands.DiscordUtils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
@@ -157,6 +158,8 @@ public class WaifuCmd {
                 final var id = ctx.getOptionAsBoolean("id");
                 List<String> toRemove = new ArrayList<>();
                 List<MessageEmbed.Field> fields = new LinkedList<>();
+                // Only what the list shows, for all waifus at once.
+                final var claimed = ctx.db().getPlayers(dbUser.waifuKeys(), "waifuout", "waifuCachedValue");
 
                 for (String waifu : dbUser.waifuKeys()) {
                     //This fixes the issue of cross-node waifus not appearing.
@@ -169,7 +172,7 @@ public class WaifuCmd {
                                         lang.get("commands.waifu.credits_format"), false)
                         );
                     } else {
-                        Player waifuClaimed = ctx.getPlayer(user);
+                        Player waifuClaimed = claimed.get(waifu);
                         if (waifuClaimed.isWaifuout()) {
                             toRemove.add(waifu);
                             continue;
@@ -572,9 +575,10 @@ public class WaifuCmd {
     }
 
     static Waifu calculateWaifuValue(final Player player, final User user) {
-        final var db = MantaroData.db();
-        final var waifuUserData = db.getUser(user);
+        return calculateWaifuValue(player, MantaroData.db().getUser(user));
+    }
 
+    static Waifu calculateWaifuValue(final Player player, final MongoUser waifuUserData) {
         var waifuValue = WAIFU_BASE_VALUE;
         long performance;
         // For every 135,000 money owned, it increases by 7% base value (base: 1300)
@@ -148,9 +148,11 @@ public class ImageActionCmd extends NoArgsCommand {
                     return;
                 }
             } else {
+                var checked = mentionedMembers.stream().limit(10).map(Member::getId).toList();
+                var dbUsers = ctx.db().getUsers(checked, "actionsDisabled");
                 var filter = mentionedMembers.stream()
                         .limit(10)
-                        .filter(member -> ctx.getDBUser(member).isActionsDisabled()).toList();
+                        .filter(member -> dbUsers.get(member.getId()).isActionsDisabled()).toList();
 
                 // Needs to be mutable.
                 mentionedMembers = new ArrayList<>(mentionedMembers);
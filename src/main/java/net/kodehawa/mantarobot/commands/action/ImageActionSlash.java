@@ -164,9 +164,11 @@ public class ImageActionSlash extends SlashCommand {
             var mentioned = member.getAsMention();
             boolean filtered = false;
             if (!mentions.isEmpty()) {
+                var checked = mentions.stream().limit(10).map(Member::getId).toList();
+                var dbUsers = ctx.db().getUsers(checked, "actionsDisabled");
                 var filter = mentions.stream()
                         .limit(10)
-                        .filter(m -> ctx.getDBUser(m).isActionsDisabled()).toList();
+                        .filter(m -> dbUsers.get(m.getId()).isActionsDisabled()).toList();
 
                 // Need it to be mutable.
                 mentions = new ArrayList<>(mentions);
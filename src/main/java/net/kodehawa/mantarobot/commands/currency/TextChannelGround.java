@@ -17,50 +17,47 @@
 
 package net.kodehawa.mantarobot.commands.currency;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.kodehawa.mantarobot.commands.currency.item.Item;
 import net.kodehawa.mantarobot.commands.currency.item.ItemHelper;
 import net.kodehawa.mantarobot.commands.currency.item.ItemStack;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.db.entities.Inventory;
-import net.kodehawa.mantarobot.utils.data.JsonDataManager;
+import net.kodehawa.mantarobot.utils.GameRandom;
+import org.apache.commons.io.IOUtils;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
-import java.beans.ConstructorProperties;
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-
-import static net.kodehawa.mantarobot.db.entities.Inventory.serialize;
-import static net.kodehawa.mantarobot.db.entities.Inventory.unserialize;
+import java.util.Random;
 
+/**
+ * Items and money dropped on a channel, for people to pick up with loot.
+ * Grounds are redis hashes, and every change to one is done in a single script call, so concurrent drops and
+ * pick ups don't step on each other. Getting a ground doesn't touch redis at all, and neither does a drop
+ * that doesn't happen.
+ */
 public class TextChannelGround {
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
+    private static final String SCRIPT;
+    private static volatile String scriptSha;
+
+    static {
+        try {
+            //noinspection DataFlowIssue
+            SCRIPT = IOUtils.toString(
+                    TextChannelGround.class.getResourceAsStream("/ground.lua"), StandardCharsets.UTF_8
+            );
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     public static Ground of(String id) {
-        final var identifier =  "textchannelground:" + id;
-        try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
-            final var json = jedis.get(identifier);
-            if (json == null) {
-                // No ground found, create new one.
-                var ground = new Ground(new HashMap<>(), 0, id);
-                var newJson = JsonDataManager.toJson(ground);
-                jedis.set(identifier, newJson);
-
-                return ground;
-            } else {
-                return JsonDataManager.fromJson(json, Ground.class);
-            }
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            return new Ground(new HashMap<>(), 0, id);
-        }
+        return new Ground(id);
     }
 
     public static Ground of(MessageChannel ch) {
@@ -76,131 +73,119 @@ public class TextChannelGround {
         }
     }
 
-    @SuppressWarnings("unused")
-    public static class Ground {
-        @JsonProperty("groundItems")
-        final Inventory groundItems = new Inventory();
-        int money;
-        String channel;
-
-        @JsonCreator
-        @ConstructorProperties({"groundItems", "money", "channel"})
-        public Ground(Map<String, Integer> inventory, int money, String channel) {
-            this.money = money;
-            this.channel = channel;
-            this.groundItems.replaceWith(unserialize(inventory));
-        }
-
-        @JsonProperty("groundItems")
-        public Map<String, Integer> rawGround() {
-            return serialize(groundItems.asList());
-        }
-
-        @JsonIgnore
-        public List<ItemStack> getGroundItems() {
-            return groundItems.asList();
-        }
-
-        public void setGroundItems(List<ItemStack> groundItems) {
-            this.groundItems.replaceWith(groundItems);
-        }
+    private static Object run(String channel, List<String> args) {
+        final var identifier = "textchannelground:" + channel;
+        try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
+            if (scriptSha == null) {
+                scriptSha = jedis.scriptLoad(SCRIPT);
+            }
 
-        public int getMoney() {
-            return money;
+            try {
+                return jedis.evalsha(scriptSha, Collections.singletonList(identifier), args);
+            } catch (JedisNoScriptException e) {
+                //script not in cache. force load it and try again.
+                scriptSha = jedis.scriptLoad(SCRIPT);
+                return jedis.evalsha(scriptSha, Collections.singletonList(identifier), args);
+            }
         }
+    }
 
-        public void setMoney(int money) {
-            this.money = money;
-        }
+    public static class Ground {
+        private final String channel;
 
-        @JsonIgnore
-        public int dropMoney(int amount) {
-            int m = money += amount;
-            save();
-            return m;
+        Ground(String channel) {
+            this.channel = channel;
         }
 
         public String getChannel() {
             return channel;
         }
 
-        public void setChannel(String channel) {
-            this.channel = channel;
-        }
+        /**
+         * Drops money on the ground.
+         *
+         * @param amount The amount to drop.
+         * @return The money on the ground after dropping it.
+         */
+        public int dropMoney(int amount) {
+            var money = (Long) run(channel, List.of("drop", String.valueOf(ItemStack.MAX_STACK_SIZE), String.valueOf(amount)));
+            return money.intValue();
+        }
+
+        /**
+         * Picks up everything on the ground, leaving it empty.
+         * Only up to 25 of each item can be picked up, the rest is lost.
+         *
+         * @return What was on the ground.
+         */
+        @SuppressWarnings("unchecked")
+        public Loot collect() {
+            var result = (List<String>) run(channel, List.of("collect"));
+            var items = new ArrayList<ItemStack>();
+            for (int i = 1; i + 1 < result.size(); i += 2) {
+                var amount = Integer.parseInt(result.get(i + 1));
+                if (amount <= 0) {
+                    continue;
+                }
 
-        @JsonIgnore
-        public List<ItemStack> collectItems() {
-            ArrayList<ItemStack> finalStacks = new ArrayList<>();
-            for (var stack : groundItems.asList()) {
-                finalStacks.add(new ItemStack(stack.getItem(), Math.min(stack.getAmount(), 25)));
+                var slice = result.get(i);
+                ItemHelper.fromTranslationSlice(slice).ifPresent(item ->
+                        items.add(new ItemStack(item, Math.min(amount, 25)))
+                );
             }
 
-            groundItems.clear();
-            save();
-            return finalStacks;
+            return new Loot(items, Integer.parseInt(result.get(0)));
         }
 
-        @JsonIgnore
-        public int collectMoney() {
-            var oldMoney = money;
-            setMoney(0);
-            save();
-            return oldMoney;
-        }
-
-        @JsonIgnore
         public void dropItem(Item item) {
-            if (groundItems.getAmount(item) >= ItemStack.MAX_STACK_SIZE) {
-                return;
-            }
-
             dropItems(new ItemStack(item, 1));
-            save();
         }
 
-        @JsonIgnore
         public void dropItemWithChance(Item item, int weight) {
-            var doDrop = random.nextInt(weight) == 0;
-            if (doDrop) {
-                if (groundItems.getAmount(item) >= ItemStack.MAX_STACK_SIZE) {
-                    return;
-                }
-
+            // Most of the time nothing drops, so roll before talking to redis at all.
+            if (random.nextInt(weight) == 0) {
                 dropItem(item);
-                save();
             }
         }
 
-        @JsonIgnore
         public void dropItemWithChance(int item, int weight) {
-            if (groundItems.getAmount(ItemHelper.fromId(item)) >= ItemStack.MAX_STACK_SIZE) {
-                return;
-            }
-
             dropItemWithChance(ItemHelper.fromId(item), weight);
-            save();
         }
 
-        @JsonIgnore
+        /**
+         * Drops items on the ground. Stacks on the ground are capped to {@link ItemStack#MAX_STACK_SIZE}.
+         *
+         * @param stacks The items to drop.
+         */
         public void dropItems(List<ItemStack> stacks) {
-            this.groundItems.process(stacks);
-            save();
+            List<String> args = new ArrayList<>();
+            args.add("drop");
+            args.add(String.valueOf(ItemStack.MAX_STACK_SIZE));
+            args.add("0");
+            for (var stack : stacks) {
+                if (stack.getAmount() <= 0) {
+                    continue;
+                }
+
+                args.add(stack.getItem().getTranslatedName().split("\\.")[1]);
+                args.add(String.valueOf(stack.getAmount()));
+            }
+
+            if (args.size() > 3) {
+                run(channel, args);
+            }
         }
 
-        @JsonIgnore
         public void dropItems(ItemStack... stacks) {
             dropItems(Arrays.asList(stacks));
-            save();
-        }
-
-        @JsonIgnore
-        public void save() {
-            final var identifier =  "textchannelground:" + channel;
-            try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
-                jedis.set(identifier, JsonDataManager.toJson(this));
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
-            }
         }
     }
+
+    /**
+     * What was picked up from a ground.
+     *
+     * @param items The items, up to 25 of each.
+     * @param money The money.
+     */
+    public record Loot(List<ItemStack> items, int money) { }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.currency.item;
+
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.kodehawa.mantarobot.data.I18n;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The items an autocomplete handler can suggest, along with the choice for each of them, built once per language.
+ */
+final class ItemChoices {
+    private final Supplier<Item[]> source;
+    private final Map<String, Candidates> languages = new ConcurrentHashMap<>();
+
+    ItemChoices(Supplier<Item[]> source) {
+        this.source = source;
+    }
+
+    /**
+     * @param index The item index the matches come from.
+     * @param matches The ids of the matching items.
+     * @param language The language to build the choices in.
+     * @return Up to {@link OptionData#MAX_CHOICES} choices for the matching items, in candidate order.
+     */
+    List<Command.Choice> choices(ItemIndex index, BitSet matches, String language) {
+        var candidates = languages.computeIfAbsent(language, lang -> new Candidates(index, source.get(), lang));
+        List<Command.Choice> choices = new ArrayList<>(Math.min(OptionData.MAX_CHOICES, candidates.ids.length));
+        for (int i = 0; i < candidates.ids.length && choices.size() < OptionData.MAX_CHOICES; i++) {
+            var id = candidates.ids[i];
+            if (id != -1 && matches.get(id)) {
+                choices.add(candidates.choices[i]);
+            }
+        }
+
+        return choices;
+    }
+
+    private static final class Candidates {
+        private final int[] ids;
+        private final Command.Choice[] choices;
+
+        private Candidates(ItemIndex index, Item[] items, String language) {
+            var isEnglish = language.equalsIgnoreCase("en_us");
+            var i18n = I18n.getForLanguage(language);
+            this.ids = new int[items.length];
+            this.choices = new Command.Choice[items.length];
+            for (int i = 0; i < items.length; i++) {
+                var item = items[i];
+                ids[i] = index.idOf(item);
+                var fullChoice = isEnglish ? null : i18n.get(item.getTranslatedName()) + " (" + item.getName() + ")";
+                // we fall back to english if the choice would be too long
+                // because we want to avoid confusion
+                choices[i] = new Command.Choice(
+                        isEnglish || fullChoice.length() > OptionData.MAX_CHOICE_VALUE_LENGTH ? item.getName() : fullChoice,
+                        item.getName()
+                );
+            }
+        }
+    }
+}
@@ -17,8 +17,6 @@
 
 package net.kodehawa.mantarobot.commands.currency.item;
 
-import net.dv8tion.jda.api.interactions.commands.Command;
-import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.kodehawa.mantarobot.commands.currency.item.special.Broken;
 import net.kodehawa.mantarobot.commands.currency.item.special.Food;
 import net.kodehawa.mantarobot.commands.currency.item.special.Potion;
@@ -37,23 +35,21 @@ import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.MongoUser;
 import net.kodehawa.mantarobot.db.entities.Player;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
-import net.kodehawa.mantarobot.utils.commands.RandomCollection;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.IncreasingRateLimiter;
 import net.kodehawa.mantarobot.utils.commands.ratelimit.RatelimitUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -64,8 +60,15 @@ public class ItemHelper {
     private static Broken[] salvageableItems;
     private static Item[] usableItems;
     private static Food[] petFoodItems;
+    private static volatile ItemIndex index;
+    private static final ItemChoices castableChoices = new ItemChoices(ItemHelper::getCastableItems);
+    private static final ItemChoices equipableChoices = new ItemChoices(ItemHelper::getEquipableItems);
+    private static final ItemChoices repairableChoices = new ItemChoices(ItemHelper::getBrokenItems);
+    private static final ItemChoices salvageableChoices = new ItemChoices(ItemHelper::getSalvageableItems);
+    private static final ItemChoices usableChoices = new ItemChoices(ItemHelper::getUsableItems);
+    private static final ItemChoices petFoodChoices = new ItemChoices(ItemHelper::getPetFoodItems);
     private static final Logger log = LoggerFactory.getLogger(ItemHelper.class);
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
     private static final IncreasingRateLimiter lootCrateRatelimiter = new IncreasingRateLimiter.Builder()
             .limit(1)
             .spamTolerance(2)
@@ -129,6 +132,23 @@ public class ItemHelper {
         ItemReference.MINE_PREMIUM_CRATE.registerItemAlias("premium mine lootbox");
         ItemReference.FISH_PREMIUM_CRATE.registerItemAlias("premium fish lootbox");
         ItemReference.CHOP_PREMIUM_CRATE.registerItemAlias("premium chop lootbox");
+
+        // Rebuild, so the aliases above make it into the index.
+        index = new ItemIndex(ItemReference.ALL);
+    }
+
+    private static ItemIndex index() {
+        var current = index;
+        if (current == null) {
+            synchronized (ItemHelper.class) {
+                current = index;
+                if (current == null) {
+                    index = current = new ItemIndex(ItemReference.ALL);
+                }
+            }
+        }
+
+        return current;
     }
 
     @SuppressWarnings("unused")
@@ -172,9 +192,8 @@ public class ItemHelper {
     }
 
     public static Optional<Item> fromEmoji(String emoji) {
-        return Stream.of(ItemReference.ALL)
-                .filter(item -> isMatchingEmoji(item, emoji))
-                .findFirst();
+        var index = index();
+        return Optional.ofNullable(index.first(index.byEmoji(emoji)));
     }
 
     public static Item fromId(int id) {
@@ -182,34 +201,31 @@ public class ItemHelper {
     }
 
     public static Optional<Item> fromName(String name, I18nContext languageContext) {
-        return Arrays.stream(ItemReference.ALL)
-                .filter(item -> isMatchingItemName(item, name, languageContext))
-                .findFirst();
+        var index = index();
+        return Optional.ofNullable(index.get(index.names(languageContext.getContextLanguage()).matching(name)));
     }
 
     public static Optional<Item> fromTranslationSlice(String slice) {
-        return Arrays.stream(ItemReference.ALL)
-                .filter(item -> item.getTranslatedName().equals("items." + slice))
-                .findFirst();
+        return Optional.ofNullable(index().byTranslationSlice(slice));
     }
 
     public static Optional<Item> fromAlias(String name) {
-        return Arrays.stream(ItemReference.ALL).filter(item -> isMatchingAlias(item, name)).findFirst();
+        var index = index();
+        return Optional.ofNullable(index.first(index.byAlias(name)));
     }
 
     public static Optional<Item> fromAliasList(String name) {
-        return Arrays.stream(ItemReference.ALL).filter(item -> hasMatchingAlias(item, name)).findFirst();
+        var index = index();
+        return Optional.ofNullable(index.first(index.byAliasList(name)));
     }
 
     public static Optional<Item> fromPartialName(String name, I18nContext languageContext) {
-        return Arrays.stream(ItemReference.ALL)
-                .filter(item -> isPartialNameMatch(item, name, languageContext))
-                .findFirst();
+        var index = index();
+        return Optional.ofNullable(index.get(index.names(languageContext.getContextLanguage()).firstContaining(name)));
     }
 
     public static int idOf(Item item) {
-        return Arrays.asList(ItemReference.ALL)
-                .indexOf(item);
+        return index().idOf(item);
     }
 
     static boolean openLootCrate(IContext ctx, ItemType.LootboxType type, int item, EmoteReference typeEmote, int bound) {
@@ -256,7 +272,7 @@ public class ItemHelper {
                                     EmoteReference typeEmote, int bound) {
         List<Item> toAdd = new ArrayList<>();
         for (int i = 0; i < amount; i++) {
-            toAdd.addAll(selectItems(random.nextInt(bound) + bound, type));
+            toAdd.addAll(LootTable.of(type).select(random.nextInt(bound) + bound, random));
         }
 
         ArrayList<ItemStack> ita = new ArrayList<>();
@@ -311,117 +327,6 @@ public class ItemHelper {
                 typeEmote.getDiscordNotation() + " ", amount, show, extra);
     }
 
-    @SuppressWarnings("fallthrough")
-    private static List<Item> selectItems(int amount, ItemType.LootboxType type) {
-        List<Item> common = handleItemDrop(i -> i.getItemType() == ItemType.COMMON, true);
-        List<Item> rare = handleItemDrop(i -> i.getItemType() == ItemType.RARE);
-        List<Item> premium = handleItemDrop(i -> i.getItemType() == ItemType.PREMIUM);
-
-        List<Item> mine = handleItemDrop(i ->
-                (i.getItemType() == ItemType.MINE ||
-                i.getItemType() == ItemType.CAST_OBTAINABLE ||
-                i.getItemType() == ItemType.MINE_PICK) && i != ItemReference.ROCK, true
-        );
-
-        List<Item> fish = handleItemDrop(i -> i.getItemType() == ItemType.FISHING ||  i.getItemType() == ItemType.FISHROD, true);
-        List<Item> chop = handleItemDrop(i -> i.getItemType() == ItemType.CHOP_DROP ||  i.getItemType() == ItemType.CHOP_AXE, true);
-
-        List<Item> premiumMine = handleItemDrop(i ->
-                i.getItemType() == ItemType.CAST_MINE ||
-                i.getItemType() == ItemType.MINE_PICK ||
-                i.getItemType() == ItemType.MINE ||
-                i.getItemType() == ItemType.MINE_RARE ||
-                i.getItemType() == ItemType.CAST_OBTAINABLE ||
-                i.getItemType() == ItemType.MINE_RARE_PICK
-        );
-
-        List<Item> premiumFish = handleItemDrop(i ->
-                i.getItemType() == ItemType.FISHROD ||
-                i.getItemType() == ItemType.FISHROD_RARE ||
-                i.getItemType() == ItemType.FISHING ||
-                i.getItemType() == ItemType.FISHING_RARE
-        );
-
-        List<Item> premiumChop = handleItemDrop(i ->
-                i.getItemType() == ItemType.CHOP_DROP ||
-                        i.getItemType() == ItemType.CHOP_AXE ||
-                        i.getItemType() == ItemType.CHOP_RARE_AXE
-        );
-
-        RandomCollection<Item> items = new RandomCollection<>();
-        switch (type) {
-            case PREMIUM:
-                premium.forEach(i -> items.add(2, i));
-            case RARE:
-                rare.forEach(i -> items.add(5, i));
-            case COMMON:
-                common.forEach(i -> items.add(20, i));
-                break; //fallthrough intended until here.
-            case CHOP_PREMIUM:
-                premiumChop.forEach(i -> items.add(8, i));
-                break;
-            case FISH_PREMIUM:
-                premiumFish.forEach(i -> items.add(8, i));
-                break;
-            case MINE_PREMIUM:
-                premiumMine.forEach(i -> items.add(8, i));
-                break;
-            case MINE:
-                mine.forEach(i -> items.add(8, i));
-                break;
-            case FISH:
-                fish.forEach(i -> items.add(8, i));
-                break;
-            case CHOP:
-                chop.forEach(i -> items.add(8, i));
-        }
-
-        List<Item> list = new ArrayList<>(amount);
-        for (int i = 0; i < amount; i++) {
-            list.add(items.next());
-        }
-
-        return list;
-    }
-
-    private static List<Item> handleItemDrop(Predicate<Item> predicate) {
-        return handleItemDrop(predicate, false);
-    }
-
-
-    private static List<Item> handleItemDrop(Predicate<Item> predicate, boolean normal) {
-        List<Item> all = Arrays.stream(ItemReference.ALL)
-                .filter(i -> i.isBuyable() || i.isSellable()).toList();
-
-        return all.stream()
-                .filter(predicate)
-                .filter(item -> {
-                    // Keep in mind the chances here aren't absolute for any means,
-                    // and it depends on the RandomCollection created on selectItems
-                    if (normal) {
-                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
-                            return random.nextFloat() <= 0.02f; // 2% for 5* +
-                        }
-
-                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 100) {
-                            return random.nextFloat() <= 0.05f;  // 5% for 3 and 4*
-                        }
-                    } else {
-                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
-                            return random.nextFloat() <= 0.10f; // 10% for 5* +
-                        }
-
-                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 300) {
-                            return random.nextFloat() <= 0.40f; // 40% for 3* +
-                        }
-                    }
-
-                    return true;
-                })
-                .sorted(Comparator.comparingLong(i -> i.value))
-                .collect(Collectors.toList());
-    }
-
     public static boolean handleEffect(PlayerEquipment.EquipmentType type, PlayerEquipment equipment, Item item, MongoUser user) {
         boolean isEffectPresent = equipment.getCurrentEffect(type) != null;
 
@@ -582,67 +487,22 @@ public class ItemHelper {
         }
     }
 
-    private static boolean isMatchingItemName(Item item, String name, I18nContext languageContext) {
-        final var itemName = item.getName().toLowerCase().trim();
-        final var lookup = name.toLowerCase().trim();
-        final var translatedName = item.getTranslatedName();
-
-        // Either name or translated name
-        return itemName.equals(lookup) || (
-                !translatedName.isEmpty() && !languageContext.getContextLanguage().equals("en_US") &&
-                        languageContext.get(translatedName).toLowerCase().trim().equals(lookup)
-        );
-    }
-
-    private static boolean isMatchingEmoji(Item item, String emoji) {
-        return item.getEmoji().equals(emoji.replace("\ufe0f", ""));
-    }
-
-    private static boolean isMatchingAlias(Item item, String name) {
-        if (item.getAlias() == null) {
-            return false;
-        }
-        return item.getAlias()
-                .toLowerCase()
-                .trim()
-                .equals(name.toLowerCase().trim());
-    }
-
-    private static boolean hasMatchingAlias(Item item, String name) {
-        if (item.getAliases().isEmpty()) {
-            return false;
-        }
-
-        final var lookup = name.toLowerCase().trim();
-        return item.getAliases().stream().anyMatch(lookup::equals);
-    }
-
-    private static boolean isPartialNameMatch(Item item, String name, I18nContext languageContext) {
-        final var itemName = item.getName().toLowerCase().trim();
-        final var lookup = name.toLowerCase().trim();
-        final var translatedName = item.getTranslatedName();
-
-        return itemName.contains(lookup) || (
-                !translatedName.isEmpty() && !languageContext.getContextLanguage().equals("en_US") &&
-                        languageContext.get(translatedName).toLowerCase().trim().contains(lookup)
-        );
-    }
-
     public static List<Item> findFrom(Item[] items, String search, I18nContext langContext) {
-        return Stream.of(items)
-                .filter(item -> {
-                    // each item should only traverse as many helper funcs as needed
-                    // so, we return as early as we can
-                    if (isMatchingEmoji(item, search)) return true;
-                    if (isMatchingAlias(item, search)) return true;
-                    if (hasMatchingAlias(item, search)) return true;
-                    if (isMatchingItemName(item, search, langContext)) return true;
-                    return isPartialNameMatch(item, search, langContext);
-                }).toList();
+        // Matches by emoji, alias or (partial) name. A full name match is also a partial one.
+        var index = index();
+        var matches = index.search(search, langContext.getContextLanguage());
+        final List<Item> found = new ArrayList<>();
+        for (Item item : items) {
+            var id = index.idOf(item);
+            if (id != -1 && matches.get(id)) {
+                found.add(item);
+            }
+        }
 
+        return found;
     }
 
-    private static void handleAutoComplete(Item[] items, AutocompleteContext event) {
+    private static void handleAutoComplete(ItemChoices candidates, AutocompleteContext event) {
         if (event.getFocused().getName().equals("item")) {
             final String search = event.getOption("item").getAsString();
             if (search.isBlank()) {
@@ -653,44 +513,34 @@ public class ItemHelper {
                 return;
             }
 
-            final List<Item> matches = findFrom(items, search, event.getI18n());
-            final List<Command.Choice> choices = new ArrayList<>();
-            for (Item item : matches) {
-                var isEnglish = event.getI18n().getContextLanguage().equalsIgnoreCase("en_us");
-                var fullChoice = event.getI18n().get(item.getTranslatedName()) + " (" + item.getName() + ")";
-                // we fall back to english if the choice would be too long
-                // because we want to avoid confusion
-                choices.add(new Command.Choice(
-                        isEnglish || fullChoice.length() > OptionData.MAX_CHOICE_VALUE_LENGTH ? item.getName() : fullChoice,
-                        item.getName()
-                ));
-            }
-            event.replyChoices(choices);
+            final var index = index();
+            final var language = event.getI18n().getContextLanguage();
+            event.replyChoices(candidates.choices(index, index.search(search, language), language));
         }
     }
 
     public static void autoCompleteCastable(AutocompleteContext event) {
-        handleAutoComplete(getCastableItems(), event);
+        handleAutoComplete(castableChoices, event);
     }
 
     public static void autoCompleteEquipable(AutocompleteContext event) {
-        handleAutoComplete(getEquipableItems(), event);
+        handleAutoComplete(equipableChoices, event);
     }
 
     public static void autoCompleteRepairable(AutocompleteContext event) {
-        handleAutoComplete(getBrokenItems(), event);
+        handleAutoComplete(repairableChoices, event);
     }
 
     public static void autoCompleteSalvageable(AutocompleteContext event) {
-        handleAutoComplete(getSalvageableItems(), event);
+        handleAutoComplete(salvageableChoices, event);
     }
 
     public static void autoCompleteUsable(AutocompleteContext event) {
-        handleAutoComplete(getUsableItems() ,event);
+        handleAutoComplete(usableChoices, event);
     }
 
     public static void autoCompletePetFood(AutocompleteContext event) {
-        handleAutoComplete(getPetFoodItems(), event);
+        handleAutoComplete(petFoodChoices, event);
     }
 
     public static Item[] getEquipableItems() {
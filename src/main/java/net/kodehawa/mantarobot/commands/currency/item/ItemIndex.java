@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.currency.item;
+
+import net.kodehawa.mantarobot.data.I18n;
+import net.kodehawa.mantarobot.utils.LanguageKeyNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable lookup tables over {@link ItemReference#ALL}, so {@link ItemHelper} doesn't have to walk every item
+ * on each lookup. All of them resolve to item ids (indexes on ALL), and when more than one item matches a key,
+ * the lowest id wins, same as the old linear scans did.
+ * Name lookups are per language and built the first time a language is used.
+ */
+final class ItemIndex {
+    private static final int[] NONE = new int[0];
+
+    private final Item[] items;
+    private final Map<Item, Integer> ids;
+    private final Map<String, int[]> emojis;
+    private final Map<String, int[]> aliases;
+    private final Map<String, int[]> aliasLists;
+    private final Map<String, Item> slices;
+    private final Map<String, Names> names = new ConcurrentHashMap<>();
+
+    ItemIndex(Item[] items) {
+        this.items = items;
+
+        var ids = new IdentityHashMap<Item, Integer>(items.length * 2);
+        var emojis = new HashMap<String, List<Integer>>();
+        var aliases = new HashMap<String, List<Integer>>();
+        var aliasLists = new HashMap<String, List<Integer>>();
+        var slices = new HashMap<String, Item>();
+
+        for (int id = 0; id < items.length; id++) {
+            var item = items[id];
+            ids.putIfAbsent(item, id);
+            emojis.computeIfAbsent(item.getEmoji(), k -> new ArrayList<>()).add(id);
+            if (item.getAlias() != null) {
+                aliases.computeIfAbsent(item.getAlias().toLowerCase().trim(), k -> new ArrayList<>()).add(id);
+            }
+
+            for (var alias : item.getAliases()) {
+                var list = aliasLists.computeIfAbsent(alias, k -> new ArrayList<>());
+                // An item could register the same alias twice.
+                if (list.isEmpty() || list.get(list.size() - 1) != id) {
+                    list.add(id);
+                }
+            }
+
+            var translatedName = item.getTranslatedName();
+            if (translatedName.startsWith("items.")) {
+                slices.putIfAbsent(translatedName.substring("items.".length()), item);
+            }
+        }
+
+        this.ids = Collections.unmodifiableMap(ids);
+        this.emojis = toArrays(emojis);
+        this.aliases = toArrays(aliases);
+        this.aliasLists = toArrays(aliasLists);
+        this.slices = Map.copyOf(slices);
+    }
+
+    int idOf(Item item) {
+        return ids.getOrDefault(item, -1);
+    }
+
+    Item byTranslationSlice(String slice) {
+        return slices.get(slice);
+    }
+
+    int[] byEmoji(String emoji) {
+        return emojis.getOrDefault(emoji.replace("\ufe0f", ""), NONE);
+    }
+
+    int[] byAlias(String alias) {
+        return aliases.getOrDefault(alias.toLowerCase().trim(), NONE);
+    }
+
+    int[] byAliasList(String alias) {
+        return aliasLists.getOrDefault(alias.toLowerCase().trim(), NONE);
+    }
+
+    Item first(int[] ids) {
+        return ids.length == 0 ? null : items[ids[0]];
+    }
+
+    Item get(int id) {
+        return id < 0 ? null : items[id];
+    }
+
+    /**
+     * @param language The language the lookup is done on. On anything but en_US, translated names match too.
+     * @return The name lookups for that language.
+     */
+    Names names(String language) {
+        return names.computeIfAbsent(language, lang -> new Names(items, lang));
+    }
+
+    /**
+     * Every match of a loose lookup over all items, the same a matching emoji, alias or (partial) name would give.
+     *
+     * @param search The search string.
+     * @param language The language to match names on.
+     * @return A set of the ids of all matching items.
+     */
+    BitSet search(String search, String language) {
+        var matches = names(language).containing(search);
+        for (var id : byEmoji(search)) {
+            matches.set(id);
+        }
+
+        for (var id : byAlias(search)) {
+            matches.set(id);
+        }
+
+        for (var id : byAliasList(search)) {
+            matches.set(id);
+        }
+
+        return matches;
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> map) {
+        var result = new HashMap<String, int[]>(map.size() * 2);
+        map.forEach((key, value) -> result.put(key, value.stream().mapToInt(Integer::intValue).toArray()));
+        return Map.copyOf(result);
+    }
+
+    /**
+     * Item names of a language, lowercased and trimmed. Full names are on a hash map, and partial matching works
+     * over a sorted table of the suffixes of every name, so a substring match is a prefix search over the table.
+     */
+    static final class Names {
+        private final int itemCount;
+        private final Map<String, Integer> exact = new HashMap<>();
+        // Parallel arrays: the name each suffix belongs to, the item that name is for and where the suffix starts.
+        private final String[] nameTable;
+        private final int[] owners;
+        private final int[] suffixName;
+        private final int[] suffixStart;
+
+        private Names(Item[] items, String language) {
+            this.itemCount = items.length;
+            var isEnglish = language.equals("en_US");
+            var i18n = isEnglish ? null : I18n.getForLanguage(language);
+
+            List<String> nameList = new ArrayList<>();
+            List<Integer> ownerList = new ArrayList<>();
+            for (int id = 0; id < items.length; id++) {
+                var item = items[id];
+                addName(item.getName().toLowerCase().trim(), id, nameList, ownerList);
+
+                var translatedName = item.getTranslatedName();
+                if (i18n != null && !translatedName.isEmpty()) {
+                    try {
+                        addName(i18n.get(translatedName).toLowerCase().trim(), id, nameList, ownerList);
+                    } catch (LanguageKeyNotFoundException ignored) { }
+                }
+            }
+
+            this.nameTable = nameList.toArray(String[]::new);
+            this.owners = ownerList.stream().mapToInt(Integer::intValue).toArray();
+
+            var suffixCount = 0;
+            for (var name : nameTable) {
+                suffixCount += name.length();
+            }
+
+            var order = new Integer[suffixCount];
+            var names = new int[suffixCount];
+            var starts = new int[suffixCount];
+            var index = 0;
+            for (int n = 0; n < nameTable.length; n++) {
+                for (int start = 0; start < nameTable[n].length(); start++) {
+                    names[index] = n;
+                    starts[index] = start;
+                    order[index] = index;
+                    index++;
+                }
+            }
+
+            Arrays.sort(order, (a, b) -> compareSuffixes(
+                    nameTable[names[a]], starts[a], nameTable[names[b]], starts[b]
+            ));
+
+            this.suffixName = new int[suffixCount];
+            this.suffixStart = new int[suffixCount];
+            for (int i = 0; i < suffixCount; i++) {
+                suffixName[i] = names[order[i]];
+                suffixStart[i] = starts[order[i]];
+            }
+        }
+
+        private void addName(String name, int id, List<String> nameList, List<Integer> ownerList) {
+            exact.merge(name, id, Math::min);
+            nameList.add(name);
+            ownerList.add(id);
+        }
+
+        /**
+         * @param name The name to look for.
+         * @return The id of the first item with this exact name (case-insensitive), or -1.
+         */
+        int matching(String name) {
+            return exact.getOrDefault(name.toLowerCase().trim(), -1);
+        }
+
+        /**
+         * @param name The partial name to look for.
+         * @return The id of the first item which name contains this (case-insensitive), or -1.
+         */
+        int firstContaining(String name) {
+            var lookup = name.toLowerCase().trim();
+            if (lookup.isEmpty()) {
+                return itemCount == 0 ? -1 : 0;
+            }
+
+            var first = -1;
+            for (int i = lowerBound(lookup); i < suffixName.length && startsWith(i, lookup); i++) {
+                var owner = owners[suffixName[i]];
+                if (first == -1 || owner < first) {
+                    first = owner;
+                }
+            }
+
+            return first;
+        }
+
+        /**
+         * @param name The partial name to look for.
+         * @return The ids of all items which name contains this (case-insensitive).
+         */
+        BitSet containing(String name) {
+            var lookup = name.toLowerCase().trim();
+            var matches = new BitSet(itemCount);
+            if (lookup.isEmpty()) {
+                matches.set(0, itemCount);
+                return matches;
+            }
+
+            for (int i = lowerBound(lookup); i < suffixName.length && startsWith(i, lookup); i++) {
+                matches.set(owners[suffixName[i]]);
+            }
+
+            return matches;
+        }
+
+        private boolean startsWith(int suffix, String lookup) {
+            return nameTable[suffixName[suffix]].startsWith(lookup, suffixStart[suffix]);
+        }
+
+        // First suffix that isn't smaller than the lookup.
+        private int lowerBound(String lookup) {
+            int low = 0;
+            int high = suffixName.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareSuffixes(nameTable[suffixName[mid]], suffixStart[mid], lookup, 0) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        private static int compareSuffixes(String a, int startA, String b, int startB) {
+            int lengthA = a.length() - startA;
+            int lengthB = b.length() - startB;
+            int length = Math.min(lengthA, lengthB);
+            for (int i = 0; i < length; i++) {
+                char ca = a.charAt(startA + i);
+                char cb = b.charAt(startB + i);
+                if (ca != cb) {
+                    return ca - cb;
+                }
+            }
+
+            return lengthA - lengthB;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.currency.item;
+
+import net.kodehawa.mantarobot.commands.currency.item.special.helpers.attributes.Tiered;
+import net.kodehawa.mantarobot.utils.commands.AliasTable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * The drops of a loot crate type. Tables are built once, and sampling a drop is constant time.
+ * <p>
+ * High tier and expensive items only make it into a given crate some of the time (see {@link #chanceFor(Item, boolean)}).
+ * That's rolled once per crate, and then drops are picked from the full table, re-rolling any item that didn't make
+ * it into the crate. This gives every item the same chance it'd have on a table built from only the items
+ * that made it.
+ */
+final class LootTable {
+    private static final LootTable EMPTY = new LootTable(List.of());
+    private static final Map<ItemType.LootboxType, LootTable> TABLES = buildTables();
+
+    private final Item[] items;
+    // Chance for each entry to make it into a crate, 1 for always.
+    private final float[] chances;
+    private final double[] weights;
+    private final boolean[] always;
+    private final double alwaysWeight;
+    private final AliasTable<Item> table;
+
+    private LootTable(List<Entry> entries) {
+        var size = entries.size();
+        this.items = new Item[size];
+        this.chances = new float[size];
+        this.weights = new double[size];
+        this.always = new boolean[size];
+        var alwaysWeight = 0D;
+        for (int i = 0; i < size; i++) {
+            var entry = entries.get(i);
+            items[i] = entry.item();
+            chances[i] = entry.chance();
+            weights[i] = entry.weight();
+            always[i] = entry.chance() >= 1;
+            if (always[i]) {
+                alwaysWeight += entry.weight();
+            }
+        }
+
+        this.alwaysWeight = alwaysWeight;
+        this.table = size == 0 ? null : new AliasTable<>(List.of(items), weights);
+    }
+
+    static LootTable of(ItemType.LootboxType type) {
+        return TABLES.getOrDefault(type, EMPTY);
+    }
+
+    /**
+     * Picks the contents of a crate.
+     *
+     * @param amount The amount of items to pick.
+     * @param random The source of randomness.
+     * @return The picked items. Empty if no item made it into this crate.
+     */
+    List<Item> select(int amount, Random random) {
+        var included = always.clone();
+        var includedWeight = alwaysWeight;
+        for (int i = 0; i < included.length; i++) {
+            if (!included[i] && random.nextFloat() <= chances[i]) {
+                included[i] = true;
+                includedWeight += weights[i];
+            }
+        }
+
+        if (includedWeight == 0) {
+            return List.of();
+        }
+
+        List<Item> list = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            int index;
+            do {
+                index = table.nextIndex(random);
+            } while (!included[index]);
+
+            list.add(items[index]);
+        }
+
+        return list;
+    }
+
+    /**
+     * Keep in mind the chances here aren't absolute for any means, as the weight of the item on the table still applies.
+     *
+     * @param item The item.
+     * @param normal Whether this is a normal crate pool (stingier with the good stuff) or a rare one.
+     * @return The chance of the item to be on any given crate.
+     */
+    static float chanceFor(Item item, boolean normal) {
+        var tier = item instanceof Tiered tiered ? tiered.getTier() : 0;
+        if (normal) {
+            if (tier >= 5) {
+                return 0.02f; // 2% for 5* +
+            }
+
+            if (tier >= 3 || item.getValue() >= 100) {
+                return 0.05f; // 5% for 3 and 4*
+            }
+        } else {
+            if (tier >= 5) {
+                return 0.10f; // 10% for 5* +
+            }
+
+            if (tier >= 3 || item.getValue() >= 300) {
+                return 0.40f; // 40% for 3* +
+            }
+        }
+
+        return 1f;
+    }
+
+    private static Map<ItemType.LootboxType, LootTable> buildTables() {
+        Predicate<Item> common = i -> i.getItemType() == ItemType.COMMON;
+        Predicate<Item> rare = i -> i.getItemType() == ItemType.RARE;
+        Predicate<Item> premium = i -> i.getItemType() == ItemType.PREMIUM;
+
+        Predicate<Item> mine = i ->
+                (i.getItemType() == ItemType.MINE ||
+                i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                i.getItemType() == ItemType.MINE_PICK) && i != ItemReference.ROCK;
+
+        Predicate<Item> fish = i -> i.getItemType() == ItemType.FISHING || i.getItemType() == ItemType.FISHROD;
+        Predicate<Item> chop = i -> i.getItemType() == ItemType.CHOP_DROP || i.getItemType() == ItemType.CHOP_AXE;
+
+        Predicate<Item> premiumMine = i ->
+                i.getItemType() == ItemType.CAST_MINE ||
+                i.getItemType() == ItemType.MINE_PICK ||
+                i.getItemType() == ItemType.MINE ||
+                i.getItemType() == ItemType.MINE_RARE ||
+                i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                i.getItemType() == ItemType.MINE_RARE_PICK;
+
+        Predicate<Item> premiumFish = i ->
+                i.getItemType() == ItemType.FISHROD ||
+                i.getItemType() == ItemType.FISHROD_RARE ||
+                i.getItemType() == ItemType.FISHING ||
+                i.getItemType() == ItemType.FISHING_RARE;
+
+        Predicate<Item> premiumChop = i ->
+                i.getItemType() == ItemType.CHOP_DROP ||
+                i.getItemType() == ItemType.CHOP_AXE ||
+                i.getItemType() == ItemType.CHOP_RARE_AXE;
+
+        Map<ItemType.LootboxType, LootTable> tables = new EnumMap<>(ItemType.LootboxType.class);
+        tables.put(ItemType.LootboxType.PREMIUM, new Builder()
+                .add(premium, 2, false)
+                .add(rare, 5, false)
+                .add(common, 20, true)
+                .build());
+        tables.put(ItemType.LootboxType.RARE, new Builder()
+                .add(rare, 5, false)
+                .add(common, 20, true)
+                .build());
+        tables.put(ItemType.LootboxType.COMMON, new Builder().add(common, 20, true).build());
+        tables.put(ItemType.LootboxType.CHOP_PREMIUM, new Builder().add(premiumChop, 8, false).build());
+        tables.put(ItemType.LootboxType.FISH_PREMIUM, new Builder().add(premiumFish, 8, false).build());
+        tables.put(ItemType.LootboxType.MINE_PREMIUM, new Builder().add(premiumMine, 8, false).build());
+        tables.put(ItemType.LootboxType.MINE, new Builder().add(mine, 8, true).build());
+        tables.put(ItemType.LootboxType.FISH, new Builder().add(fish, 8, true).build());
+        tables.put(ItemType.LootboxType.CHOP, new Builder().add(chop, 8, true).build());
+
+        return tables;
+    }
+
+    private record Entry(Item item, double weight, float chance) { }
+
+    private static class Builder {
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Adds all items that can be bought or sold and match the filter.
+         *
+         * @param filter The filter.
+         * @param weight The weight every matching item has on the table.
+         * @param normal Whether this is a normal pool, see {@link #chanceFor(Item, boolean)}.
+         * @return This builder.
+         */
+        Builder add(Predicate<Item> filter, double weight, boolean normal) {
+            for (var item : ItemReference.ALL) {
+                if ((item.isBuyable() || item.isSellable()) && filter.test(item)) {
+                    entries.add(new Entry(item, weight, chanceFor(item, normal)));
+                }
+            }
+
+            return this;
+        }
+
+        LootTable build() {
+            return new LootTable(entries);
+        }
+    }
+}
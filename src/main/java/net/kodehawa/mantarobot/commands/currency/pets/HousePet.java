@@ -20,16 +20,17 @@ package net.kodehawa.mantarobot.commands.currency.pets;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedMongoObject;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import org.bson.codecs.pojo.annotations.BsonIgnore;
 
-import java.security.SecureRandom;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 @SuppressWarnings("unused")
 public class HousePet {
     @BsonIgnore
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
 
     private String name;
     private HousePetType type;
@@ -367,7 +368,7 @@ public class HousePet {
     }
 
     @BsonIgnore
-    public boolean handleStatIncrease(SecureRandom random) {
+    public boolean handleStatIncrease(Random random) {
         var doChance = random.nextDouble() < 0.02f; // 2%
         if (doChance) {
             // 3 in 10 chance of it being 2 instead of 1, after the initial. Guarantee at least 1, though.
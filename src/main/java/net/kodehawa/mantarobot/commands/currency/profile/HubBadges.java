@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.commands.currency.profile;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.data.MantaroData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Badges given by roles on Mantaro Hub (the support server), so profiles don't have to ask Discord for the
+ * hub member of every user they show.
+ * The node that has the hub saves who has those roles on Redis, and every node keeps a copy of that in memory.
+ * Both happen on {@link #refresh()}, which should run every few minutes.
+ */
+public class HubBadges {
+    private static final Logger log = LoggerFactory.getLogger(HubBadges.class);
+    private static final long HUB_ID = 213468583252983809L;
+    private static final String KEY = "hub-badges";
+    private static final Map<Long, Badge> roles = Map.of(
+            315910951994130432L, Badge.COMMUNITY_ADMIN, // Admin
+            290902183300431872L, Badge.DONATOR_2, // Patron
+            290257037072531466L, Badge.DONATOR_2, // Donator
+            407156441812828162L, Badge.TRANSLATOR // Translator
+    );
+
+    private static volatile Map<String, List<Badge>> badges = Map.of();
+
+    /**
+     * @param userId The id of the user.
+     * @return The badges the user gets from their hub roles, as of the last refresh.
+     */
+    public static List<Badge> of(String userId) {
+        return badges.getOrDefault(userId, List.of());
+    }
+
+    public static void refresh() {
+        try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
+            var hub = MantaroBot.getInstance().getShardManager().getGuildById(HUB_ID);
+            if (hub != null) {
+                // Loading members goes through the whole member list of the hub anyway, so do it once for every role.
+                var members = hub.findMembers(member -> badgesOf(member).findAny().isPresent()).get();
+                var saved = new HashMap<String, String>();
+                for (var member : members) {
+                    saved.put(member.getId(), badgesOf(member).map(Badge::name).distinct().collect(Collectors.joining(",")));
+                }
+
+                // Replaced whole, so people that lost their roles go away.
+                var transaction = jedis.multi();
+                transaction.del(KEY);
+                if (!saved.isEmpty()) {
+                    transaction.hset(KEY, saved);
+                }
+
+                transaction.exec();
+            }
+
+            var loaded = new HashMap<String, List<Badge>>();
+            jedis.hgetAll(KEY).forEach((id, names) -> {
+                var list = new ArrayList<Badge>();
+                for (var name : names.split(",")) {
+                    var badge = Badge.lookupFromString(name);
+                    if (badge != null) {
+                        list.add(badge);
+                    }
+                }
+
+                loaded.put(id, List.copyOf(list));
+            });
+
+            badges = Map.copyOf(loaded);
+        } catch (Exception e) {
+            log.error("Couldn't refresh hub badges", e);
+        }
+    }
+
+    private static Stream<Badge> badgesOf(Member member) {
+        return member.getRoles().stream()
+                .map(Role::getIdLong)
+                .map(roles::get)
+                .filter(Objects::nonNull);
+    }
+}
@@ -18,7 +18,6 @@
 package net.kodehawa.mantarobot.commands.currency.profile;
 
 import net.dv8tion.jda.api.entities.User;
-import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.item.Item;
 import net.kodehawa.mantarobot.commands.currency.item.ItemStack;
 import net.kodehawa.mantarobot.commands.currency.pets.HousePet;
@@ -94,18 +93,7 @@ public enum ProfileComponent {
     }),
     MARRIAGE(EmoteReference.HEART, i18nContext -> i18nContext.get("commands.profile.married"), (holder, i18nContext) -> {
         var userData = holder.dbUser();
-        var currentMarriage = holder.marriage();
-        User marriedTo = null;
-
-        //Expecting save to work in PlayerCmds, not here, just handle this here.
-        if (currentMarriage != null) {
-            String marriedToId = currentMarriage.getOtherPlayer(holder.user().getId());
-            if (marriedToId != null)
-                //Yes, this uses complete, not like we have many options.
-                try {
-                    marriedTo = MantaroBot.getInstance().getShardManager().retrieveUserById(marriedToId).complete();
-                } catch (Exception ignored) { }
-        }
+        var marriedTo = holder.marriedTo();
 
         if (marriedTo == null) {
             return i18nContext.get("commands.profile.nobody");
@@ -242,5 +230,5 @@ public enum ProfileComponent {
         return this.inline;
     }
 
-    public record Holder(User user, Player player, MongoUser dbUser, Marriage marriage, List<Badge> badges) { }
+    public record Holder(User user, Player player, MongoUser dbUser, Marriage marriage, User marriedTo, List<Badge> badges) { }
 }
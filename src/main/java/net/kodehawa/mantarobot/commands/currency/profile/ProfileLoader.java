@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.commands.currency.profile;
+
+import net.dv8tion.jda.api.entities.User;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.entities.Marriage;
+import net.kodehawa.mantarobot.db.entities.MongoUser;
+import net.kodehawa.mantarobot.db.entities.Player;
+import net.kodehawa.mantarobot.db.entities.PlayerStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loads everything a profile shows. Loads that don't depend on each other run at the same time, so a profile takes
+ * about as long as its slowest chain of loads (user, then marriage, then who they're married to) instead of all of
+ * them one after the other.
+ */
+public class ProfileLoader {
+    public static Profile load(User user) {
+        var db = MantaroData.db();
+        // The same pool commands run on, so it keeps up with however many profiles are being loaded at once.
+        var executor = MantaroBot.getInstance().getCore().getThreadPool();
+        var id = user.getId();
+
+        var player = CompletableFuture.supplyAsync(() -> db.getPlayer(id), executor);
+        var stats = CompletableFuture.supplyAsync(() -> db.getPlayerStats(id), executor);
+        var dbUser = CompletableFuture.supplyAsync(() -> db.getUser(id), executor);
+        // Premium checks can go as far as asking Patreon, so they go on their own.
+        var premium = dbUser.thenApplyAsync(MongoUser::isPremium, executor);
+        var marriage = dbUser.thenApplyAsync(u -> db.getMarriage(u.getMarriageId()), executor);
+        var marriedTo = marriage.thenCompose(m -> {
+            var other = m == null ? null : m.getOtherPlayer(id);
+            if (other == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return MantaroBot.getInstance().getShardManager().retrieveUserById(other)
+                    .submit()
+                    .exceptionally(e -> null);
+        });
+
+        return new Profile(join(player), join(stats), join(dbUser), join(marriage), join(marriedTo), join(premium));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * @param marriedTo Who the user is married to, or null if they aren't married, or Discord doesn't know them.
+     * @param premium Whether the user is premium.
+     */
+    public record Profile(Player player, PlayerStats stats, MongoUser dbUser, Marriage marriage, User marriedTo, boolean premium) { }
+}
@@ -25,6 +25,7 @@ import net.kodehawa.mantarobot.commands.game.core.Game;
 import net.kodehawa.mantarobot.commands.game.core.lobby.GameLobby;
 import net.kodehawa.mantarobot.core.listeners.operations.ButtonOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.core.ButtonOperation;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.Snow64;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
@@ -34,19 +35,19 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 public class Trivia extends Game<String> {
     private static final Logger log = LoggerFactory.getLogger("Game [Trivia]");
     private static final String OTDB_URL = "https://opentdb.com/api.php?amount=1&encode=base64";
-    private static final SecureRandom random = new SecureRandom();
+    private static final Random random = GameRandom.get();
     private final TriviaDifficulty difficulty;
     private final List<Button> buttons = new ArrayList<>();
     private String answerRaw;
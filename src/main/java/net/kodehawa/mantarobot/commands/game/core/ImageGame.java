@@ -27,11 +27,7 @@ import java.awt.Color;
 import java.util.function.Consumer;
 
 public abstract class ImageGame extends Game<String> {
-    private final URLCache cache;
-
-    public ImageGame(int cacheSize) {
-        cache = new URLCache(cacheSize);
-    }
+    private final URLCache cache = URLCache.DEFAULT;
 
     protected void sendEmbedImage(SlashContext ctx, String url, Consumer<EmbedBuilder> embedConfigurator) {
         var eb = new EmbedBuilder();
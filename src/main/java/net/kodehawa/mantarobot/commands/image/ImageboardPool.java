@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.kodehawa.lib.imageboards.ImageBoard;
+import net.kodehawa.lib.imageboards.entities.BoardImage;
+import net.kodehawa.lib.imageboards.entities.Rating;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the images of the last page fetched for each search around, so a search done again is answered from
+ * what's left of that page instead of fetching it again. Every image is served once. Random searches are fetched
+ * again in the background when they're running low; tag searches always get the same page back, so they're only
+ * fetched again once every image on it has been served, and then start over. Searches waiting on a fetch share it.
+ * The pool only holds images that passed the global filter: per-guild blacklists are applied when serving.
+ */
+class ImageboardPool {
+    // Refill once a pool is down to this many images, or a quarter of its page if that's less. Only for fetchers
+    // that bring new images every time, see Fetcher#repeats.
+    private static final int LOW_WATER = 10;
+    // How many served images a pool remembers, so refills of the same page don't bring them back.
+    private static final int SEEN_LIMIT = 1000;
+
+    private final Predicate<BoardImage> filter;
+    private final Cache<Key, Pool> pools = CacheBuilder.newBuilder()
+            // After this, the next search fetches again, so new posts show up.
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    /**
+     * @param filter Images that fail this never make it into a pool.
+     */
+    ImageboardPool(Predicate<BoardImage> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Picks an image for a search, fetching it if needed.
+     *
+     * @param board The board searched on. Only used as part of the key, as the fetcher does the actual searching.
+     * @param fetcher How to search on it.
+     * @param tags The tags searched for. Tag order and case don't matter.
+     * @param rating The rating searched for, or null for boards that don't use ratings.
+     * @param blacklisted Tags the image must not have.
+     * @param random The source of randomness used to pick an image.
+     * @param callback Gets the result, either right away or once the fetch is done.
+     */
+    void take(Object board, Fetcher fetcher, List<String> tags, Rating rating, Set<String> blacklisted,
+              Random random, Consumer<Pick> callback) {
+        var key = new Key(board, normalize(tags), rating);
+        Pool pool;
+        try {
+            pool = pools.get(key, () -> new Pool(key, fetcher));
+        } catch (ExecutionException e) {
+            // Can't happen, creating a pool doesn't throw.
+            throw new IllegalStateException(e);
+        }
+
+        pool.take(blacklisted, random, callback);
+    }
+
+    static List<String> normalize(List<String> tags) {
+        return tags.stream()
+                .map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+                .filter(tag -> !tag.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Does the actual search, as some boards search for random images with a different call.
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        void fetch(List<String> tags, Rating rating, Consumer<List<? extends BoardImage>> success, Consumer<Throwable> failure);
+
+        /**
+         * @return Whether fetching again brings back the same page, like a tag search does. Pools for those aren't
+         *         refilled until they're empty, as an early refill wouldn't bring anything new.
+         */
+        default boolean repeats() {
+            return false;
+        }
+
+        static Fetcher tags(ImageBoard<?> board) {
+            return new Fetcher() {
+                @Override
+                public void fetch(List<String> tags, Rating rating, Consumer<List<? extends BoardImage>> success, Consumer<Throwable> failure) {
+                    board.search(tags, rating).async(success::accept, failure);
+                }
+
+                @Override
+                public boolean repeats() {
+                    return true;
+                }
+            };
+        }
+
+        static Fetcher random(ImageBoard<?> board) {
+            return (tags, rating, success, failure) -> board.search(rating).async(success::accept, failure);
+        }
+    }
+
+    enum Status {
+        // Got an image.
+        FOUND,
+        // The search had results, but all of them were filtered out.
+        NO_IMAGES,
+        // Every image left has one of the guild's blacklisted tags.
+        BLACKLISTED,
+        // The board answered with nothing at all.
+        NULL_RESPONSE,
+        FAILED
+    }
+
+    record Pick(Status status, BoardImage image, Throwable error) {
+        static Pick of(Status status) {
+            return new Pick(status, null, null);
+        }
+    }
+
+    private record Key(Object board, List<String> tags, Rating rating) { }
+
+    private record Waiter(Set<String> blacklisted, Random random, Consumer<Pick> callback) { }
+
+    private class Pool {
+        private final Key key;
+        private final Fetcher fetcher;
+        private final List<BoardImage> images = new ArrayList<>();
+        private final Set<String> urls = new HashSet<>();
+        private final Set<String> seen = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SEEN_LIMIT;
+            }
+        });
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean fetching;
+        private int pageSize;
+
+        private Pool(Key key, Fetcher fetcher) {
+            this.key = key;
+            this.fetcher = fetcher;
+        }
+
+        private void take(Set<String> blacklisted, Random random, Consumer<Pick> callback) {
+            Pick pick = null;
+            var fetch = false;
+            synchronized (this) {
+                if (images.isEmpty()) {
+                    waiters.add(new Waiter(blacklisted, random, callback));
+                } else {
+                    pick = pick(blacklisted, random);
+                }
+
+                var lowWater = fetcher.repeats() ? 0 : Math.min(LOW_WATER, pageSize / 4);
+                if (!fetching && images.size() <= lowWater) {
+                    fetching = true;
+                    fetch = true;
+                }
+            }
+
+            if (pick != null) {
+                callback.accept(pick);
+            }
+
+            if (fetch) {
+                fetch();
+            }
+        }
+
+        private void fetch() {
+            try {
+                fetcher.fetch(key.tags(), key.rating(), this::fetched, this::failed);
+            } catch (Exception e) {
+                failed(e);
+            }
+        }
+
+        private void fetched(List<? extends BoardImage> fetched) {
+            var served = new ArrayList<Runnable>();
+            synchronized (this) {
+                fetching = false;
+                if (fetched == null) {
+                    drain(served, Pick.of(Status.NULL_RESPONSE));
+                } else {
+                    pageSize = fetched.size();
+                    add(fetched);
+                    if (images.isEmpty() && !seen.isEmpty()) {
+                        // Everything on the page was served already, so start over instead of coming up empty.
+                        seen.clear();
+                        add(fetched);
+                    }
+
+                    if (images.isEmpty()) {
+                        drain(served, Pick.of(Status.NO_IMAGES));
+                    } else {
+                        for (var waiter : waiters) {
+                            var pick = images.isEmpty() ? Pick.of(Status.NO_IMAGES) : pick(waiter.blacklisted(), waiter.random());
+                            served.add(() -> waiter.callback().accept(pick));
+                        }
+
+                        waiters.clear();
+                    }
+                }
+            }
+
+            served.forEach(Runnable::run);
+        }
+
+        // Must hold the lock. The same page comes back on refills, so skip what's still here or was served already.
+        private void add(List<? extends BoardImage> fetched) {
+            for (var image : fetched) {
+                if (filter.test(image) && !seen.contains(image.getURL()) && urls.add(image.getURL())) {
+                    images.add(image);
+                }
+            }
+        }
+
+        private void failed(Throwable error) {
+            var served = new ArrayList<Runnable>();
+            synchronized (this) {
+                fetching = false;
+                drain(served, new Pick(Status.FAILED, null, error));
+            }
+
+            served.forEach(Runnable::run);
+        }
+
+        private void drain(List<Runnable> served, Pick pick) {
+            for (var waiter : waiters) {
+                served.add(() -> waiter.callback().accept(pick));
+            }
+
+            waiters.clear();
+        }
+
+        // Must hold the lock. Takes a random image without any blacklisted tag out of the pool.
+        private Pick pick(Set<String> blacklisted, Random random) {
+            var candidates = images.size();
+            var allowed = new int[candidates];
+            var count = 0;
+            for (int i = 0; i < candidates; i++) {
+                if (blacklisted.isEmpty() || images.get(i).getTags().stream().noneMatch(blacklisted::contains)) {
+                    allowed[count++] = i;
+                }
+            }
+
+            if (count == 0) {
+                return Pick.of(Status.BLACKLISTED);
+            }
+
+            var index = allowed[random.nextInt(count)];
+            var last = images.remove(images.size() - 1);
+            var image = index == images.size() ? last : images.set(index, last);
+            urls.remove(image.getURL());
+            seen.add(image.getURL());
+            return new Pick(Status.FOUND, image, null);
+        }
+    }
+}
@@ -40,11 +40,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 public class ImageboardUtils {
     private static final Random r = new Random();
+    // Searches are answered from the last page fetched for them, see ImageboardPool.
+    private static final ImageboardPool pool = new ImageboardPool(ImageboardUtils::isServable);
     private static final Map<ImageBoard<?>, Integer> maxQuerySize = ImmutableMap.of(
             DefaultImageBoards.KONACHAN, 5,
             DefaultImageBoards.YANDERE, 5,
@@ -106,66 +106,37 @@ public class ImageboardUtils {
             return;
         }
 
+        var fetcher = type == ImageRequestType.TAGS ? ImageboardPool.Fetcher.tags(api) : ImageboardPool.Fetcher.random(api);
+        var errorKey = type == ImageRequestType.TAGS ? "commands.imageboard.error_tag" : "commands.imageboard.error_random";
         try {
-            if (type == ImageRequestType.TAGS) {
-                api.search(list, ratingEnum).async(
-                        requestedImages -> sendImage0(ctx, requestedImages, imageboard, blackListedImageTags),
-                        failure -> ctx.sendLocalized("commands.imageboard.error_tag", EmoteReference.ERROR)
-                );
-            } else if (type == ImageRequestType.RANDOM) {
-                api.search(ratingEnum).async(
-                        requestedImages -> sendImage0(ctx, requestedImages, imageboard, blackListedImageTags),
-                        failure -> ctx.sendLocalized("commands.imageboard.error_random", EmoteReference.ERROR)
-                );
-            }
+            pool.take(api, fetcher, list, ratingEnum, blackListedImageTags, r, pick -> {
+                switch (pick.status()) {
+                    case FOUND -> sendImage(ctx, imageboard, pick.image(), dbGuild);
+                    case NO_IMAGES -> ctx.reply("commands.imageboard.no_images", EmoteReference.SAD);
+                    case BLACKLISTED -> ctx.reply("commands.imageboard.blacklisted_tag", EmoteReference.ERROR);
+                    case NULL_RESPONSE -> ctx.reply("commands.imageboard.null_image_notice", EmoteReference.ERROR);
+                    case FAILED -> ctx.sendLocalized(errorKey, EmoteReference.ERROR);
+                }
+            });
         } catch (Exception e) {
             e.printStackTrace();
             ctx.reply("commands.imageboard.error_general", EmoteReference.ERROR);
         }
     }
 
-    private static <T extends BoardImage> void sendImage0(SlashContext ctx, List<T> images, String imageboard, Set<String> blacklisted) {
-        var filter = filterImages(images, ctx);
-        if (filter == null) {
-            return;
-        }
-
-        final var image = filter.get(r.nextInt(filter.size()));
-        if (image.getTags().stream().anyMatch(blacklisted::contains)) {
-            ctx.reply("commands.imageboard.blacklisted_tag", EmoteReference.ERROR);
-            return;
-        }
-
-        sendImage(ctx, imageboard, image, ctx.getDBGuild());
-    }
-
-    private static <T extends BoardImage> List<T> filterImages(List<T> images, SlashContext ctx) {
-        if (images == null) {
-            ctx.reply("commands.imageboard.null_image_notice", EmoteReference.ERROR);
-            return null;
-        }
-
-        final var filter = images.stream()
-                // This is a pain and a half.
-                .filter(img -> !img.isPending())
+    private static boolean isServable(BoardImage img) {
+        // This is a pain and a half.
+        return !img.isPending()
                 // Somehow Danbooru and e621 are returning null images when a image is deleted?
-                .filter(img -> img.getURL() != null)
+                && img.getURL() != null
                 // There should be no need for searches to contain loli content anyway, if it's gonna get locked away.
                 // This is more of a quality-of-life improvement, don't make them search again if random happened
                 // to pick undesirable lewd content.
                 // This also gets away with the need to re-roll, unless they looked up a prohibited tag.
-                .filter(img -> !containsExcludedTags(img.getTags()))
+                && !containsExcludedTags(img.getTags())
                 // Safe images can have undesirable tags too
                 // Say, stuff that isn't so safe.
-                .filter(img -> img.getRating() != Rating.SAFE || !containsSafeExcludedTags(img.getTags()))
-                .collect(Collectors.toList());
-
-        if (filter.isEmpty()) {
-            ctx.reply("commands.imageboard.no_images", EmoteReference.SAD);
-            return null;
-        }
-
-        return filter;
+                && (img.getRating() != Rating.SAFE || !containsSafeExcludedTags(img.getTags()));
     }
 
     private static void sendImage(SlashContext ctx, String imageboard, BoardImage image, MongoGuild dbGuild) {
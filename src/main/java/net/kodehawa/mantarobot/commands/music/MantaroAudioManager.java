@@ -30,6 +30,7 @@ import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.concrete.StageChannel;
 import net.kodehawa.mantarobot.commands.music.requester.AudioLoader;
+import net.kodehawa.mantarobot.commands.music.requester.TrackCache;
 import net.kodehawa.mantarobot.commands.music.utils.AudioCmdUtils;
 import net.kodehawa.mantarobot.core.command.slash.SlashContext;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
@@ -52,10 +53,12 @@ public class MantaroAudioManager {
 
     private final Map<String, GuildMusicManager> musicManagers;
     private final AudioPlayerManager playerManager;
+    private final TrackCache trackCache;
 
     public MantaroAudioManager() {
         this.musicManagers = new ConcurrentHashMap<>();
         this.playerManager = new DefaultAudioPlayerManager();
+        this.trackCache = new TrackCache(playerManager);
 
         Config config = MantaroData.config().get();
         if (config.musicEnable()) {
@@ -107,7 +110,7 @@ public class MantaroAudioManager {
                 }
 
                 var loader = new AudioLoader(musicManager, ctx, skipSelection, addFirst);
-                playerManager.loadItemOrdered(musicManager, trackUrl, loader);
+                trackCache.load(musicManager, trackUrl, loader);
             }
         }, LOAD_EXECUTOR.get());
     }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music;
+
+import lavalink.client.io.LavalinkLoadBalancer;
+import lavalink.client.io.LavalinkSocket;
+import lavalink.client.io.LessAnnoyingLavalinkSocket;
+import lavalink.client.io.Link;
+import lavalink.client.io.PenaltyProvider;
+import lavalink.client.io.jda.JdaLavalink;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads music across Lavalink nodes by load. As a {@link PenaltyProvider}, it adds what the stock penalties miss
+ * (see {@link NodeLoad#extraPenalty(long)}) when a new link picks a node. Every time {@link #rebalance()} runs,
+ * it exports the load of every node and moves links off nodes that are degraded or a lot busier than the rest.
+ * Lavalink-Client already moves links off nodes that disconnect, so those aren't handled here.
+ */
+public class NodeBalancer implements PenaltyProvider {
+    private static final Logger log = LoggerFactory.getLogger(NodeBalancer.class);
+    // A node isn't considered overloaded under this penalty, no matter how idle the others are.
+    static final int OVERLOAD_PENALTY = 250;
+    // Links only move if the busiest node is at least this much busier than the least busy one.
+    static final int IMBALANCE_MARGIN = 100;
+    // Moving a link makes it skip for a moment, so don't move a lot of them at once.
+    static final int MAX_MOVES_PER_RUN = 10;
+
+    private final JdaLavalink lavalink;
+
+    public NodeBalancer(JdaLavalink lavalink) {
+        this.lavalink = lavalink;
+    }
+
+    @Override
+    public int getPenalty(LavalinkLoadBalancer.Penalties penalties) {
+        return loadOf(penalties.getSocket()).extraPenalty(System.currentTimeMillis());
+    }
+
+    /**
+     * Exports node metrics and moves links around if needed. Meant to run every minute, which is how often nodes
+     * send their stats: moved links only show up on the node penalties once they do.
+     */
+    public void rebalance() {
+        try {
+            var now = System.currentTimeMillis();
+            var playing = new HashMap<String, List<Long>>();
+            var idle = new HashMap<String, List<Long>>();
+            for (var link : lavalink.getLinks()) {
+                var node = link.getNode(false);
+                if (node == null || link.getState() != Link.State.CONNECTED) {
+                    continue;
+                }
+
+                var target = link.getPlayer().getPlayingTrack() != null ? playing : idle;
+                target.computeIfAbsent(node.getName(), k -> new ArrayList<>()).add(link.getGuildIdLong());
+            }
+
+            var sockets = new HashMap<String, LavalinkSocket>();
+            var nodes = new ArrayList<Node>();
+            for (var socket : lavalink.getNodes()) {
+                var name = socket.getName();
+                var load = loadOf(socket);
+                var nodePlaying = playing.getOrDefault(name, List.of());
+                var nodeIdle = idle.getOrDefault(name, List.of());
+                export(name, load, now, nodePlaying.size() + nodeIdle.size());
+
+                if (socket.isAvailable()) {
+                    sockets.put(name, socket);
+                    nodes.add(new Node(name, load.isDegraded(now), load.penalty(now), nodePlaying, nodeIdle));
+                }
+            }
+
+            for (var move : plan(nodes, MAX_MOVES_PER_RUN)) {
+                var link = lavalink.getExistingLink(String.valueOf(move.guildId()));
+                var target = sockets.get(move.to());
+                if (link == null || target == null) {
+                    continue;
+                }
+
+                log.info("Moving link of guild {} from node {} to {} ({})", move.guildId(), move.from(), move.to(), move.reason());
+                link.changeNode(target);
+                Metrics.LAVALINK_LINK_MOVES.labels(move.reason()).inc();
+            }
+        } catch (Exception e) {
+            log.error("Error while balancing Lavalink nodes", e);
+        }
+    }
+
+    /**
+     * Decides which links to move. Links on degraded nodes go first, to whatever node is least busy at the moment.
+     * Then, while the busiest node is overloaded and busier than the least busy one by more than
+     * {@link #IMBALANCE_MARGIN}, playing links move from one to the other. Node penalties are only refreshed
+     * every minute, so every move is assumed to take its share of the penalty (the node penalty split evenly
+     * across its playing links) along with it.
+     *
+     * @param nodes The nodes links can be on.
+     * @param maxMoves The maximum amount of links to move.
+     * @return The links to move, in order.
+     */
+    static List<Move> plan(List<Node> nodes, int maxMoves) {
+        var moves = new ArrayList<Move>();
+        var healthy = nodes.stream().filter(node -> !node.degraded()).toList();
+        if (healthy.isEmpty()) {
+            return moves;
+        }
+
+        Map<String, Double> estimates = new HashMap<>();
+        for (var node : healthy) {
+            estimates.put(node.name(), (double) node.penalty());
+        }
+
+        Comparator<Node> byEstimate = Comparator.comparingDouble(node -> estimates.get(node.name()));
+        for (var node : nodes) {
+            if (!node.degraded()) {
+                continue;
+            }
+
+            var links = new ArrayList<>(node.playing());
+            links.addAll(node.idle());
+            for (var i = 0; i < links.size(); i++) {
+                if (moves.size() >= maxMoves) {
+                    return moves;
+                }
+
+                var target = healthy.stream().min(byEstimate).orElseThrow();
+                moves.add(new Move(links.get(i), node.name(), target.name(), "degraded"));
+                if (i < node.playing().size()) {
+                    estimates.merge(target.name(), target.linkCost(), Double::sum);
+                }
+            }
+        }
+
+        var movable = new HashMap<String, ArrayDeque<Long>>();
+        for (var node : healthy) {
+            movable.put(node.name(), new ArrayDeque<>(node.playing()));
+        }
+
+        while (moves.size() < maxMoves) {
+            var busiest = healthy.stream()
+                    .filter(node -> !movable.get(node.name()).isEmpty())
+                    .max(byEstimate);
+            var leastBusy = healthy.stream().min(byEstimate).orElseThrow();
+            if (busiest.isEmpty() || busiest.get() == leastBusy) {
+                break;
+            }
+
+            var source = busiest.get();
+            var sourcePenalty = estimates.get(source.name());
+            var targetPenalty = estimates.get(leastBusy.name());
+            var cost = source.linkCost();
+            // Stop once moving another link would just make the other node the busiest one.
+            if (sourcePenalty < OVERLOAD_PENALTY || sourcePenalty - targetPenalty <= IMBALANCE_MARGIN
+                    || sourcePenalty - cost < targetPenalty + cost) {
+                break;
+            }
+
+            var guildId = movable.get(source.name()).poll();
+            moves.add(new Move(guildId, source.name(), leastBusy.name(), "overloaded"));
+            estimates.put(source.name(), sourcePenalty - cost);
+            estimates.put(leastBusy.name(), targetPenalty + cost);
+        }
+
+        return moves;
+    }
+
+    private static NodeLoad loadOf(LavalinkSocket socket) {
+        return socket instanceof LessAnnoyingLavalinkSocket node ? node.getLoad() : NodeLoad.UNKNOWN;
+    }
+
+    private static void export(String name, NodeLoad load, long now, int links) {
+        Metrics.LAVALINK_NODE_PLAYERS.labels(name, "all").set(load.players());
+        Metrics.LAVALINK_NODE_PLAYERS.labels(name, "playing").set(load.playingPlayers());
+        Metrics.LAVALINK_NODE_CPU.labels(name, "system").set(load.systemLoad());
+        Metrics.LAVALINK_NODE_CPU.labels(name, "lavalink").set(load.lavalinkLoad());
+        Metrics.LAVALINK_NODE_FRAMES.labels(name, "sent").set(load.framesSent());
+        Metrics.LAVALINK_NODE_FRAMES.labels(name, "nulled").set(load.framesNulled());
+        Metrics.LAVALINK_NODE_FRAMES.labels(name, "deficit").set(load.framesDeficit());
+        Metrics.LAVALINK_NODE_PENALTY.labels(name).set(load.penalty(now));
+        Metrics.LAVALINK_NODE_LINKS.labels(name).set(links);
+    }
+
+    /**
+     * A node as seen by {@link #plan(List, int)}.
+     *
+     * @param playing Guild ids of links playing on this node.
+     * @param idle Guild ids of links connected to this node that aren't playing anything.
+     */
+    record Node(String name, boolean degraded, int penalty, List<Long> playing, List<Long> idle) {
+        double linkCost() {
+            return Math.max(1D, (double) penalty / Math.max(1, playing.size()));
+        }
+    }
+
+    record Move(long guildId, String from, String to, String reason) { }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The load a Lavalink node last reported on its stats message, which nodes send every minute.
+ * Penalties follow the ones Lavalink-Client's load balancer uses (one point per playing player, exponential on CPU load
+ * and on lost frames), so they can be compared against its choices, plus the things it doesn't account for.
+ *
+ * @param receivedAt When the stats were received, in epoch millis.
+ * @param framesDeficit Average frames per player per minute the node failed to send on time, or -1 if unknown.
+ */
+public record NodeLoad(int players, int playingPlayers, int cores, double systemLoad, double lavalinkLoad,
+                       int framesSent, int framesNulled, int framesDeficit, long memoryUsed, long memoryReservable,
+                       long receivedAt) {
+    // A node that has been quiet for three stats intervals is probably not doing well.
+    private static final long STALE_AFTER = TimeUnit.MINUTES.toMillis(3);
+    private static final int STALE_PENALTY = 10_000;
+    // Frames a player should send every minute (one every 20ms).
+    private static final double EXPECTED_FRAMES = 3000;
+    // More than this share of frames lost and the node is degraded, no matter how busy it is.
+    private static final double MAX_LOST_FRAMES = 0.05;
+
+    public static final NodeLoad UNKNOWN = new NodeLoad(0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0);
+
+    /**
+     * @param stats The stats message, as sent by the node.
+     * @param receivedAt When it was received, in epoch millis.
+     * @return The load it reports.
+     */
+    public static NodeLoad fromStats(JSONObject stats, long receivedAt) {
+        var memory = stats.optJSONObject("memory", new JSONObject());
+        var cpu = stats.optJSONObject("cpu", new JSONObject());
+        // Nodes that just started haven't got frame stats yet.
+        var frames = stats.optJSONObject("frameStats");
+
+        return new NodeLoad(
+                stats.optInt("players"),
+                stats.optInt("playingPlayers"),
+                cpu.optInt("cores"),
+                cpu.optDouble("systemLoad", 0),
+                cpu.optDouble("lavalinkLoad", 0),
+                frames == null ? 0 : frames.optInt("sent"),
+                frames == null ? 0 : frames.optInt("nulled"),
+                frames == null ? -1 : frames.optInt("deficit"),
+                memory.optLong("used"),
+                memory.optLong("reservable"),
+                receivedAt
+        );
+    }
+
+    public boolean isStale(long now) {
+        return receivedAt == 0 || now - receivedAt > STALE_AFTER;
+    }
+
+    /**
+     * @return The share of frames the node lost (nulled or sent late) over the last minute.
+     */
+    public double lostFrames() {
+        if (framesDeficit == -1) {
+            return 0;
+        }
+
+        return (framesNulled + Math.max(0, framesDeficit)) / EXPECTED_FRAMES;
+    }
+
+    /**
+     * @param now The current time, in epoch millis.
+     * @return Whether links should be moved off this node, regardless of how the other nodes are doing.
+     */
+    public boolean isDegraded(long now) {
+        return isStale(now) || lostFrames() > MAX_LOST_FRAMES;
+    }
+
+    /**
+     * @return The penalty Lavalink-Client's load balancer gives to a node with this load.
+     */
+    public int basePenalty() {
+        var cpuPenalty = (int) Math.pow(1.05d, 100 * systemLoad) * 10 - 10;
+        var deficitPenalty = 0;
+        var nulledPenalty = 0;
+        if (framesDeficit != -1) {
+            deficitPenalty = (int) (Math.pow(1.03d, 500f * (framesDeficit / 3000f)) * 600 - 600);
+            nulledPenalty = (int) (Math.pow(1.03d, 500f * (framesNulled / 3000f)) * 300 - 300) * 2;
+        }
+
+        return playingPlayers + cpuPenalty + deficitPenalty + nulledPenalty;
+    }
+
+    /**
+     * What the stock penalties miss: idle players still take memory and a voice connection on the node, a node close
+     * to running out of memory is about to start dropping frames, and a node that stopped sending stats is unknown.
+     *
+     * @param now The current time, in epoch millis.
+     * @return The penalty to add on top of {@link #basePenalty()}.
+     */
+    public int extraPenalty(long now) {
+        if (isStale(now)) {
+            return STALE_PENALTY;
+        }
+
+        var idlePenalty = Math.max(0, players - playingPlayers) / 4;
+        var memoryPenalty = 0;
+        if (memoryReservable > 0) {
+            var usage = (double) memoryUsed / memoryReservable;
+            memoryPenalty = usage > 0.8 ? (int) Math.round((usage - 0.8) * 1000) : 0;
+        }
+
+        return idlePenalty + memoryPenalty;
+    }
+
+    public int penalty(long now) {
+        return basePenalty() + extraPenalty(now);
+    }
+}
@@ -44,7 +44,6 @@ import net.kodehawa.mantarobot.utils.exporters.Metrics;
 
 import java.awt.Color;
 import java.util.EnumSet;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
 
 public class AudioLoader implements AudioLoadResultHandler {
@@ -161,7 +160,7 @@ public class AudioLoader implements AudioLoadResultHandler {
         }
 
         var fqSize = dbGuild.getMaxFairQueue();
-        ConcurrentLinkedDeque<AudioTrack> queue = trackScheduler.getQueue();
+        var queue = trackScheduler.getQueue();
 
         if (queue.size() > queueLimit && !dbUser.isPremium() && !dbGuild.isPremium()) {
             if (!silent) {
@@ -180,7 +179,7 @@ public class AudioLoader implements AudioLoadResultHandler {
         }
 
         // Comparing if the URLs are the same to be 100% sure they're just not spamming the same url over and over again.
-        if (queue.stream().filter(track -> trackInfo.uri.equals(track.getInfo().uri)).count() > fqSize && !silent) {
+        if (queue.countOf(trackInfo.uri) > fqSize && !silent) {
             ctx.edit("commands.music_general.loader.fair_queue_limit_reached", EmoteReference.ERROR, fqSize + 1);
             return;
         }
@@ -225,7 +224,7 @@ public class AudioLoader implements AudioLoadResultHandler {
         }
 
         var fqSize = dbGuild.getMaxFairQueue();
-        ConcurrentLinkedDeque<AudioTrack> queue = trackScheduler.getQueue();
+        var queue = trackScheduler.getQueue();
 
         if (queue.size() > queueLimit && !dbUser.isPremium() && !dbGuild.isPremium()) {
             if (!silent) {
@@ -247,7 +246,7 @@ public class AudioLoader implements AudioLoadResultHandler {
         }
 
         // Comparing if the URLs are the same to be 100% sure they're just not spamming the same url over and over again.
-        if (queue.stream().filter(track -> trackInfo.uri.equals(track.getInfo().uri)).count() > fqSize && !silent) {
+        if (queue.countOf(trackInfo.uri) > fqSize && !silent) {
             hook.editOriginal(i18nContext.get("commands.music_general.loader.fair_queue_limit_reached").formatted(EmoteReference.ERROR, fqSize + 1))
                     .setEmbeds()
                     .setComponents()
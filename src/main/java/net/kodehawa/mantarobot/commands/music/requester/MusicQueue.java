@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music.requester;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The queue of a {@link TrackScheduler}. Tracks are kept on a ring buffer so the queue can be paged and shuffled
+ * in place, and the size, total duration and number of tracks per URI are kept up to date as tracks come and go,
+ * so none of the checks done when loading a track have to walk the queue.
+ * All methods are thread-safe.
+ */
+public class MusicQueue {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> uriCounts = new HashMap<>();
+    private AudioTrack[] tracks = new AudioTrack[INITIAL_CAPACITY];
+    private int head;
+    // Written under the lock, but volatile so the common size checks don't need to take it.
+    private volatile int size;
+    private volatile long totalDuration;
+
+    public synchronized void offer(AudioTrack track) {
+        ensureCapacity(size + 1);
+        tracks[slot(size)] = track;
+        added(track);
+    }
+
+    public synchronized void addFirst(AudioTrack track) {
+        ensureCapacity(size + 1);
+        head = (head - 1) & (tracks.length - 1);
+        tracks[head] = track;
+        added(track);
+    }
+
+    public synchronized void addAll(Collection<? extends AudioTrack> toAdd) {
+        ensureCapacity(size + toAdd.size());
+        for (var track : toAdd) {
+            tracks[slot(size)] = track;
+            added(track);
+        }
+    }
+
+    /**
+     * @return The first track on the queue, which gets removed from it, or null if the queue is empty.
+     */
+    public synchronized AudioTrack poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        var track = tracks[head];
+        tracks[head] = null;
+        head = (head + 1) & (tracks.length - 1);
+        removed(track);
+        return track;
+    }
+
+    /**
+     * @param index The position on the queue, starting from 0.
+     * @return The track at that position.
+     * @throws IndexOutOfBoundsException if there's no track there.
+     */
+    public synchronized AudioTrack get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for queue of size " + size);
+        }
+
+        return tracks[slot(index)];
+    }
+
+    /**
+     * @param from The first position to include, starting from 0.
+     * @param count How many tracks to include at most.
+     * @return A copy of the tracks on that range. Empty if it's past the end of the queue.
+     */
+    public synchronized List<AudioTrack> page(int from, int count) {
+        var start = Math.max(0, from);
+        var end = (int) Math.min(size, (long) start + Math.max(0, count));
+        var page = new ArrayList<AudioTrack>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            page.add(tracks[slot(i)]);
+        }
+
+        return page;
+    }
+
+    /**
+     * @return A copy of the whole queue, in order.
+     */
+    public List<AudioTrack> asList() {
+        return page(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param uri The URI to look for.
+     * @return How many tracks on the queue have this URI.
+     */
+    public synchronized int countOf(String uri) {
+        if (uri == null) {
+            return 0;
+        }
+
+        return uriCounts.getOrDefault(uri, 0);
+    }
+
+    /**
+     * Shuffles the queue in place (Fisher-Yates).
+     *
+     * @param random The source of randomness to use.
+     */
+    public synchronized void shuffle(Random random) {
+        for (int i = size - 1; i > 0; i--) {
+            var a = slot(i);
+            var b = slot(random.nextInt(i + 1));
+            var track = tracks[a];
+            tracks[a] = tracks[b];
+            tracks[b] = track;
+        }
+    }
+
+    /**
+     * Removes the tracks at the given positions, keeping the order of the rest. Positions outside the queue are ignored.
+     *
+     * @param indexes The positions to remove, starting from 0.
+     * @return The amount of removed tracks.
+     */
+    public synchronized int removeAll(Set<Integer> indexes) {
+        if (indexes.isEmpty()) {
+            return 0;
+        }
+
+        var oldSize = size;
+        var kept = 0;
+        for (int i = 0; i < oldSize; i++) {
+            var from = slot(i);
+            var track = tracks[from];
+            tracks[from] = null;
+            if (indexes.contains(i)) {
+                removed(track);
+            } else {
+                tracks[slot(kept++)] = track;
+            }
+        }
+
+        return oldSize - kept;
+    }
+
+    public synchronized void clear() {
+        tracks = new AudioTrack[INITIAL_CAPACITY];
+        head = 0;
+        size = 0;
+        totalDuration = 0;
+        uriCounts.clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The sum of the length of all tracks on the queue, not counting streams.
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    private int slot(int index) {
+        return (head + index) & (tracks.length - 1);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= tracks.length) {
+            return;
+        }
+
+        var capacity = tracks.length;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+
+        var resized = new AudioTrack[capacity];
+        for (int i = 0; i < size; i++) {
+            resized[i] = tracks[slot(i)];
+        }
+
+        tracks = resized;
+        head = 0;
+    }
+
+    private void added(AudioTrack track) {
+        size++;
+        totalDuration += lengthOf(track);
+        var uri = track.getInfo().uri;
+        if (uri != null) {
+            uriCounts.merge(uri, 1, Integer::sum);
+        }
+    }
+
+    private void removed(AudioTrack track) {
+        size--;
+        totalDuration -= lengthOf(track);
+        var uri = track.getInfo().uri;
+        if (uri != null) {
+            uriCounts.computeIfPresent(uri, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static long lengthOf(AudioTrack track) {
+        var length = track.getInfo().length;
+        return length == Long.MAX_VALUE ? 0 : length;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music.requester;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Sits in front of {@link AudioPlayerManager#loadItemOrdered(Object, String, AudioLoadResultHandler)}, so the same
+ * URL or search being played again doesn't hit the source again.
+ * Loaded tracks are kept encoded for a while, and every hit decodes them again, as tracks can't be shared
+ * between players. Identical loads that happen at the same time share a single request.
+ * Failures and empty results aren't cached.
+ */
+public class TrackCache {
+    private static final Logger log = LoggerFactory.getLogger(TrackCache.class);
+    // dzsearch:, scsearch:, ymsearch: and friends.
+    private static final Pattern SEARCH_PREFIX = Pattern.compile("^([a-z]+search):\\s*(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final AudioPlayerManager playerManager;
+    private final Map<String, CompletableFuture<AudioItemResult>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, Loaded> loaded = CacheBuilder.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumWeight(32 * 1024 * 1024)
+            .weigher((String key, Loaded value) -> value.weight())
+            .build();
+
+    public TrackCache(AudioPlayerManager playerManager) {
+        this.playerManager = playerManager;
+    }
+
+    /**
+     * Loads the given identifier, from cache if possible.
+     *
+     * @param orderingKey The ordering key passed to the player manager if this has to be loaded.
+     * @param identifier The URL or search query to load.
+     * @param handler The handler the result goes to. It always gets tracks no one else has.
+     */
+    public void load(Object orderingKey, String identifier, AudioLoadResultHandler handler) {
+        var key = normalize(identifier);
+        var cached = loaded.getIfPresent(key);
+        if (cached != null) {
+            try {
+                cached.deliver(playerManager, handler);
+                Metrics.TRACK_EVENTS.labels("cache_hit").inc();
+                return;
+            } catch (IOException e) {
+                // Shouldn't happen with something we encoded ourselves, but if it does, just load it again.
+                log.warn("Couldn't decode cached tracks for {}", key, e);
+                loaded.invalidate(key);
+            }
+        }
+
+        var future = new CompletableFuture<AudioItemResult>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            Metrics.TRACK_EVENTS.labels("cache_shared").inc();
+            existing.whenComplete((result, error) -> {
+                if (error instanceof FriendlyException friendly) {
+                    handler.loadFailed(friendly);
+                } else if (error != null) {
+                    handler.loadFailed(new FriendlyException(error.getMessage(), FriendlyException.Severity.FAULT, error));
+                } else {
+                    result.deliverClones(handler);
+                }
+            });
+
+            return;
+        }
+
+        Metrics.TRACK_EVENTS.labels("cache_miss").inc();
+        try {
+            playerManager.loadItemOrdered(orderingKey, identifier, new Capture(key, future, handler));
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param identifier The identifier to normalize.
+     * @return The cache key for it. Search queries are case and whitespace insensitive, URLs are kept as-is.
+     */
+    static String normalize(String identifier) {
+        var trimmed = identifier.strip();
+        var search = SEARCH_PREFIX.matcher(trimmed);
+        if (search.matches()) {
+            var query = WHITESPACE.matcher(search.group(2).strip()).replaceAll(" ");
+            return search.group(1).toLowerCase(Locale.ROOT) + ":" + query.toLowerCase(Locale.ROOT);
+        }
+
+        return trimmed;
+    }
+
+    private byte[] encode(AudioTrack track) throws IOException {
+        var bytes = new ByteArrayOutputStream(256);
+        var output = new MessageOutput(bytes);
+        playerManager.encodeTrack(output, track);
+        output.finish();
+        return bytes.toByteArray();
+    }
+
+    // Passes the result to the handler that started the load, and to everyone waiting on it.
+    private class Capture implements AudioLoadResultHandler {
+        private final String key;
+        private final CompletableFuture<AudioItemResult> future;
+        private final AudioLoadResultHandler delegate;
+
+        private Capture(String key, CompletableFuture<AudioItemResult> future, AudioLoadResultHandler delegate) {
+            this.key = key;
+            this.future = future;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track) {
+            complete(new AudioItemResult(false, null, List.of(track), -1, false));
+            delegate.trackLoaded(track);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist) {
+            var tracks = playlist.getTracks();
+            var selected = playlist.getSelectedTrack() == null ? -1 : tracks.indexOf(playlist.getSelectedTrack());
+            complete(new AudioItemResult(true, playlist.getName(), List.copyOf(tracks), selected, playlist.isSearchResult()));
+            delegate.playlistLoaded(playlist);
+        }
+
+        @Override
+        public void noMatches() {
+            complete(AudioItemResult.NO_MATCHES);
+            delegate.noMatches();
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(exception);
+            delegate.loadFailed(exception);
+        }
+
+        private void complete(AudioItemResult result) {
+            try {
+                if (!result.tracks().isEmpty()) {
+                    var encoded = new byte[result.tracks().size()][];
+                    for (int i = 0; i < encoded.length; i++) {
+                        encoded[i] = encode(result.tracks().get(i));
+                    }
+
+                    loaded.put(key, new Loaded(result.playlist(), result.playlistName(), encoded, result.selected(), result.searchResult()));
+                }
+            } catch (IOException | RuntimeException e) {
+                // Waiters get clones of the tracks, not the encoded bytes, so they can still be served.
+                log.warn("Couldn't encode tracks for {}, not caching them", key, e);
+            } finally {
+                // Remove before completing, so no one can attach to a future that already went off.
+                inFlight.remove(key, future);
+                future.complete(result);
+            }
+        }
+    }
+
+    // A load result as it came from the player manager. Waiters get clones of these tracks.
+    private record AudioItemResult(boolean playlist, String playlistName, List<AudioTrack> tracks, int selected, boolean searchResult) {
+        private static final AudioItemResult NO_MATCHES = new AudioItemResult(false, null, List.of(), -1, false);
+
+        void deliverClones(AudioLoadResultHandler handler) {
+            if (tracks.isEmpty()) {
+                handler.noMatches();
+                return;
+            }
+
+            var clones = new ArrayList<AudioTrack>(tracks.size());
+            for (var track : tracks) {
+                clones.add(track.makeClone());
+            }
+
+            deliver(handler, playlist, playlistName, clones, selected, searchResult);
+        }
+    }
+
+    // A cached load result, with every track encoded.
+    private record Loaded(boolean playlist, String playlistName, byte[][] tracks, int selected, boolean searchResult) {
+        int weight() {
+            var weight = 64;
+            for (var track : tracks) {
+                weight += track.length + 16;
+            }
+
+            return weight;
+        }
+
+        void deliver(AudioPlayerManager playerManager, AudioLoadResultHandler handler) throws IOException {
+            var decoded = new ArrayList<AudioTrack>(tracks.length);
+            for (var track : tracks) {
+                decoded.add(playerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(track))).decodedTrack);
+            }
+
+            TrackCache.deliver(handler, playlist, playlistName, decoded, selected, searchResult);
+        }
+    }
+
+    private static void deliver(AudioLoadResultHandler handler, boolean playlist, String playlistName,
+                                List<AudioTrack> tracks, int selected, boolean searchResult) {
+        if (!playlist) {
+            handler.trackLoaded(tracks.get(0));
+        } else {
+            var selectedTrack = selected == -1 ? null : tracks.get(selected);
+            handler.playlistLoaded(new BasicAudioPlaylist(playlistName, tracks, selectedTrack, searchResult));
+        }
+    }
+}
@@ -33,11 +33,8 @@ import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -46,7 +43,7 @@ public class TrackScheduler extends PlayerEventListenerAdapter {
     private static final Random random = new Random();
     private static final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
     private final String guildId;
-    private final ConcurrentLinkedDeque<AudioTrack> queue;
+    private final MusicQueue queue;
     private final List<String> voteSkips;
     private final List<String> voteStop;
     private final I18n language;
@@ -62,7 +59,7 @@ public class TrackScheduler extends PlayerEventListenerAdapter {
 
     public TrackScheduler(Link player, String guildId) {
         this.audioPlayer = player;
-        this.queue = new ConcurrentLinkedDeque<>();
+        this.queue = new MusicQueue();
         this.guildId = guildId;
         this.voteSkips = new ArrayList<>();
         this.voteStop = new ArrayList<>();
@@ -224,11 +221,7 @@ public class TrackScheduler extends PlayerEventListenerAdapter {
     }
 
     public void shuffle() {
-        List<AudioTrack> tempList = new ArrayList<>(getQueue());
-        Collections.shuffle(tempList);
-
-        queue.clear();
-        queue.addAll(tempList);
+        queue.shuffle(random);
     }
 
     public GuildMessageChannel getRequestedTextChannel() {
@@ -243,15 +236,6 @@ public class TrackScheduler extends PlayerEventListenerAdapter {
         onStop();
     }
 
-    public List<AudioTrack> getQueueAsList() {
-        return new LinkedList<>(getQueue());
-    }
-
-    public void acceptNewQueue(List<AudioTrack> newQueue) {
-        queue.clear();
-        queue.addAll(newQueue);
-    }
-
     private void onStop() {
         getVoteStop().clear();
         getVoteSkips().clear();
@@ -298,7 +282,7 @@ public class TrackScheduler extends PlayerEventListenerAdapter {
         MantaroBot.getInstance().getAudioManager().resetMusicManagerFor(guildId);
     }
 
-    public ConcurrentLinkedDeque<AudioTrack> getQueue() {
+    public MusicQueue getQueue() {
         return this.queue;
     }
 
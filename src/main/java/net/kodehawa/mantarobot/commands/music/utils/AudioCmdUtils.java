@@ -23,13 +23,13 @@ import lavalink.client.io.jda.JdaLink;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.concrete.StageChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.utils.MarkdownSanitizer;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.GuildMusicManager;
+import net.kodehawa.mantarobot.commands.music.requester.MusicQueue;
 import net.kodehawa.mantarobot.core.command.slash.SlashContext;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.MantaroData;
@@ -42,7 +42,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.completedFuture;
@@ -52,12 +53,15 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 public class AudioCmdUtils {
     private static final Logger log = LoggerFactory.getLogger(AudioCmdUtils.class);
     private static final String icon = "https://apiv2.mantaro.site/image/common/musical-note.png";
+    // Titles are cut to 33 characters, so this many lines always fit on an embed page.
+    private static final int TRACKS_PER_PAGE = 30;
 
     public static void embedForQueue(SlashContext ctx, GuildMusicManager musicManager, I18nContext lang) {
         final var guild = ctx.getGuild();
         final var selfMember = ctx.getSelfMember();
         final var trackScheduler = musicManager.getTrackScheduler();
-        final var toSend = getQueueList(trackScheduler.getQueue());
+        final var queue = trackScheduler.getQueue();
+        final var toSend = getQueuePages(queue);
         final var musicPlayer = trackScheduler.getMusicPlayer();
         final var playingTrack = musicPlayer.getPlayingTrack();
 
@@ -97,9 +101,7 @@ public class AudioCmdUtils {
             return;
         }
 
-        var length = trackScheduler.getQueue().stream()
-                .filter(track -> track.getDuration() != Long.MAX_VALUE)
-                .mapToLong(value -> value.getInfo().length).sum();
+        var length = queue.getTotalDuration();
         AudioChannel voiceChannel = null;
         if (selfMember.getVoiceState() != null) {
             voiceChannel = selfMember.getVoiceState().getChannel();
@@ -132,7 +134,7 @@ public class AudioCmdUtils {
                     )
                     .addField(EmoteReference.STAR.toHeaderString() + lang.get("commands.music_general.queue.total_size"),
                             String.format("%d %s",
-                                    trackScheduler.getQueue().size(),
+                                    queue.size(),
                                     lang.get("commands.music_general.queue.songs")
                             ),
                             true
@@ -150,9 +152,7 @@ public class AudioCmdUtils {
                             ctx.getAuthor().getEffectiveAvatarUrl());
         };
 
-        // Too long otherwise, so substract 800 from TEXT_MAX_LENGTH
-        var split = DiscordUtils.divideString(MessageEmbed.TEXT_MAX_LENGTH - 800, toSend);
-        DiscordUtils.listButtons(ctx.getUtilsContext(), 150, supplier, split);
+        DiscordUtils.listButtons(ctx.getUtilsContext(), 150, supplier, toSend);
     }
 
     public static CompletionStage<Boolean> openAudioConnection(SlashContext ctx, JdaLink link,
@@ -330,11 +330,29 @@ public class AudioCmdUtils {
         );
     }
 
-    public static String getQueueList(Deque<AudioTrack> queue) {
+    /**
+     * Splits the queue into embed pages of {@link #TRACKS_PER_PAGE} tracks each, reading it a page at a time.
+     *
+     * @param queue The queue to list.
+     * @return The text of every page, empty if the queue is empty.
+     */
+    public static List<String> getQueuePages(MusicQueue queue) {
+        var pages = new ArrayList<String>();
+        for (int from = 0; ; from += TRACKS_PER_PAGE) {
+            var page = queue.page(from, TRACKS_PER_PAGE);
+            if (page.isEmpty()) {
+                return pages;
+            }
+
+            pages.add(getQueueList(page, from + 1).strip());
+        }
+    }
+
+    public static String getQueueList(List<AudioTrack> tracks, int firstNumber) {
         var sb = new StringBuilder();
-        var num = 1;
+        var num = firstNumber;
 
-        for (var audioTrack : queue) {
+        for (var audioTrack : tracks) {
             var aDuration = audioTrack.getDuration();
 
             var duration = String.format("%02d:%02d",
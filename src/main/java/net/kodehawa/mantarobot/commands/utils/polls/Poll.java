@@ -49,7 +49,6 @@ public class Poll {
     private static final Logger log = LoggerFactory.getLogger(Poll.class);
     private static final JedisPool pool = MantaroData.getDefaultJedisPool();
     private static final ManagedDatabase db = MantaroData.db();
-    private static final String ztable = "zpoll";
     private static final String table = "poll";
 
     private static final Pattern numbers = Pattern.compile("\\d\\u20e3");
@@ -232,13 +231,16 @@ public class Poll {
 
     // Cancel from outside.
     public static void cancel(String id, MongoGuild dbGuild) {
+        String data;
         try (var redis = pool.getResource()) {
-            var data = redis.hget(table, id);
-
-            redis.zrem(ztable, data);
+            data = redis.hget(table, id);
             redis.hdel(table, id);
         }
 
+        if (data != null) {
+            PollTask.SCHEDULER.cancel(PollTask.shardOf(dbGuild.getId()), data);
+        }
+
         dbGuild.removeRunningPoll(id);
         dbGuild.updateAllChanged();
     }
@@ -246,8 +248,8 @@ public class Poll {
     private void schedule() {
         // Basically save the entire object, as we'll need to recreate it.
         var scheduled = asJson();
+        PollTask.SCHEDULER.schedule(PollTask.shardOf(guildId), scheduled.toString(), time);
         try (var redis = pool.getResource()) {
-            redis.zadd(ztable, time, scheduled.toString());
             redis.hset(table, id(), scheduled.toString());
         }
 
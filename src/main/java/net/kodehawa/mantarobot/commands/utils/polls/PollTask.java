@@ -14,37 +14,46 @@
  * along with Mantaro. If not, see http://www.gnu.org/licenses/
  *
  */
-
 package net.kodehawa.mantarobot.commands.utils.polls;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.dv8tion.jda.api.utils.MiscUtil;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
+import net.kodehawa.mantarobot.utils.scheduler.DelayedJobScheduler;
+import net.kodehawa.mantarobot.utils.scheduler.RedisJobStore;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-
-import java.util.List;
 
 public class PollTask {
     private static final Logger log = LoggerFactory.getLogger(PollTask.class);
+    private static final RedisJobStore store = new RedisJobStore(MantaroData.getDefaultJedisPool());
+    // Polls go on the shard of their guild, so only the node that can see the guild ends them.
+    public static final DelayedJobScheduler SCHEDULER = new DelayedJobScheduler(
+            "zpoll", store, () -> MantaroBot.getInstance().getCore().getShardIds(), PollTask::end
+    );
 
-    public static void handle() {
-        try {
-            try (Jedis j = MantaroData.getDefaultJedisPool().getResource()) {
-                List<String> polls = j.zrange("zpoll", 0, 14);
-                log.debug("Poll check - remainder is: {}", polls.size());
+    public static int shardOf(String guildId) {
+        return MantaroBot.getInstance().getShardIdForGuild(MiscUtil.parseSnowflake(guildId));
+    }
 
-                for (var poll : polls) {
-                    var runningPoll = JsonDataManager.fromJson(poll, Poll.class);
-                    if (System.currentTimeMillis() >= runningPoll.time()) {
-                        runningPoll.end();
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Moves the polls on the old queue (a single one, which every node checked) to the per-shard ones.
+     */
+    public static void migrate() {
+        var moved = store.move("zpoll", poll -> SCHEDULER.queue(shardOf(new JSONObject(poll).getString("guildId"))));
+        if (moved > 0) {
+            log.info("Moved {} polls to per-shard queues", moved);
+        }
+    }
+
+    private static void end(String poll) {
+        try {
+            JsonDataManager.fromJson(poll, Poll.class).end();
+        } catch (JsonProcessingException e) {
+            log.error("Invalid poll data: {}", poll, e);
         }
     }
 }
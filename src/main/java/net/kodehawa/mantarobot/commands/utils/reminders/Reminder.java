@@ -26,7 +26,6 @@ import java.util.UUID;
 
 public class Reminder {
     private static final String table = "reminder";
-    private static final String ztable = "zreminder";
     private static final JedisPool pool = MantaroData.getDefaultJedisPool();
     private static final ManagedDatabase db = MantaroData.db();
 
@@ -52,13 +51,16 @@ public class Reminder {
     //This is more useful now
     //Id here contains the full id aka UUID:userId, unlike in the other methods
     public static void cancel(String userId, String fullId, CancelReason reason) {
+        String data;
         try (var redis = pool.getResource()) {
-            var data = redis.hget(table, fullId);
-
-            redis.zrem(ztable, data);
+            data = redis.hget(table, fullId);
             redis.hdel(table, fullId);
         }
 
+        if (data != null) {
+            ReminderTask.SCHEDULER.cancel(ReminderTask.shardOf(userId), data);
+        }
+
         var user = db.getUser(userId);
         user.removeReminder(fullId);
         if (reason == CancelReason.REMINDED) {
@@ -77,8 +79,8 @@ public class Reminder {
                 .put("reminder", reminder)
                 .put("at", time);
 
+        ReminderTask.SCHEDULER.schedule(ReminderTask.shardOf(userId), r.toString(), time);
         try (var redis = pool.getResource()) {
-            redis.zadd(ztable, time, r.toString());
             //Needed for removal.
             redis.hset(table, id + ":" + userId, r.toString());
         }
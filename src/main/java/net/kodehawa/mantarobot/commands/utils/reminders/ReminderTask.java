@@ -14,86 +14,82 @@
  * along with Mantaro. If not, see http://www.gnu.org/licenses/
  *
  */
-
 package net.kodehawa.mantarobot.commands.utils.reminders;
 
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.utils.MiscUtil;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
+import net.kodehawa.mantarobot.utils.scheduler.DelayedJobScheduler;
+import net.kodehawa.mantarobot.utils.scheduler.RedisJobStore;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
 
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class ReminderTask {
     private static final Logger log = LoggerFactory.getLogger(ReminderTask.class);
+    private static final RedisJobStore store = new RedisJobStore(MantaroData.getDefaultJedisPool());
+    // Reminders are spread over the shards by user, so every node delivers some of them.
+    public static final DelayedJobScheduler SCHEDULER = new DelayedJobScheduler(
+            "zreminder", store, () -> MantaroBot.getInstance().getCore().getShardIds(), ReminderTask::remind
+    );
 
-    public static void handle() {
-        log.debug("Checking reminder data...");
-        // The issue with handling this kind of stuff with ScheduledTasks is that we need to catch everything
-        // In case the Redis server is, for some reason, unavailable, or getting the resource fails
-        // This will silently die and kill every further reminder from being fired.
-        // Such, we need two try/catches here, one so the ScheduledTask doesn't die, and one so the loop doesn't break
-        // Java moments.
-        try (Jedis j = MantaroData.getDefaultJedisPool().getResource()) {
-            List<String> reminders = j.zrange("zreminder", 0, 14);
-            var bot = MantaroBot.getInstance();
-
-            log.debug("Reminder check - remainder is: {}", reminders.size());
-            for (var rem : reminders) {
-                try { // If we don't try here regardless, we kill the loop.
-                    var data = new JSONObject(rem);
-                    var fireAt = data.getLong("at");
+    public static int shardOf(String userId) {
+        return MantaroBot.getInstance().getShardIdForGuild(MiscUtil.parseSnowflake(userId));
+    }
 
-                    // If the time has passed...
-                    if (System.currentTimeMillis() >= fireAt) {
-                        log.debug("Reminder date has passed, remind accordingly.");
-                        var userId = data.getString("user");
-                        var fullId = data.getString("id") + ":" + userId;
-                        var guildId = data.getString("guild");
-                        var scheduledAt = data.getLong("scheduledAt");
+    /**
+     * Moves the reminders on the old queue (a single one, which only the master node checked) to the per-shard ones.
+     */
+    public static void migrate() {
+        var moved = store.move("zreminder", rem -> SCHEDULER.queue(shardOf(new JSONObject(rem).getString("user"))));
+        if (moved > 0) {
+            log.info("Moved {} reminders to per-shard queues", moved);
+        }
+    }
 
-                        // 1 day passed already, assuming it's a stale reminder:
-                        // Done because ReminderTask wasn't working.
-                        if (System.currentTimeMillis() - fireAt > TimeUnit.DAYS.toMillis(1)) {
-                            Reminder.cancel(userId, fullId, Reminder.CancelReason.CANCEL);
-                            return;
-                        }
+    private static void remind(String rem) {
+        var bot = MantaroBot.getInstance();
+        var data = new JSONObject(rem);
+        var fireAt = data.getLong("at");
+        var userId = data.getString("user");
+        var fullId = data.getString("id") + ":" + userId;
+        var guildId = data.getString("guild");
+        var scheduledAt = data.getLong("scheduledAt");
 
-                        var reminder = data.getString("reminder"); //The actual reminder data
-                        var guild = bot.getShardManager().getGuildById(guildId);
-                        var scheduledTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(scheduledAt), ZoneId.systemDefault());
-                        bot.getShardManager().retrieveUserById(userId)
-                                .flatMap(User::openPrivateChannel)
-                                .flatMap(privateChannel -> privateChannel
-                                        .sendMessageFormat("""
-                                                        %s**Reminder!**
-                                                        
-                                                        You asked me to remind you of: **%s**
-                                                        Asked at: <t:%s>%s""",
-                                                EmoteReference.POPPER,
-                                                reminder.trim().isEmpty() ? "something" : reminder, scheduledTime.toEpochSecond(),
-                                                (guild != null ? "%nAsked on: %s".formatted(guild.getName()) : "")
-                                        )
-                                ).queue(success -> {
-                                            log.debug("Reminded {}. Removing from remind database", fullId);
-                                            Reminder.cancel(userId, fullId, Reminder.CancelReason.REMINDED);
-                                        }, err -> Reminder.cancel(userId, fullId, Reminder.CancelReason.ERROR_DELIVERING)
-                                );
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        // 1 day passed already, assuming it's a stale reminder:
+        // Done because ReminderTask wasn't working.
+        if (System.currentTimeMillis() - fireAt > TimeUnit.DAYS.toMillis(1)) {
+            Reminder.cancel(userId, fullId, Reminder.CancelReason.CANCEL);
+            return;
         }
+
+        log.debug("Reminder date has passed, remind accordingly.");
+        var reminder = data.getString("reminder"); //The actual reminder data
+        var guild = bot.getShardManager().getGuildById(guildId);
+        var scheduledTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(scheduledAt), ZoneId.systemDefault());
+        bot.getShardManager().retrieveUserById(userId)
+                .flatMap(User::openPrivateChannel)
+                .flatMap(privateChannel -> privateChannel
+                        .sendMessageFormat("""
+                                        %s**Reminder!**
+                                        
+                                        You asked me to remind you of: **%s**
+                                        Asked at: <t:%s>%s""",
+                                EmoteReference.POPPER,
+                                reminder.trim().isEmpty() ? "something" : reminder, scheduledTime.toEpochSecond(),
+                                (guild != null ? "%nAsked on: %s".formatted(guild.getName()) : "")
+                        )
+                ).queue(success -> {
+                            log.debug("Reminded {}. Removing from remind database", fullId);
+                            Reminder.cancel(userId, fullId, Reminder.CancelReason.REMINDED);
+                        }, err -> Reminder.cancel(userId, fullId, Reminder.CancelReason.ERROR_DELIVERING)
+                );
     }
 }
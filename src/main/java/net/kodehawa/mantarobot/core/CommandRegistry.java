@@ -29,6 +29,9 @@ import net.kodehawa.mantarobot.core.command.CommandManager;
 import net.kodehawa.mantarobot.core.command.NewCommand;
 import net.kodehawa.mantarobot.core.command.NewContext;
 import net.kodehawa.mantarobot.core.command.argument.ArgumentParseError;
+import net.kodehawa.mantarobot.core.command.processor.CommandTrace;
+import net.kodehawa.mantarobot.core.command.processor.CommandTracer;
+import net.kodehawa.mantarobot.core.command.slash.AutocompleteCache;
 import net.kodehawa.mantarobot.core.command.slash.AutocompleteContext;
 import net.kodehawa.mantarobot.core.command.slash.ContextCommand;
 import net.kodehawa.mantarobot.core.command.slash.InteractionContext;
@@ -69,6 +72,7 @@ public class CommandRegistry {
     private final Config config = MantaroData.config().get();
     private final CommandManager newCommands = new CommandManager();
     private final RateLimiter rl = new RateLimiter(TimeUnit.HOURS, 1);
+    private final AutocompleteCache autocompleteCache = new AutocompleteCache();
 
     public CommandRegistry(Map<String, Command> commands) {
         this.commands = Preconditions.checkNotNull(commands);
@@ -96,13 +100,12 @@ public class CommandRegistry {
 
     // Process non-slash commands.
     // We filter non-guild events early on.
-    public void process(MessageReceivedEvent event, MongoGuild dbGuild, String cmdName, String content, String prefix, boolean isMention) {
+    public void process(MessageReceivedEvent event, CommandTrace trace, MongoGuild dbGuild, String cmdName, String content, String prefix, boolean isMention) {
         if (cmdName.length() >= 50) {
             return;
         }
 
         final var managedDatabase = MantaroData.db();
-        final var start = System.currentTimeMillis();
         var command = commands.get(cmdName.toLowerCase());
 
         if (command == null) {
@@ -117,6 +120,7 @@ public class CommandRegistry {
         final var cmd = command;
         final var guild = event.getGuild();
         final var mantaroData = managedDatabase.getMantaroData();
+        trace.setCommand(name(cmd, cmdName));
 
         if (mantaroData.getBlackListedGuilds().contains(guild.getId())) {
             log.debug("Got command from blacklisted guild {}, dropping", guild.getId());
@@ -212,18 +216,24 @@ public class CommandRegistry {
             return;
         }
         // !! Permission check end
+        trace.mark(CommandTrace.Phase.PERMISSIONS);
 
         final var dbUser = managedDatabase.getUser(author);
         renewPremiumKey(managedDatabase, author, dbUser, dbGuild);
+        trace.mark(CommandTrace.Phase.USER_LOAD);
 
-        // Used a command on the new system?
-        // sort-of-fix: remove if statement when we port all commands
-        boolean executedNew;
+        CommandTracer.awaitReplyOnChannel(channel.getIdLong(), trace);
         try {
-            executedNew = newCommands.execute(new NewContext(event,
+            // Used a command on the new system?
+            // sort-of-fix: remove if statement when we port all commands
+            var executedNew = newCommands.execute(new NewContext(event,
                     new I18nContext(dbGuild, dbUser),
                     event.getMessage().getContentRaw().substring(prefix.length()))
             );
+
+            if (!executedNew) {
+                cmd.run(new Context(event, new I18nContext(dbGuild, dbUser), cmdName, content, isMention), cmdName, content);
+            }
         } catch (ArgumentParseError e) {
             if (e.getMessage() != null) {
                 channel.sendMessage(EmoteReference.ERROR + e.getMessage()).queue();
@@ -234,27 +244,28 @@ public class CommandRegistry {
                 ).queue();
             }
 
+            CommandTracer.finish(trace);
             return;
+        } catch (RuntimeException e) {
+            CommandTracer.finish(trace);
+            throw e;
         }
 
-        if (!executedNew) {
-            cmd.run(new Context(event, new I18nContext(dbGuild, dbUser), cmdName, content, isMention), cmdName, content);
-        }
+        trace.mark(CommandTrace.Phase.EXECUTE);
 
         commandLog.debug("Command: {}, User: {} ({}), Guild: {}, Channel: {}, Message: {}" ,
                 cmdName, author.getName(), author.getId(), guild.getId(), channel.getId(), event.getMessage().getId()
         );
 
-        final var end = System.currentTimeMillis();
         final var category = root(cmd).category() == null ? "custom" : root(cmd).category().name().toLowerCase();
 
         Metrics.CATEGORY_COUNTER.labels(category).inc();
         Metrics.COMMAND_COUNTER.labels(name(cmd, cmdName)).inc();
-        Metrics.COMMAND_LATENCY.observe(end - start);
+        CommandTracer.finish(trace);
     }
 
     // Process (user) context interaction.
-    public void process(UserContextInteractionEvent event) {
+    public void process(UserContextInteractionEvent event, CommandTrace trace) {
         if (event.getGuild() == null) {
             event.reply("This bot does not accept commands in Private Messages. You can add it to your server at https://add.mantaro.site")
                     .setEphemeral(true)
@@ -262,12 +273,14 @@ public class CommandRegistry {
             return;
         }
 
-        var start = System.currentTimeMillis();
         var cmd = getCommandManager().contextUserCommands().get(event.getFullCommandName());
         if (cmd == null) {
             return;
         }
 
+        trace.setCommand(cmd.getName() + "-context");
+        trace.mark(CommandTrace.Phase.PREFIX);
+
         final var managedDatabase = MantaroData.db();
         final var mantaroData = managedDatabase.getMantaroData();
         final var guild = event.getGuild();
@@ -287,8 +300,10 @@ public class CommandRegistry {
             return;
         }
 
+        trace.mark(CommandTrace.Phase.PERMISSIONS);
         final var author = event.getUser();
         final var dbGuild = managedDatabase.getGuild(event.getGuild());
+        trace.mark(CommandTrace.Phase.GUILD_LOAD);
         // If we are in the patreon bot, deny all requests from unknown guilds.
         if (config.isPremiumBot() && !config.isOwner(author) && !dbGuild.isPremium()) {
             event.reply("""
@@ -301,18 +316,27 @@ public class CommandRegistry {
         }
 
         final var dbUser = managedDatabase.getUser(author);
-        cmd.execute(new InteractionContext<>(event, new I18nContext(dbGuild, dbUser)));
+        trace.mark(CommandTrace.Phase.USER_LOAD);
+
+        CommandTracer.awaitReplyOnInteraction(event.getIdLong(), trace);
+        try {
+            cmd.execute(new InteractionContext<>(event, new I18nContext(dbGuild, dbUser)));
+        } catch (RuntimeException e) {
+            CommandTracer.finish(trace);
+            throw e;
+        }
+
+        trace.mark(CommandTrace.Phase.EXECUTE);
         commandLog.debug("Context (user) command: {}, User: {} ({}), Guild: {}" ,
                 cmd.getName(), author.getName(), author.getId(), guild.getId()
         );
 
-        final var end = System.currentTimeMillis();
         Metrics.COMMAND_COUNTER.labels(cmd.getName() + "-context").inc();
-        Metrics.COMMAND_LATENCY.observe(end - start);
+        CommandTracer.finish(trace);
     }
 
     // Process slash commands.
-    public void process(SlashCommandInteractionEvent event) {
+    public void process(SlashCommandInteractionEvent event, CommandTrace trace) {
         if (event.getGuild() == null) {
             event.reply("This bot does not accept commands in Private Messages. You can add it to your server at https://add.mantaro.site")
                     .setEphemeral(true)
@@ -320,7 +344,6 @@ public class CommandRegistry {
             return;
         }
 
-        final var start = System.currentTimeMillis();
         var command = getCommandManager().slashCommands().get(event.getName().toLowerCase());
 
         // Only process custom commands outside slash.
@@ -328,6 +351,9 @@ public class CommandRegistry {
             return;
         }
 
+        trace.setCommand(command.getName() + "-slash");
+        trace.mark(CommandTrace.Phase.PREFIX);
+
         final var managedDatabase = MantaroData.db();
         final var mantaroData = managedDatabase.getMantaroData();
         final var guild = event.getGuild();
@@ -346,6 +372,7 @@ public class CommandRegistry {
         final var cmd = command;
         final var name = cmd.getName();
         final var dbGuild = managedDatabase.getGuild(event.getGuild());
+        trace.mark(CommandTrace.Phase.GUILD_LOAD);
 
         // !! Permission check start
         if (dbGuild.getDisabledCommands().contains(name)) {
@@ -434,21 +461,30 @@ public class CommandRegistry {
             return;
         }
         // !! Permission check end
+        trace.mark(CommandTrace.Phase.PERMISSIONS);
 
         final var dbUser = managedDatabase.getUser(author);
         renewPremiumKey(managedDatabase, author, dbUser, dbGuild);
+        trace.mark(CommandTrace.Phase.USER_LOAD);
 
-        cmd.execute(new SlashContext(event, new I18nContext(dbGuild, dbUser)));
+        CommandTracer.awaitReplyOnInteraction(event.getIdLong(), trace);
+        try {
+            cmd.execute(new SlashContext(event, new I18nContext(dbGuild, dbUser)));
+        } catch (RuntimeException e) {
+            CommandTracer.finish(trace);
+            throw e;
+        }
+
+        trace.mark(CommandTrace.Phase.EXECUTE);
         commandLog.debug("Slash command: {}, User: {} ({}), Guild: {}, Channel: {}, Options: {}" ,
                 cmd.getName(), author.getName(), author.getId(), guild.getId(), channel.getId(), event.getOptions()
         );
 
-        final var end = System.currentTimeMillis();
         final var category = cmd.getCategory().name().toLowerCase();
 
         Metrics.CATEGORY_COUNTER.labels(category).inc();
         Metrics.COMMAND_COUNTER.labels(name + "-slash").inc();
-        Metrics.COMMAND_LATENCY.observe(end - start);
+        CommandTracer.finish(trace);
     }
 
 
@@ -457,8 +493,24 @@ public class CommandRegistry {
         if (command != null) {
             final AutocompleteContext ctx = new AutocompleteContext(event);
             var sub = command.getSubCommands().get(ctx.getSubCommand());
+            var handler = sub != null ? command.getName() + " " + sub.getName() : command.getName();
+
+            var cached = autocompleteCache.get(handler, ctx);
+            if (cached != null) {
+                Metrics.AUTOCOMPLETE_CACHE.labels(handler, "hit").inc();
+                ctx.replyChoices(cached);
+                return;
+            }
+
+            Metrics.AUTOCOMPLETE_CACHE.labels(handler, "miss").inc();
+            var start = System.nanoTime();
             if (sub != null) sub.onAutocomplete(ctx);
             else command.onAutocomplete(ctx);
+            Metrics.AUTOCOMPLETE_LATENCY.labels(handler).observe((System.nanoTime() - start) / 1_000_000D);
+
+            if (ctx.getReplied() != null) {
+                autocompleteCache.put(handler, ctx, ctx.getReplied());
+            }
         }
     }
 
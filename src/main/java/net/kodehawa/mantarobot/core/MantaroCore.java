@@ -19,9 +19,6 @@ package net.kodehawa.mantarobot.core;
 
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Message;
@@ -41,6 +38,7 @@ import net.kodehawa.mantarobot.ExtraRuntimeOptions;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.listener.VoiceChannelListener;
 import net.kodehawa.mantarobot.core.cache.EvictingCachePolicy;
+import net.kodehawa.mantarobot.core.command.CommandManager;
 import net.kodehawa.mantarobot.core.command.processor.CommandProcessor;
 import net.kodehawa.mantarobot.core.listeners.MantaroListener;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
@@ -49,13 +47,12 @@ import net.kodehawa.mantarobot.core.listeners.events.PreLoadEvent;
 import net.kodehawa.mantarobot.core.listeners.operations.ButtonOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.ModalOperations;
-import net.kodehawa.mantarobot.core.modules.Module;
+import net.kodehawa.mantarobot.core.modules.ModuleIndex;
 import net.kodehawa.mantarobot.core.shard.Shard;
 import net.kodehawa.mantarobot.core.shard.discord.BotGateway;
 import net.kodehawa.mantarobot.core.shard.jda.BucketedController;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.options.annotations.Option;
 import net.kodehawa.mantarobot.options.event.OptionRegistryEvent;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
@@ -71,14 +68,13 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -86,6 +82,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static net.kodehawa.mantarobot.core.LoadState.LOADED;
 import static net.kodehawa.mantarobot.core.LoadState.LOADING;
@@ -110,6 +107,7 @@ public class MantaroCore {
     private final CommandProcessor commandProcessor = new CommandProcessor();
     private EventBus shardEventBus;
     private ShardManager shardManager;
+    private List<Integer> shardIds = List.of();
     private int restPing;
 
     public MantaroCore(Config config, boolean isDebug) {
@@ -352,6 +350,7 @@ public class MantaroCore {
                 throw new IllegalStateException("Shard ids list must have the same size as latch count");
             }
 
+            this.shardIds = List.copyOf(shardIds);
             // Use a LRU cache policy.
             shardManager.setMemberCachePolicy(new EvictingCachePolicy(shardIds, () -> leastRecentlyUsed(config.memberCacheSize)));
             MantaroBot.getInstance().getCore().setLoadState(LoadState.LOADING_SHARDS);
@@ -396,43 +395,68 @@ public class MantaroCore {
             throw new IllegalArgumentException("Cannot look for options if you don't specify where!");
         }
 
-        var commands = lookForAnnotatedOn(commandsPackage, Module.class);
-        var options = lookForAnnotatedOn(optsPackage, Option.class);
+        var start = System.nanoTime();
+        var index = ModuleIndex.load();
+        var commands = index.getModules(commandsPackage);
+        var options = index.getOptions(optsPackage);
+        start = recordRegistration("index", start);
 
         shardEventBus = new EventBus();
 
         // Start the actual bot now.
         startShardedInstance();
 
-        for (var commandClass : commands) {
-            try {
-                shardEventBus.register(commandClass.getDeclaredConstructor().newInstance());
-            } catch (Exception e) {
-                log.error("Invalid module: no zero arg public constructor found for " + commandClass);
+        // Starting the shard manager doesn't count towards instantiating the modules.
+        start = System.nanoTime();
+        // Loading the classes is what takes the longest (static initialization), so do it for all of them at once.
+        // Registration order stays the same as the index.
+        var modules = Stream.concat(commands.stream(), options.stream())
+                .parallel()
+                .map(this::instantiate)
+                .toList();
+
+        for (var module : modules) {
+            if (module != null) {
+                shardEventBus.register(module);
             }
         }
 
-        for (var optionClass : options) {
-            try {
-                shardEventBus.register(optionClass.getDeclaredConstructor().newInstance());
-            } catch (Exception e) {
-                log.error("Invalid module: no zero arg public constructor found for " + optionClass);
-            }
-        }
+        recordRegistration("instantiate", start);
 
         new Thread(() -> {
             // For now, only used by AsyncInfoMonitor startup and Anime Login Task.
             shardEventBus.post(new PreLoadEvent());
 
+            var registerStart = System.nanoTime();
             log.info("Registering all commands (@Module)");
             shardEventBus.post(CommandProcessor.REGISTRY);
             log.info("Registered all commands (@Module)");
+            registerStart = recordRegistration("commands", registerStart);
+
             log.info("Registering all options (@Option)");
             shardEventBus.post(new OptionRegistryEvent());
             log.info("Registered all options (@Option)");
+            recordRegistration("options", registerStart);
         }, "Mantaro EventBus-Post").start();
     }
 
+    private Object instantiate(String className) {
+        try {
+            return Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            log.error("Couldn't load module " + className, e);
+            return null;
+        }
+    }
+
+    private static long recordRegistration(String phase, long start) {
+        var now = System.nanoTime();
+        var elapsed = now - start;
+        Metrics.MODULE_REGISTRATION_TIME.labels(phase).set(elapsed / 1_000_000_000D);
+        log.info("Module registration phase {} took {}ms", phase, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return now;
+    }
+
     public void markAsReady() {
         loadState = POSTLOAD;
     }
@@ -441,6 +465,13 @@ public class MantaroCore {
         return shardManager;
     }
 
+    /**
+     * @return The ids of the shards this node runs.
+     */
+    public List<Integer> getShardIds() {
+        return shardIds;
+    }
+
     public Shard getShard(int id) {
         return shards.computeIfAbsent(id, Shard::new);
     }
@@ -449,6 +480,14 @@ public class MantaroCore {
         return Collections.unmodifiableCollection(shards.values());
     }
 
+    /**
+     * @return The pool commands and events run on. It grows as needed, so work that's waited on from a command can
+     *         go on it without starving other commands.
+     */
+    public ExecutorService getThreadPool() {
+        return threadPool;
+    }
+
     public int getRestPing() {
         return restPing;
     }
@@ -459,32 +498,37 @@ public class MantaroCore {
 
     public void registerSlash(List<CommandData> data) {
         if (MantaroBot.getInstance().isMasterNode()) {
+            var hash = CommandManager.hash(data);
+            try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
+                // Overwriting the commands counts against a pretty low rate limit, so only do it if something changed.
+                if (hash.equals(jedis.get("command-hash")) && jedis.exists("command-ids")) {
+                    log.info("[Controller] Slash/Context commands are up to date (hash {}), not registering them again", hash);
+                    return;
+                }
+            }
+
             log.info("[Controller] Attempted to register Slash/Context commands (@Module). List size: {}", data.size());
             var jda = getShard(0).getJDA();
             jda.updateCommands().addCommands(data).queue(cmds -> {
+                var ids = new HashMap<String, String>();
+                for (var cmd : cmds) {
+                    ids.put(cmd.getName(), cmd.getId());
+                }
+
                 try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
-                    jedis.del("command-ids"); // Reset list in case commands were removed or renamed.
-                    for (var cmd : cmds) {
-                        jedis.hset("command-ids", cmd.getName(), cmd.getId());
+                    var transaction = jedis.multi();
+                    transaction.del("command-ids"); // Reset list in case commands were removed or renamed.
+                    if (!ids.isEmpty()) {
+                        transaction.hset("command-ids", ids);
                     }
+
+                    transaction.set("command-hash", hash);
+                    transaction.exec();
                 }
             });
         }
     }
 
-    private Set<Class<?>> lookForAnnotatedOn(String packageName, Class<? extends Annotation> annotation) {
-        var classGraph = new ClassGraph()
-                .acceptPackages(packageName)
-                .enableAnnotationInfo();
-
-        try (ScanResult result = classGraph.scan(2)) {
-            return result.getAllClasses()
-                    .stream()
-                    .filter(classInfo -> classInfo.hasAnnotation(annotation.getName())).map(ClassInfo::loadClass)
-                    .collect(Collectors.toSet());
-        }
-    }
-
     public EventBus getShardEventBus() {
         return this.shardEventBus;
     }
@@ -17,20 +17,27 @@
 
 package net.kodehawa.mantarobot.core.command;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.hash.Hashing;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.kodehawa.mantarobot.core.command.slash.ContextCommand;
 import net.kodehawa.mantarobot.core.command.slash.SlashCommand;
+import net.kodehawa.mantarobot.utils.data.JsonDataManager;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class CommandManager {
     private final Map<String, NewCommand> commands = new HashMap<>();
@@ -164,6 +171,42 @@ public class CommandManager {
         return contextUserCommandList;
     }
 
+    /**
+     * A hash of what Discord would get for these commands. Command order and the order of keys don't change it,
+     * so it's the same across restarts as long as the commands are the same.
+     *
+     * @param commands The commands to hash.
+     * @return The hash, as a hex string.
+     */
+    public static String hash(Collection<CommandData> commands) {
+        var canonical = commands.stream()
+                .sorted(Comparator.comparing((CommandData data) -> data.getType().ordinal()).thenComparing(CommandData::getName))
+                .map(data -> canonical(data.toData().toMap()))
+                .toList();
+
+        try {
+            var json = JsonDataManager.toJson(canonical);
+            return Hashing.sha256().hashString(json, StandardCharsets.UTF_8).toString();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to hash commands", e);
+        }
+    }
+
+    // Maps get their keys sorted, lists keep their order (option order matters).
+    private static Object canonical(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            var sorted = new TreeMap<String, Object>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), canonical(v)));
+            return sorted;
+        }
+
+        if (value instanceof Collection<?> list) {
+            return list.stream().map(CommandManager::canonical).toList();
+        }
+
+        return value;
+    }
+
     private static <T> T instantiate(Class<T> clazz) {
         try {
             return clazz.getDeclaredConstructor().newInstance();
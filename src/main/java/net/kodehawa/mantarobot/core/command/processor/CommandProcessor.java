@@ -17,7 +17,6 @@
 
 package net.kodehawa.mantarobot.core.command.processor;
 
-import io.prometheus.client.Histogram;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.UserContextInteractionEvent;
@@ -29,39 +28,30 @@ import static net.kodehawa.mantarobot.utils.StringUtils.splitArgs;
 
 public class CommandProcessor {
     public static final CommandRegistry REGISTRY = new CommandRegistry();
-    private static final Histogram commandTime = Histogram.build()
-            .name("command_time").help("Time it takes for a command to be ran.")
-            .register();
 
     @SuppressWarnings("SameReturnValue")
     public boolean runContextUser(UserContextInteractionEvent event) {
-        final long start = System.currentTimeMillis();
         // Run the actual command here.
-        REGISTRY.process(event);
+        REGISTRY.process(event, new CommandTrace("context"));
 
         // This could be done using a lock, but that would be a little too blocking. So just set a flag.
         try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
             jedis.set("commands-running-" + event.getUser().getId(), String.valueOf(1));
         }
 
-        final long end = System.currentTimeMillis();
-        commandTime.observe(end - start);
         return true;
     }
 
     @SuppressWarnings("SameReturnValue")
     public boolean runSlash(SlashCommandInteractionEvent event) {
-        final long start = System.currentTimeMillis();
         // Run the actual command here.
-        REGISTRY.process(event);
+        REGISTRY.process(event, new CommandTrace("slash"));
 
         // This could be done using a lock, but that would be a little too blocking. So just set a flag.
         try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
             jedis.set("commands-running-" + event.getUser().getId(), String.valueOf(1));
         }
 
-        final long end = System.currentTimeMillis();
-        commandTime.observe(end - start);
         return true;
     }
 
@@ -70,7 +60,7 @@ public class CommandProcessor {
     }
 
     public boolean run(MessageReceivedEvent event) {
-        final long start = System.currentTimeMillis();
+        final var trace = new CommandTrace("text");
         final var config = MantaroData.config().get();
         // The command executed, in raw form.
         var rawCmd = event.getMessage().getContentRaw();
@@ -81,6 +71,7 @@ public class CommandProcessor {
         String[] prefix = config.prefix;
         // Guild-specific prefix.
         final var dbGuild = MantaroData.db().getGuild(event.getGuild());
+        trace.mark(CommandTrace.Phase.GUILD_LOAD);
         var customPrefix = dbGuild.getGuildCustomPrefix();
         // Possible mentions
         boolean isMention = false;
@@ -123,12 +114,10 @@ public class CommandProcessor {
         String[] parts = splitArgs(rawCmd, 2);
         String cmdName = parts[0];
         String content = parts[1];
+        trace.mark(CommandTrace.Phase.PREFIX);
 
         // Run the actual command here.
-        REGISTRY.process(event, dbGuild, cmdName, content, usedPrefix, isMention);
-
-        final long end = System.currentTimeMillis();
-        commandTime.observe(end - start);
+        REGISTRY.process(event, trace, dbGuild, cmdName, content, usedPrefix, isMention);
         return true;
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.command.processor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing information of a single command invocation, split by processing phase.
+ * Phases are recorded in order using {@link #mark(Phase)}: every mark accounts the time elapsed since the previous one
+ * to the given phase. Once the command is done, {@link CommandTracer#finish(CommandTrace)} exports it.
+ */
+public class CommandTrace {
+    private final String type;
+    private final long startNanos = System.nanoTime();
+    private final long startedAt = System.currentTimeMillis();
+    private final long[] phases = new long[Phase.values().length];
+    private volatile String command;
+    private long lastMark = startNanos;
+    private volatile long firstReplyNanos = -1;
+    private volatile String replyKey;
+
+    public CommandTrace(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Accounts the time since the last mark (or the start of the trace) to the specified phase.
+     *
+     * @param phase The phase that just finished.
+     */
+    public void mark(Phase phase) {
+        var now = System.nanoTime();
+        phases[phase.ordinal()] += now - lastMark;
+        lastMark = now;
+    }
+
+    void markReply() {
+        firstReplyNanos = System.nanoTime() - startNanos;
+    }
+
+    void finish() {
+        phases[Phase.TOTAL.ordinal()] = System.nanoTime() - startNanos;
+    }
+
+    void setReplyKey(String replyKey) {
+        this.replyKey = replyKey;
+    }
+
+    String getReplyKey() {
+        return replyKey;
+    }
+
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getMillis(Phase phase) {
+        if (phase == Phase.FIRST_REPLY) {
+            var reply = firstReplyNanos;
+            return reply == -1 ? -1 : TimeUnit.NANOSECONDS.toMillis(reply);
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(phases[phase.ordinal()]);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder()
+                .append(command).append(" (").append(type).append(")");
+
+        for (var phase : Phase.values()) {
+            var millis = getMillis(phase);
+            builder.append(" ").append(phase.getName()).append("=")
+                    .append(millis == -1 ? "?" : millis + "ms");
+        }
+
+        return builder.toString();
+    }
+
+    public enum Phase {
+        PREFIX("prefix"),
+        GUILD_LOAD("guild_load"),
+        PERMISSIONS("permissions"),
+        USER_LOAD("user_load"),
+        EXECUTE("execute"),
+        FIRST_REPLY("first_reply"),
+        TOTAL("total");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
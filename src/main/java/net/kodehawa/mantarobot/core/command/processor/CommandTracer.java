@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.command.processor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.requests.Method;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports {@link CommandTrace}s as per-command, per-phase histograms and keeps the slowest invocations around
+ * so they can be inspected without digging through metrics.
+ */
+public class CommandTracer {
+    // Anything slower than this gets saved on the slow trace buffer.
+    private static final long SLOW_THRESHOLD = TimeUnit.SECONDS.toMillis(2);
+    private static final int SLOW_BUFFER_SIZE = 50;
+    private static final CommandTrace[] slowTraces = new CommandTrace[SLOW_BUFFER_SIZE];
+    private static final AtomicInteger slowIndex = new AtomicInteger();
+    // Traces waiting for their first reply, keyed by channel (text commands) or interaction id (slash and context).
+    // Every invocation has its own entry, and the first reply on a key goes to the oldest invocation waiting on it.
+    private static final Map<String, Deque<CommandTrace>> awaitingReply = new ConcurrentHashMap<>();
+    // Replies are usually queued, so they can land a bit after the command is done. Past this, they don't count.
+    private static final long REPLY_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Mantaro Command Tracer Cleaner").setDaemon(true).build()
+    );
+
+    public static void awaitReplyOnChannel(long channelId, CommandTrace trace) {
+        await("c:" + channelId, trace);
+    }
+
+    public static void awaitReplyOnInteraction(long interactionId, CommandTrace trace) {
+        await("i:" + interactionId, trace);
+    }
+
+    private static void await(String key, CommandTrace trace) {
+        trace.setReplyKey(key);
+        awaitingReply.compute(key, (k, traces) -> {
+            if (traces == null) {
+                traces = new ArrayDeque<>(1);
+            }
+
+            traces.add(trace);
+            return traces;
+        });
+    }
+
+    /**
+     * Marks the first reply of a traced command, if the request is a message send or an interaction callback
+     * that a command is waiting on.
+     *
+     * @param event The finished HTTP request.
+     */
+    public static void onRequest(HttpRequestEvent event) {
+        if (awaitingReply.isEmpty()) {
+            return;
+        }
+
+        var route = event.getRoute();
+        if (route.getMethod() != Method.POST) {
+            return;
+        }
+
+        // channels/{channel_id}/messages or interactions/{interaction_id}/{interaction_token}/callback
+        var parts = route.getCompiledRoute().split("/");
+        String key = null;
+        if (parts.length == 3 && parts[0].equals("channels") && parts[2].equals("messages")) {
+            key = "c:" + parts[1];
+        } else if (parts.length == 4 && parts[0].equals("interactions") && parts[3].startsWith("callback")) {
+            key = "i:" + parts[1];
+        }
+
+        if (key == null) {
+            return;
+        }
+
+        var replied = new CommandTrace[1];
+        awaitingReply.computeIfPresent(key, (k, traces) -> {
+            replied[0] = traces.poll();
+            return traces.isEmpty() ? null : traces;
+        });
+
+        if (replied[0] != null) {
+            replied[0].markReply();
+            observe(replied[0], CommandTrace.Phase.FIRST_REPLY);
+        }
+    }
+
+    private static void stopAwaiting(CommandTrace trace) {
+        var key = trace.getReplyKey();
+        if (key == null) {
+            return;
+        }
+
+        awaitingReply.computeIfPresent(key, (k, traces) -> {
+            traces.remove(trace);
+            return traces.isEmpty() ? null : traces;
+        });
+    }
+
+    /**
+     * Exports a trace. Should be called once the command is done, whether it worked or not.
+     *
+     * @param trace The trace of the command.
+     */
+    public static void finish(CommandTrace trace) {
+        trace.finish();
+        // A command that didn't reply shouldn't take the replies of the ones that come after it.
+        cleaner.schedule(() -> stopAwaiting(trace), REPLY_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        for (var phase : CommandTrace.Phase.values()) {
+            if (phase != CommandTrace.Phase.FIRST_REPLY) {
+                observe(trace, phase);
+            }
+        }
+
+        var total = trace.getMillis(CommandTrace.Phase.TOTAL);
+        Metrics.COMMAND_LATENCY.observe(total);
+        if (total >= SLOW_THRESHOLD) {
+            slowTraces[Math.floorMod(slowIndex.getAndIncrement(), SLOW_BUFFER_SIZE)] = trace;
+        }
+    }
+
+    /**
+     * @return The slow traces currently in the buffer, newest first.
+     */
+    public static List<CommandTrace> getSlowTraces() {
+        var traces = new ArrayList<CommandTrace>(SLOW_BUFFER_SIZE);
+        var current = slowIndex.get();
+        for (var i = 1; i <= SLOW_BUFFER_SIZE; i++) {
+            var trace = slowTraces[Math.floorMod(current - i, SLOW_BUFFER_SIZE)];
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+
+        return traces;
+    }
+
+    private static void observe(CommandTrace trace, CommandTrace.Phase phase) {
+        var command = trace.getCommand();
+        if (command == null) {
+            return;
+        }
+
+        Metrics.COMMAND_PHASE_LATENCY.labels(command, phase.getName()).observe(trace.getMillis(phase));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.command.slash;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.api.interactions.commands.Command;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of autocomplete replies. Every keystroke on an autocomplete option is an event, and a lot of them
+ * are the same thing being typed again (or by someone else), so replies are kept for a little while.
+ * Replies are keyed on the command, the focused option, the language and what's being typed, so handlers must not
+ * reply with anything that depends on who's asking.
+ */
+public class AutocompleteCache {
+    private final Cache<String, List<Command.Choice>> replies = CacheBuilder.newBuilder()
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .maximumSize(10_000)
+            .build();
+
+    public List<Command.Choice> get(String handler, AutocompleteContext ctx) {
+        return replies.getIfPresent(key(handler, ctx));
+    }
+
+    public void put(String handler, AutocompleteContext ctx, List<Command.Choice> choices) {
+        replies.put(key(handler, ctx), List.copyOf(choices));
+    }
+
+    private static String key(String handler, AutocompleteContext ctx) {
+        var focused = ctx.getFocused();
+        return handler + ":" + focused.getName() + ":" + ctx.getI18n().getContextLanguage() + ":" + focused.getValue();
+    }
+}
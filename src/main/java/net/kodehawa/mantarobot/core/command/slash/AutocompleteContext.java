@@ -13,6 +13,7 @@ import java.util.List;
 public class AutocompleteContext {
     private final CommandAutoCompleteInteractionEvent event;
     private final I18nContext i18n;
+    private List<Command.Choice> replied;
 
     public AutocompleteContext(CommandAutoCompleteInteractionEvent event) {
         this.event = event;
@@ -33,11 +34,19 @@ public class AutocompleteContext {
 
     public void replyChoices(List<Command.Choice> choices) {
         if (choices.size() > OptionData.MAX_CHOICES) {
-            choices = choices.subList(0, OptionData.MAX_CHOICES + 1);
+            choices = choices.subList(0, OptionData.MAX_CHOICES);
         }
+        replied = choices;
         event.replyChoices(choices).queue();
     }
 
+    /**
+     * @return The choices this was replied with, or null if it wasn't replied to.
+     */
+    public List<Command.Choice> getReplied() {
+        return replied;
+    }
+
     public OptionMapping getOption(String name) {
         return event.getOption(name);
     }
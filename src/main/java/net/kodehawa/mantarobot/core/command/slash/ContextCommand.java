@@ -17,8 +17,6 @@
 
 package net.kodehawa.mantarobot.core.command.slash;
 
-import net.kodehawa.mantarobot.MantaroBot;
-
 import java.util.function.Predicate;
 
 public abstract class ContextCommand<T> extends DeferrableCommand<InteractionContext<T>> {
@@ -40,16 +38,20 @@ public abstract class ContextCommand<T> extends DeferrableCommand<InteractionCon
 
     @Override
     public final void execute(InteractionContext<T> ctx) {
-        // If this is over 2500ms, we should attempt to defer instead, as discord might be lagging.
-        var averageLatencyMax = MantaroBot.getInstance().getCore().getRestPing() * 4;
         if (!getPredicate().test(ctx)) {
             return;
         }
 
-        if ((defer() || averageLatencyMax > 2500) && !modal) {
+        var command = getName();
+        if (shouldDefer(command, this, ctx.getEvent())) {
             ctx.defer();
         }
 
-        process(ctx);
+        var start = System.nanoTime();
+        try {
+            process(ctx);
+        } finally {
+            recordLatency(command, start);
+        }
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.core.command.slash;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether an interaction should be deferred before its command runs, from how long that command
+ * has taken the last few times it ran.
+ * Discord gives us 3 seconds to acknowledge an interaction: if the interaction already waited a while to get to us,
+ * or the command tends to be slow (say, because the database is), we defer first so it doesn't fail.
+ */
+public class DeferPredictor {
+    private final long budget;
+    private final int windowSize;
+    private final int minSamples;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param budget How long we can take to reply to an interaction, in milliseconds. Should be under 3 seconds,
+     *               as the reply itself takes a bit to get to Discord.
+     * @param windowSize How many of the latest runs of a command are kept.
+     * @param minSamples How many runs of a command we need to see before we trust its p99.
+     */
+    public DeferPredictor(long budget, int windowSize, int minSamples) {
+        this.budget = budget;
+        this.windowSize = windowSize;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @param command The command (and subcommand) about to run.
+     * @param annotated Whether the command asked to always be deferred.
+     * @param queueAge How long ago the interaction was created, in milliseconds.
+     * @param restPing The current REST ping, in milliseconds.
+     * @return What to do with the interaction.
+     */
+    public Decision decide(String command, boolean annotated, long queueAge, long restPing) {
+        if (annotated) {
+            return Decision.ANNOTATED;
+        }
+
+        // Discord (or our connection to it) is lagging, so anything could miss it.
+        if (restPing * 4 > budget) {
+            return Decision.LAGGING;
+        }
+
+        var p99 = p99(command);
+        if (Math.max(0, queueAge) + Math.max(0, p99) + restPing > budget) {
+            return Decision.PREDICTED;
+        }
+
+        return Decision.NONE;
+    }
+
+    /**
+     * @param command The command (and subcommand) that ran.
+     * @param millis How long it took to run, in milliseconds.
+     */
+    public void record(String command, long millis) {
+        windows.computeIfAbsent(command, c -> new Window(windowSize)).add(millis);
+    }
+
+    /**
+     * @param command The command (and subcommand).
+     * @return The 99th percentile of how long the command took on its latest runs, or -1 if it hasn't ran enough.
+     */
+    public long p99(String command) {
+        var window = windows.get(command);
+        return window == null ? -1 : window.p99(minSamples);
+    }
+
+    public enum Decision {
+        // Has @Defer
+        ANNOTATED("annotated"),
+        // REST ping is high
+        LAGGING("lagging"),
+        // Wouldn't make it in time
+        PREDICTED("predicted"),
+        NONE("none");
+
+        private final String name;
+
+        Decision(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean defer() {
+            return this != NONE;
+        }
+    }
+
+    // The latest runs of a command, as a ring buffer. The p99 only gets worked out again after new runs come in.
+    private static class Window {
+        private final long[] samples;
+        private int count;
+        private int next;
+        private long p99 = -1;
+        private boolean dirty;
+
+        Window(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            dirty = true;
+        }
+
+        synchronized long p99(int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+
+            if (dirty) {
+                var sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p99 = sorted[Math.max(0, (int) Math.ceil(count * 0.99) - 1)];
+                dirty = false;
+            }
+
+            return p99;
+        }
+    }
+}
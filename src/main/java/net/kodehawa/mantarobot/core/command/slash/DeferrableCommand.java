@@ -1,11 +1,18 @@
 package net.kodehawa.mantarobot.core.command.slash;
 
+import net.dv8tion.jda.api.events.interaction.command.GenericCommandInteractionEvent;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.core.command.AnnotatedCommand;
 import net.kodehawa.mantarobot.core.command.meta.Defer;
 import net.kodehawa.mantarobot.core.command.meta.Ephemeral;
 import net.kodehawa.mantarobot.core.command.meta.ModalInteraction;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+
+import java.util.concurrent.TimeUnit;
 
 public abstract class DeferrableCommand<T extends IContext> extends AnnotatedCommand<T> {
+    // Leave 500ms of the 3 seconds Discord gives us for the reply to get there.
+    private static final DeferPredictor deferPredictor = new DeferPredictor(2500, 256, 20);
     protected boolean defer;
     protected boolean ephemeral;
     protected final boolean modal;
@@ -31,4 +38,34 @@ public abstract class DeferrableCommand<T extends IContext> extends AnnotatedCom
     public boolean defer() {
         return defer;
     }
+
+    /**
+     * Whether an interaction should be deferred before running a command on it.
+     *
+     * @param command The name of the command (and subcommand) about to run.
+     * @param deferrable The command (or subcommand) about to run.
+     * @param event The interaction.
+     * @return Whether to defer.
+     */
+    protected static boolean shouldDefer(String command, DeferrableCommand<?> deferrable, GenericCommandInteractionEvent event) {
+        if (deferrable.modal) {
+            return false;
+        }
+
+        var queueAge = System.currentTimeMillis() - event.getTimeCreated().toInstant().toEpochMilli();
+        var restPing = MantaroBot.getInstance().getCore().getRestPing();
+        var decision = deferPredictor.decide(command, deferrable.defer(), queueAge, restPing);
+        Metrics.DEFER_DECISIONS.labels(decision.getName()).inc();
+        return decision.defer();
+    }
+
+    /**
+     * Keeps how long a command took to run, for {@link #shouldDefer(String, DeferrableCommand, GenericCommandInteractionEvent)}.
+     *
+     * @param command The name of the command (and subcommand) that ran.
+     * @param startNanos When it started running, from {@link System#nanoTime()}.
+     */
+    protected static void recordLatency(String command, long startNanos) {
+        deferPredictor.record(command, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
 }
@@ -21,7 +21,6 @@ import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
-import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.core.command.meta.Description;
 import net.kodehawa.mantarobot.core.command.meta.NSFW;
 import net.kodehawa.mantarobot.core.command.meta.Options;
@@ -150,29 +149,24 @@ public abstract class SlashCommand extends DeferrableCommand<SlashContext> {
     @Override
     public final void execute(SlashContext ctx) {
         var sub = getSubCommands().get(ctx.getSubCommand());
-        // If this is over 2500ms, we should attempt to defer instead, as discord might be lagging.
-        var averageLatencyMax = MantaroBot.getInstance().getCore().getRestPing() * 4;
-
         // Predicate failure
         if (!getPredicate().test(ctx)) {
             return;
         }
 
-        var forceDefer = averageLatencyMax > 2500 && !modal;
-        if (sub != null) {
-            if ((sub.defer() || forceDefer) && !sub.modal) {
-                if (sub.isEphemeral()) ctx.deferEphemeral();
-                else ctx.defer();
-            }
-
-            sub.process(ctx);
-        } else {
-            if ((defer() || forceDefer) && !modal) {
-                if (isEphemeral()) ctx.deferEphemeral();
-                else ctx.defer();
-            }
+        var command = sub == null ? getName() : getName() + " " + sub.getName();
+        var target = sub == null ? this : sub;
+        if (shouldDefer(command, target, ctx.getEvent())) {
+            if (target.isEphemeral()) ctx.deferEphemeral();
+            else ctx.defer();
+        }
 
-            process(ctx);
+        // Timed after deferring, so the defer round-trip doesn't count towards the command's own latency.
+        var start = System.nanoTime();
+        try {
+            target.process(ctx);
+        } finally {
+            recordLatency(command, start);
         }
     }
 
@@ -17,13 +17,14 @@
 
 package net.kodehawa.mantarobot.core.listeners;
 
-import com.google.common.cache.Cache;
 import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
@@ -52,11 +53,14 @@ import net.kodehawa.mantarobot.commands.BirthdayCmd;
 import net.kodehawa.mantarobot.commands.currency.TextChannelGround;
 import net.kodehawa.mantarobot.commands.custom.legacy.DynamicModifiers;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
-import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
+import net.kodehawa.mantarobot.core.command.processor.CommandTracer;
+import net.kodehawa.mantarobot.core.listeners.entities.MessageCache;
+import net.kodehawa.mantarobot.core.listeners.helpers.GuildEventBatcher;
 import net.kodehawa.mantarobot.core.listeners.helpers.WelcomeUtils;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
+import net.kodehawa.mantarobot.db.entities.MongoGuild;
 import net.kodehawa.mantarobot.db.entities.PremiumKey;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
@@ -69,10 +73,13 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class MantaroListener implements EventListener {
     private static final Logger LOG = LoggerFactory.getLogger(MantaroListener.class);
@@ -80,14 +87,23 @@ public class MantaroListener implements EventListener {
     private static final ManagedDatabase DATABASE = MantaroData.db();
     // Channels we could send the greet message to.
     private static final List<String> CHANNEL_NAMES = List.of("general", "general-chat", "chat", "lounge", "main-chat", "main");
+    // How long joins and leaves of a guild get grouped for before being handled.
+    private static final long MEMBER_EVENT_WINDOW = TimeUnit.SECONDS.toMillis(2);
+    private static final ScheduledExecutorService MEMBER_EVENT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Mantaro Member Event Batcher").setDaemon(true).build()
+    );
 
     private final ExecutorService threadPool;
-    private final Cache<Long, Optional<CachedMessage>> messageCache;
+    private final MessageCache messageCache;
     private final MantaroBot bot;
+    private final GuildEventBatcher<MemberEvent> memberEvents;
 
-    public MantaroListener(ExecutorService threadPool, Cache<Long, Optional<CachedMessage>> messageCache) {
+    public MantaroListener(ExecutorService threadPool, MessageCache messageCache) {
         this.threadPool = threadPool;
         this.messageCache = messageCache;
+        this.memberEvents = new GuildEventBatcher<>(
+                "member", MEMBER_EVENT_WINDOW, MEMBER_EVENT_SCHEDULER, threadPool, this::onMemberEvents
+        );
         bot = MantaroBot.getInstance();
     }
 
@@ -105,17 +121,24 @@ public class MantaroListener implements EventListener {
 
         // !! Member events start
         if (event instanceof GuildMemberJoinEvent evt) {
-            threadPool.execute(() -> onUserJoin(evt.getGuild(), evt.getMember(), evt.getUser()));
+            // Members that still have to pass membership screening are handled once they do.
+            if (!evt.getMember().isPending()) {
+                memberEvents.add(evt.getGuild().getIdLong(), new MemberEvent(true, evt.getGuild(), evt.getMember(), evt.getUser()));
+            }
+
             return;
         }
 
         if (event instanceof GuildMemberUpdatePendingEvent evt) {
-            threadPool.execute(() -> onUserJoin(evt.getGuild(), evt.getMember(), evt.getUser()));
+            if (!evt.getMember().isPending()) {
+                memberEvents.add(evt.getGuild().getIdLong(), new MemberEvent(true, evt.getGuild(), evt.getMember(), evt.getUser()));
+            }
+
             return;
         }
 
         if (event instanceof GuildMemberRemoveEvent evt) {
-            threadPool.execute(() -> onUserLeave(evt));
+            memberEvents.add(evt.getGuild().getIdLong(), new MemberEvent(false, evt.getGuild(), evt.getMember(), evt.getUser()));
             return;
         }
 
@@ -189,6 +212,7 @@ public class MantaroListener implements EventListener {
             }
 
             Metrics.HTTP_REQUESTS.inc();
+            CommandTracer.onRequest(evt);
         }
 
         // !! Internal event end
@@ -263,6 +287,7 @@ public class MantaroListener implements EventListener {
         try {
             final var dbGuild = MantaroData.db().getGuild(event.getGuild());
             final var logChannel = dbGuild.getGuildLogChannel();
+            MessageCache.updateSnapshot(dbGuild);
 
             if (logChannel != null) {
                 final var hour = Utils.formatHours(OffsetDateTime.now(), dbGuild.getLogTimezone(), dbGuild.getLang());
@@ -271,7 +296,7 @@ public class MantaroListener implements EventListener {
                     return;
                 }
 
-                final var deletedMessage = messageCache.get(event.getMessageIdLong(), Optional::empty).orElse(null);
+                final var deletedMessage = messageCache.get(event.getMessageIdLong());
                 if (deletedMessage == null) {
                     return;
                 }
@@ -334,6 +359,7 @@ public class MantaroListener implements EventListener {
         try {
             final var guildData = MantaroData.db().getGuild(event.getGuild());
             final var logChannel = guildData.getGuildLogChannel();
+            MessageCache.updateSnapshot(guildData);
 
             if (logChannel != null) {
                 final var hour = Utils.formatHours(OffsetDateTime.now(), guildData.getLogTimezone(), guildData.getLang());
@@ -343,7 +369,7 @@ public class MantaroListener implements EventListener {
                 }
 
                 final var originalMessage = event.getMessage();
-                final var editedMessage = messageCache.get(originalMessage.getIdLong(), Optional::empty).orElse(null);
+                final var editedMessage = messageCache.get(originalMessage.getIdLong());
                 if (editedMessage == null) {
                     return;
                 }
@@ -357,9 +383,7 @@ public class MantaroListener implements EventListener {
                 }
 
                 // Update message in cache in any case.
-                messageCache.put(originalMessage.getIdLong(), Optional.of(
-                        new CachedMessage(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), originalMessage.getContentDisplay()))
-                );
+                messageCache.put(originalMessage);
 
                 if (guildData.getLogExcludedChannels().contains(channel.getId())) {
                     return;
@@ -370,7 +394,7 @@ public class MantaroListener implements EventListener {
                 }
 
                 // Don't log if content is equal but update in cache (cc: message is still relevant).
-                if (originalMessage.getContentDisplay().equals(content)) {
+                if (originalMessage.getContentRaw().equals(editedMessage.getRawContent())) {
                     return;
                 }
 
@@ -551,16 +575,74 @@ public class MantaroListener implements EventListener {
         }
     }
 
-    private void onUserJoin(Guild guild, Member member, User user) {
+    // Joins and leaves of a guild are handled together: the guild is loaded once and the log lines
+    // go out as a few long messages instead of one message each.
+    private void onMemberEvents(List<MemberEvent> events) {
+        final var guild = events.get(0).guild();
         final var dbGuild = MantaroData.db().getGuild(guild);
-        final var role = dbGuild.getGuildAutoRole();
         final var hour = Utils.formatHours(OffsetDateTime.now(), dbGuild.getLogTimezone(), dbGuild.getLang());
-        final var selfMember = guild.getSelfMember();
+        final var logLines = new ArrayList<String>(events.size());
+        var removedBirthdays = false;
 
-        if (member.isPending()) {
+        for (var event : events) {
+            var user = event.user();
+            try {
+                if (event.join()) {
+                    onUserJoin(guild, dbGuild, event.member(), user);
+                    logLines.add(String.format("`[%s]` \uD83D\uDCE3 `%s` just joined `%s` `(ID: %s)`",
+                            hour, Utils.getTagOrDisplay(user), guild.getName(), user.getId())
+                    );
+                } else {
+                    if (!(user.isBot() && dbGuild.isIgnoreBotsWelcomeMessage())) {
+                        logLines.add(String.format("`[%s]` \uD83D\uDCE3 `%s` just left `%s` `(ID: %s)`",
+                                hour, Utils.getTagOrDisplay(user), guild.getName(), user.getId())
+                        );
+                    }
+
+                    removedBirthdays |= onUserLeave(guild, dbGuild, user);
+                }
+            } catch (Exception e) {
+                LOG.error("Failed to process a join/leave event!", e);
+            }
+        }
+
+        if (removedBirthdays) {
+            dbGuild.updateAllChanged();
+        }
+
+        final var logChannel = dbGuild.getGuildLogChannel();
+        if (logChannel == null || logLines.isEmpty()) {
             return;
         }
 
+        try {
+            var tc = guild.getTextChannelById(logChannel);
+            if (tc == null || !tc.canTalk()) {
+                return;
+            }
+
+            var message = new StringBuilder();
+            for (var line : logLines) {
+                if (message.length() + line.length() + 1 > Message.MAX_CONTENT_LENGTH) {
+                    tc.sendMessage(message).queue();
+                    message.setLength(0);
+                }
+
+                if (!message.isEmpty()) {
+                    message.append('\n');
+                }
+
+                message.append(line);
+            }
+
+            tc.sendMessage(message).queue();
+        } catch (Exception ignored) { }
+    }
+
+    private void onUserJoin(Guild guild, MongoGuild dbGuild, Member member, User user) {
+        final var role = dbGuild.getGuildAutoRole();
+        final var selfMember = guild.getSelfMember();
+
         try {
             if (role != null &&  !(user.isBot() && dbGuild.isIgnoreBotsAutoRole())) {
                 var toAssign = guild.getRoleById(role);
@@ -571,18 +653,6 @@ public class MantaroListener implements EventListener {
             }
         } catch (Exception ignored) { }
 
-        final var logChannel = dbGuild.getGuildLogChannel();
-        if (logChannel != null) {
-            try {
-                var tc = guild.getTextChannelById(logChannel);
-                if (tc != null && tc.canTalk()) {
-                    tc.sendMessage(String.format("`[%s]` \uD83D\uDCE3 `%s` just joined `%s` `(ID: %s)`",
-                            hour, Utils.getTagOrDisplay(user), guild.getName(), user.getId())
-                    ).queue();
-                }
-            } catch (Exception ignored) { }
-        }
-
         if (user.isBot() && dbGuild.isIgnoreBotsWelcomeMessage()) {
             return;
         }
@@ -598,41 +668,17 @@ public class MantaroListener implements EventListener {
             }
 
             final var joinMessage = dbGuild.getJoinMessage();
-            WelcomeUtils.sendJoinLeaveMessage(user, guild, guild.getTextChannelById(joinChannel), dbGuild.getExtraJoinMessages(), joinMessage);
-            Metrics.ACTIONS.labels("join_messages").inc();
+            WelcomeUtils.queueJoinLeaveMessage("join", user, guild, guild.getTextChannelById(joinChannel), dbGuild.getExtraJoinMessages(), joinMessage);
         } catch (Exception e) {
             LOG.error("Failed to send join message!", e);
         }
     }
 
-    private void onUserLeave(GuildMemberRemoveEvent event) {
-        final var guild = event.getGuild();
-        final var user = event.getUser();
-        final var dbGuild = MantaroData.db().getGuild(guild);
-
-        try {
-            final var hour = Utils.formatHours(OffsetDateTime.now(), dbGuild.getLogTimezone(), dbGuild.getLang());
-            if (user.isBot() && dbGuild.isIgnoreBotsWelcomeMessage()) {
-                return;
-            }
-
-            var logChannel = dbGuild.getGuildLogChannel();
-            if (logChannel != null) {
-                final var tc = guild.getTextChannelById(logChannel);
-                if (tc != null && tc.canTalk()) {
-                    tc.sendMessage(String.format(
-                            "`[%s]` \uD83D\uDCE3 `%s` just left `%s` `(ID: %s)`",
-                            hour, Utils.getTagOrDisplay(user), guild.getName(), user.getId())
-                    ).queue();
-                }
-            }
-        } catch (Exception e) {
-            LOG.error("Failed to process log leave message!", e);
-        }
-
+    // Returns whether the guild data changed and needs to be saved.
+    private boolean onUserLeave(Guild guild, MongoGuild dbGuild, User user) {
         try {
             if (user.isBot() && dbGuild.isIgnoreBotsWelcomeMessage()) {
-                return;
+                return false;
             }
 
             var leaveChannel = dbGuild.getLogLeaveChannel();
@@ -640,13 +686,10 @@ public class MantaroListener implements EventListener {
                 leaveChannel = dbGuild.getLogJoinLeaveChannel();
             }
 
-            if (leaveChannel == null) {
-                return;
+            if (leaveChannel != null) {
+                final var leaveMessage = dbGuild.getLeaveMessage();
+                WelcomeUtils.queueJoinLeaveMessage("leave", user, guild, guild.getTextChannelById(leaveChannel), dbGuild.getExtraLeaveMessages(), leaveMessage);
             }
-
-            final var leaveMessage = dbGuild.getLeaveMessage();
-            WelcomeUtils.sendJoinLeaveMessage(user, guild, guild.getTextChannelById(leaveChannel), dbGuild.getExtraLeaveMessages(), leaveMessage);
-            Metrics.ACTIONS.labels("leave_messages").inc();
         } catch (Exception e) {
             LOG.error("Failed to send leave message!", e);
         }
@@ -654,15 +697,17 @@ public class MantaroListener implements EventListener {
         var allowedBirthdays = dbGuild.getAllowedBirthdays();
         if (allowedBirthdays.contains(user.getId())) {
             dbGuild.removeAllowedBirthday(user.getId());
-            dbGuild.updateAllChanged();
 
             var bdCacheMap = BirthdayCmd.getGuildBirthdayCache().getIfPresent(guild.getIdLong());
             if (bdCacheMap != null) {
                 bdCacheMap.remove(user.getIdLong());
             }
+
+            return true;
         }
-    }
 
+        return false;
+    }
 
     private void updateStats(JDA jda) {
         // This screws up with our shard stats, so we just need to ignore it.
@@ -684,4 +729,6 @@ public class MantaroListener implements EventListener {
             LOG.debug("Sent process shard stats to redis -> {}", json);
         }
     }
+
+    private record MemberEvent(boolean join, Guild guild, Member member, User user) { }
 }
@@ -17,7 +17,6 @@
 
 package net.kodehawa.mantarobot.core.listeners.command;
 
-import com.google.common.cache.Cache;
 import com.mongodb.MongoException;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.events.GenericEvent;
@@ -30,18 +29,18 @@ import net.dv8tion.jda.api.exceptions.PermissionException;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.kodehawa.mantarobot.commands.currency.profile.Badge;
 import net.kodehawa.mantarobot.core.command.processor.CommandProcessor;
-import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
+import net.kodehawa.mantarobot.core.listeners.entities.MessageCache;
 import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.LanguageKeyNotFoundException;
 import net.kodehawa.mantarobot.utils.Snow64;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.IllegalFormatException;
-import java.util.Optional;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 
@@ -51,9 +50,9 @@ public class CommandListener implements EventListener {
     private static int commandTotal = 0;
     private final CommandProcessor commandProcessor;
     private final ExecutorService threadPool;
-    private final Cache<Long, Optional<CachedMessage>> messageCache;
+    private final MessageCache messageCache;
 
-    public CommandListener(CommandProcessor processor, ExecutorService threadPool, Cache<Long, Optional<CachedMessage>> messageCache) {
+    public CommandListener(CommandProcessor processor, ExecutorService threadPool, MessageCache messageCache) {
         this.commandProcessor = processor;
         this.threadPool = threadPool;
         this.messageCache = messageCache;
@@ -77,10 +76,9 @@ public class CommandListener implements EventListener {
                 return;
             }
 
-            // Inserts a cached message into the cache. This only holds the id and the content, and is way lighter than saving the entire jda object.
-            messageCache.put(msg.getMessage().getIdLong(), Optional.of(
-                    new CachedMessage(msg.getGuild().getIdLong(), msg.getAuthor().getIdLong(), msg.getMessage().getContentDisplay()))
-            );
+            // Inserts a cached message into the cache, so edits and deletions can be logged. This only holds the ids and the raw content,
+            // and is way lighter than saving the entire jda object. Guilds without logs don't need it at all.
+            messageCache.cacheIfLogged(msg.getMessage(), threadPool);
 
             // We can't talk here, so we don't need to run anything.
             // Run this check before executing on the pool to avoid wasting a thread.
@@ -117,6 +115,7 @@ public class CommandListener implements EventListener {
         } catch (MongoException e) {
           log.error("Database on fire!", e);
         } catch (CompletionException e) {
+            Metrics.MISSED_ACKS.labels("slash").inc();
             log.error("Missed interaction ack time?", e);
         } catch (LanguageKeyNotFoundException e) {
             var id = Snow64.toSnow64(event.getIdLong());
@@ -167,6 +166,7 @@ public class CommandListener implements EventListener {
         } catch (MongoException e) {
             log.error("Database on fire!", e);
         } catch (CompletionException e) {
+            Metrics.MISSED_ACKS.labels("context").inc();
             log.error("Missed interaction ack time?", e);
         } catch (LanguageKeyNotFoundException e) {
             var id = Snow64.toSnow64(event.getIdLong());
@@ -17,22 +17,30 @@
 
 package net.kodehawa.mantarobot.core.listeners.entities;
 
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.kodehawa.mantarobot.MantaroBot;
 
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class CachedMessage {
+    // User, role and channel mentions, and custom emoji.
+    private static final Pattern MENTION = Pattern.compile("<(@!?|@&|#|a?:(\\w+):)(\\d+)>");
     private final long guildId;
     private final long author;
-    private final String content;
+    private final String rawContent;
+    private String content;
 
-    public CachedMessage(long guildId, long author, String content) {
+    public CachedMessage(long guildId, long author, String rawContent) {
         this.guildId = guildId;
         this.author = author;
-        this.content = content;
+        this.rawContent = rawContent;
     }
 
     public User getAuthor() {
-        var guild = MantaroBot.getInstance().getShardManager().getGuildById(guildId);
+        var guild = getGuild();
         User user = null;
 
         if (guild != null)  {
@@ -42,7 +50,57 @@ public class CachedMessage {
         return user;
     }
 
+    public String getRawContent() {
+        return this.rawContent;
+    }
+
+    /**
+     * @return The content with mentions resolved to names, like {@link net.dv8tion.jda.api.entities.Message#getContentDisplay()}.
+     * Mentions of anything that isn't cached are left as they are.
+     */
     public String getContent() {
-        return this.content;
+        if (content == null) {
+            content = toDisplay(getGuild(), rawContent);
+        }
+
+        return content;
+    }
+
+    private Guild getGuild() {
+        return MantaroBot.getInstance().getShardManager().getGuildById(guildId);
+    }
+
+    private static String toDisplay(Guild guild, String raw) {
+        if (guild == null || raw.indexOf('<') == -1) {
+            return raw;
+        }
+
+        return MENTION.matcher(raw).replaceAll(match -> Matcher.quoteReplacement(resolve(guild, match)));
+    }
+
+    private static String resolve(Guild guild, MatchResult match) {
+        var type = match.group(1);
+        var id = match.group(3);
+        if (match.group(2) != null) {
+            return ":" + match.group(2) + ":";
+        }
+
+        if (type.equals("@&")) {
+            var role = guild.getRoleById(id);
+            return role == null ? match.group() : "@" + role.getName();
+        }
+
+        if (type.equals("#")) {
+            var channel = guild.getGuildChannelById(id);
+            return channel == null ? match.group() : "#" + channel.getName();
+        }
+
+        var member = guild.getMemberById(id);
+        if (member != null) {
+            return "@" + member.getEffectiveName();
+        }
+
+        var user = guild.getJDA().getUserById(id);
+        return user == null ? match.group() : "@" + user.getName();
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.listeners.entities;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.entities.MongoGuild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content of recent messages, so edits and deletions can be logged with what the message used to say.
+ * Only messages of guilds with logs enabled are kept, and only their raw content: mentions are resolved
+ * when (and if) the message gets logged.
+ * <p>
+ * Content is stored as UTF-8 on a fixed size slab used as a ring buffer. New messages overwrite the oldest ones,
+ * either when the slab runs out of space or when all slots are taken.
+ */
+public class MessageCache {
+    private static final Logger log = LoggerFactory.getLogger(MessageCache.class);
+    private static final int SLOTS = 8192;
+    private static final int SLAB_SIZE = 1 << 20;
+    // How long a snapshot of the log settings of a guild is used before it gets reloaded.
+    private static final long SNAPSHOT_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final Cache<Long, LogSnapshot> snapshots = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+    private static final Set<Long> loading = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, Integer> index = new HashMap<>();
+    private final long[] ids = new long[SLOTS];
+    private final long[] guilds = new long[SLOTS];
+    private final long[] authors = new long[SLOTS];
+    private final int[] offsets = new int[SLOTS];
+    private final int[] lengths = new int[SLOTS];
+    // Only allocated once a message from a logged guild comes in.
+    private byte[] slab;
+    // The oldest slot still in use, and how many are.
+    private int tail;
+    private int size;
+    // Where the next message goes on the slab.
+    private int position;
+
+    /**
+     * Caches a message, if its guild has logs enabled and it isn't sent on an excluded channel.
+     * Guilds with unknown (or old) log settings get them loaded on the executor, as this is called on the event thread.
+     *
+     * @param message The message.
+     * @param loader The executor to load log settings on.
+     */
+    public void cacheIfLogged(Message message, Executor loader) {
+        var snapshot = snapshot(message.getGuild().getIdLong(), loader);
+        if (snapshot != null && snapshot.shouldCache(message.getChannel().getId())) {
+            put(message);
+        }
+    }
+
+    public void put(Message message) {
+        put(message.getIdLong(), message.getGuild().getIdLong(), message.getAuthor().getIdLong(), message.getContentRaw());
+    }
+
+    public synchronized void put(long id, long guildId, long authorId, String content) {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        var length = bytes.length;
+        // Empty messages never get logged anyway.
+        if (length == 0 || length > SLAB_SIZE) {
+            return;
+        }
+
+        if (slab == null) {
+            slab = new byte[SLAB_SIZE];
+        }
+
+        var start = position;
+        if (start + length > SLAB_SIZE) {
+            // Wrap around. Whatever is left after this point is from the last round, and older than anything before it.
+            while (size > 0 && offsets[tail] >= start) {
+                evict();
+            }
+
+            start = 0;
+        }
+
+        while (size > 0 && (size == SLOTS || overlaps(tail, start, length))) {
+            evict();
+        }
+
+        var slot = (tail + size) % SLOTS;
+        System.arraycopy(bytes, 0, slab, start, length);
+        ids[slot] = id;
+        guilds[slot] = guildId;
+        authors[slot] = authorId;
+        offsets[slot] = start;
+        lengths[slot] = length;
+        size++;
+        position = start + length;
+        // An edited message might still be on an older slot. That one just stays until it's overwritten.
+        index.put(id, slot);
+    }
+
+    /**
+     * @param id The message id.
+     * @return The cached message, or null if it isn't cached.
+     */
+    public synchronized CachedMessage get(long id) {
+        var slot = index.get(id);
+        if (slot == null) {
+            return null;
+        }
+
+        var content = new String(slab, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+        return new CachedMessage(guilds[slot], authors[slot], content);
+    }
+
+    private boolean overlaps(int slot, int start, int length) {
+        return offsets[slot] < start + length && offsets[slot] + lengths[slot] > start;
+    }
+
+    private void evict() {
+        index.remove(ids[tail], tail);
+        tail = (tail + 1) % SLOTS;
+        size--;
+    }
+
+    /**
+     * Updates the log settings snapshot of a guild, for when they were just loaded or changed.
+     *
+     * @param guild The guild data.
+     */
+    public static void updateSnapshot(MongoGuild guild) {
+        snapshots.put(Long.parseLong(guild.getId()), LogSnapshot.of(guild));
+    }
+
+    private static LogSnapshot snapshot(long guildId, Executor loader) {
+        var snapshot = snapshots.getIfPresent(guildId);
+        if ((snapshot == null || snapshot.isStale()) && loading.add(guildId)) {
+            // Keep using the old one (if any) until this is done.
+            loader.execute(() -> {
+                try {
+                    updateSnapshot(MantaroData.db().getGuild(String.valueOf(guildId)));
+                } catch (Exception e) {
+                    log.warn("Couldn't load log settings of guild {}", guildId, e);
+                } finally {
+                    loading.remove(guildId);
+                }
+            });
+        }
+
+        return snapshot;
+    }
+
+    private record LogSnapshot(String logChannel, Set<String> excludedChannels, long loadedAt) {
+        static LogSnapshot of(MongoGuild guild) {
+            return new LogSnapshot(
+                    guild.getGuildLogChannel(), Set.copyOf(guild.getLogExcludedChannels()), System.currentTimeMillis()
+            );
+        }
+
+        boolean shouldCache(String channelId) {
+            return logChannel != null && !logChannel.equals(channelId) && !excludedChannels.contains(channelId);
+        }
+
+        boolean isStale() {
+            return System.currentTimeMillis() - loadedAt > SNAPSHOT_TTL;
+        }
+    }
+}
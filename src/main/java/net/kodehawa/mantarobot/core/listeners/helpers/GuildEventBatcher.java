@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.core.listeners.helpers;
+
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Groups events of the same guild that happen close to each other, so they can be handled together.
+ * The first event of a guild opens a batch, and every event of that guild that comes before the window is over
+ * goes into it. Once the window is over, the whole batch is handed to the handler on the executor.
+ *
+ * @param <T> The type of the events.
+ */
+public class GuildEventBatcher<T> {
+    private final Map<Long, List<T>> pending = new ConcurrentHashMap<>();
+    private final String name;
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Consumer<List<T>> handler;
+
+    /**
+     * @param name The name of the batches, as seen on metrics.
+     * @param windowMillis How long a batch stays open for, in milliseconds.
+     * @param scheduler Where batches are closed. Nothing slow runs here.
+     * @param executor Where the handler runs.
+     * @param handler Handles a batch. Every event in it is of the same guild, and they're in the order they came in.
+     */
+    public GuildEventBatcher(String name, long windowMillis, ScheduledExecutorService scheduler,
+                             Executor executor, Consumer<List<T>> handler) {
+        this.name = name;
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    public void add(long guildId, T event) {
+        pending.compute(guildId, (id, events) -> {
+            if (events == null) {
+                events = new ArrayList<>();
+                scheduler.schedule(() -> flush(id), windowMillis, TimeUnit.MILLISECONDS);
+            }
+
+            events.add(event);
+            return events;
+        });
+    }
+
+    private void flush(long guildId) {
+        var events = pending.remove(guildId);
+        if (events == null) {
+            return;
+        }
+
+        // The average of this is how many events every batch took.
+        Metrics.GUILD_EVENT_BATCH_SIZE.labels(name).observe(events.size());
+        executor.execute(() -> handler.accept(events));
+    }
+}
@@ -17,6 +17,9 @@
 
 package net.kodehawa.mantarobot.core.listeners.helpers;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
@@ -24,17 +27,74 @@ import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.kodehawa.mantarobot.commands.custom.EmbedJSON;
 import net.kodehawa.mantarobot.commands.custom.legacy.DynamicModifiers;
+import net.kodehawa.mantarobot.utils.GameRandom;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class WelcomeUtils {
-    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Logger log = LoggerFactory.getLogger(WelcomeUtils.class);
+    private static final Random RANDOM = GameRandom.get();
     private static final Pattern MODIFIER_PATTERN = Pattern.compile("\\p{L}*:");
+    // Same as Discord's limit for a channel: 5 messages at once, then one more every second.
+    private static final int WELCOME_BURST = 5;
+    private static final long WELCOME_REFILL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    // Messages that can wait for their turn on a channel. Past this, they're dropped.
+    private static final int WELCOME_BACKLOG = 50;
+    private static final ScheduledExecutorService welcomeScheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Mantaro Welcome Shaper").setDaemon(true).build()
+    );
+    private static final Cache<Long, WelcomeBucket> welcomeBuckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(5, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Sends a welcome (or leave) message, at the pace the channel can take them. When a lot of people join at once,
+     * the messages that don't fit wait for their turn, and only if too many are waiting they get dropped,
+     * so a raid doesn't take all of the requests we can make.
+     *
+     * @param type What kind of message this is (join/leave), as seen on metrics.
+     */
+    public static void queueJoinLeaveMessage(String type, User user, Guild guild, TextChannel tc, List<String> extraMessages, String msg) {
+        if (tc == null) {
+            return;
+        }
+
+        Runnable send = () -> {
+            try {
+                sendJoinLeaveMessage(user, guild, tc, extraMessages, msg);
+                Metrics.ACTIONS.labels(type + "_messages").inc();
+            } catch (Exception e) {
+                log.error("Failed to send {} message!", type, e);
+            }
+        };
+
+        WelcomeBucket bucket;
+        try {
+            bucket = welcomeBuckets.get(tc.getIdLong(), WelcomeBucket::new);
+        } catch (ExecutionException e) {
+            send.run();
+            return;
+        }
+
+        if (!bucket.submit(send)) {
+            Metrics.ACTIONS.labels(type + "_messages_dropped").inc();
+        }
+    }
 
     public static void sendJoinLeaveMessage(User user, Guild guild, TextChannel tc, List<String> extraMessages, String msg) {
         sendJoinLeaveMessage(user, guild, tc, extraMessages, msg, false);
@@ -132,4 +192,66 @@ public class WelcomeUtils {
         }
     }
 
+    private static class WelcomeBucket {
+        private final Deque<Runnable> backlog = new ArrayDeque<>();
+        private double tokens = WELCOME_BURST;
+        private long lastRefill = System.currentTimeMillis();
+        private boolean draining;
+
+        // Runs the message now if there's room for it, else it waits on the backlog. False if it got dropped.
+        boolean submit(Runnable send) {
+            synchronized (this) {
+                refill();
+                if (!backlog.isEmpty() || tokens < 1) {
+                    if (backlog.size() >= WELCOME_BACKLOG) {
+                        return false;
+                    }
+
+                    backlog.add(send);
+                    scheduleDrain();
+                    return true;
+                }
+
+                tokens--;
+            }
+
+            send.run();
+            return true;
+        }
+
+        private void drain() {
+            var toSend = new ArrayList<Runnable>();
+            synchronized (this) {
+                draining = false;
+                refill();
+                while (tokens >= 1 && !backlog.isEmpty()) {
+                    tokens--;
+                    toSend.add(backlog.poll());
+                }
+
+                if (!backlog.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+
+            toSend.forEach(Runnable::run);
+        }
+
+        // Whenever the next message fits.
+        private void scheduleDrain() {
+            if (draining) {
+                return;
+            }
+
+            draining = true;
+            var wait = (long) Math.ceil((1 - tokens) * WELCOME_REFILL_MILLIS);
+            welcomeScheduler.schedule(this::drain, Math.max(0, wait), TimeUnit.MILLISECONDS);
+        }
+
+        private void refill() {
+            var now = System.currentTimeMillis();
+            tokens = Math.min(WELCOME_BURST, tokens + (double) (now - lastRefill) / WELCOME_REFILL_MILLIS);
+            lastRefill = now;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.modules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The list of {@link Module} and {@link net.kodehawa.mantarobot.options.annotations.Option} classes, written at
+ * compile time by the annotation processor on src/processor. Reading it replaces scanning the classpath on startup.
+ */
+public class ModuleIndex {
+    public static final String RESOURCE = "META-INF/mantaro/modules.idx";
+
+    private final List<String> modules;
+    private final List<String> options;
+
+    private ModuleIndex(List<String> modules, List<String> options) {
+        this.modules = Collections.unmodifiableList(modules);
+        this.options = Collections.unmodifiableList(options);
+    }
+
+    /**
+     * @return The index bundled with the bot.
+     * @throws IllegalStateException If there's no index, which means the build skipped annotation processing.
+     */
+    public static ModuleIndex load() {
+        var stream = ModuleIndex.class.getClassLoader().getResourceAsStream(RESOURCE);
+        if (stream == null) {
+            throw new IllegalStateException("No module index found on " + RESOURCE + ". Was annotation processing disabled?");
+        }
+
+        try (var reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ModuleIndex read(BufferedReader reader) throws IOException {
+        var modules = new ArrayList<String>();
+        var options = new ArrayList<String>();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            var parts = line.split(" ");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Invalid module index entry: " + line);
+            }
+
+            switch (parts[0]) {
+                case "module" -> modules.add(parts[1]);
+                case "option" -> options.add(parts[1]);
+                default -> throw new IllegalStateException("Unknown module index entry type: " + parts[0]);
+            }
+        }
+
+        return new ModuleIndex(modules, options);
+    }
+
+    /**
+     * @param packageName Only classes on this package (or its subpackages) are returned.
+     * @return The names of the @Module classes, sorted.
+     */
+    public List<String> getModules(String packageName) {
+        return filter(modules, packageName);
+    }
+
+    /**
+     * @param packageName Only classes on this package (or its subpackages) are returned.
+     * @return The names of the @Option classes, sorted.
+     */
+    public List<String> getOptions(String packageName) {
+        return filter(options, packageName);
+    }
+
+    private static List<String> filter(List<String> names, String packageName) {
+        var prefix = packageName + ".";
+        return names.stream().filter(name -> name.startsWith(prefix)).toList();
+    }
+}
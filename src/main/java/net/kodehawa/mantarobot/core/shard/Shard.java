@@ -17,24 +17,21 @@
 
 package net.kodehawa.mantarobot.core.shard;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
-import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
+import net.kodehawa.mantarobot.core.listeners.entities.MessageCache;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import java.time.Month;
 import java.time.OffsetDateTime;
 import java.util.Objects;
-import java.util.Optional;
 
 public class Shard {
-    private final Cache<Long, Optional<CachedMessage>> messageCache = CacheBuilder.newBuilder().concurrencyLevel(5).maximumSize(2500).build();
+    private final MessageCache messageCache = new MessageCache();
     private final MantaroEventManager manager = new MantaroEventManager();
     private final int id;
     private final EventListener listener;
@@ -59,7 +56,7 @@ public class Shard {
 
     @Nonnull
     @CheckReturnValue
-    public Cache<Long, Optional<CachedMessage>> getMessageCache() {
+    public MessageCache getMessageCache() {
         return messageCache;
     }
 
@@ -61,6 +61,8 @@ public class Config {
     public int memberCacheSize = 10_000;
     public boolean handleRatelimits = true;
     public boolean testing = false;
+    // How long field updates can be held to write repeated ones together. 0 writes them right away.
+    public long writeBehindMillis = 0;
 
     public Config() { }
 
@@ -24,6 +24,7 @@ import net.dv8tion.jda.api.interactions.DiscordLocale;
 import net.kodehawa.mantarobot.utils.LanguageKeyNotFoundException;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,55 +32,156 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class I18n {
     private static final Logger log = LoggerFactory.getLogger(I18n.class);
     public static final List<String> LANGUAGES = new ArrayList<>();
     private static final ThreadLocal<String> ROOT = new ThreadLocal<>();
-    private static final Map<String, I18n> LANGUAGE_MAP;
+    // Languages are only loaded the first time something asks for them.
+    private static final Map<String, I18n> LANGUAGE_MAP = new ConcurrentHashMap<>();
+    private static final Set<String> AVAILABLE_LANGUAGES = new HashSet<>();
+    // Every key en_US has, to the position of its value in I18n#values.
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+    private static final I18n FALLBACK;
 
     static {
-        Map<String, I18n> m = new HashMap<>();
         try (var is = I18n.class.getResourceAsStream("/assets/languages/list.txt")) {
             //noinspection DataFlowIssue
             for (var lang : IOUtils.toString(is, StandardCharsets.UTF_8).trim().split("\n")) {
                 var language = lang.trim();
                 LANGUAGES.add(language);
+                AVAILABLE_LANGUAGES.add(language.replace(".json", ""));
             }
         } catch (IOException e) {
             throw new ExceptionInInitializerError(e);
         }
 
-        for (String lang : LANGUAGES) {
-            var is = I18n.class.getResourceAsStream("/assets/languages/" + lang);
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, ?> map = (Map<String, ?>) JsonDataManager.fromJson(is, Map.class);
+        // en_US is always needed, as every other language falls back to it.
+        FALLBACK = load("en_US");
+        LANGUAGE_MAP.put(FALLBACK.language, FALLBACK);
+    }
+
+    // Values are either a String or a String[] to pick a random choice from.
+    // Untranslated keys point to the same instance en_US uses.
+    private final Object[] values;
+    // Keys this language has, but en_US doesn't. Usually empty.
+    private final Map<String, Object> extra;
+    private final String language;
+
+    private I18n(Object[] values, Map<String, Object> extra, String language) {
+        this.values = values;
+        this.extra = extra;
+        this.language = language;
+    }
+
+    private static I18n load(String language) {
+        var start = System.nanoTime();
+        try (var is = I18n.class.getResourceAsStream("/assets/languages/" + language + ".json")) {
+            @SuppressWarnings("unchecked")
+            Map<String, ?> map = (Map<String, ?>) JsonDataManager.fromJson(is, Map.class);
+
+            Map<String, Object> table = new LinkedHashMap<>();
+            flatten(table, "", map, new HashMap<>());
+
+            var isFallback = FALLBACK == null;
+            if (isFallback) {
+                for (var key : table.keySet()) {
+                    KEY_INDEX.put(key, KEY_INDEX.size());
+                }
+            }
+
+            // Resolve the fallback up front, so lookups only need to check one table.
+            var values = new Object[KEY_INDEX.size()];
+            var bytes = 0L;
+            for (var entry : KEY_INDEX.entrySet()) {
+                var index = entry.getValue();
+                var value = table.remove(entry.getKey());
+                var fallback = isFallback ? null : FALLBACK.values[index];
+
+                if (value == null || sameValue(value, fallback)) {
+                    values[index] = fallback;
+                } else {
+                    values[index] = value;
+                    bytes += estimateSize(value);
+                }
+            }
+
+            Map<String, Object> extra = table.isEmpty() ? Map.of() : Map.copyOf(table);
+            for (var value : extra.values()) {
+                bytes += estimateSize(value);
+            }
 
-                var name = lang.replace(".json", "");
-                m.put(name, new I18n(map, name));
+            var elapsed = System.nanoTime() - start;
+            Metrics.I18N_LANGUAGE_SIZE.labels(language).set(bytes + 16L + values.length * 4L);
+            Metrics.I18N_LANGUAGE_LOAD_TIME.labels(language).set(elapsed / 1_000_000_000D);
+            log.debug("Initialized I18n for: {} (took {}ms)", language, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+            return new I18n(values, extra, language);
+        } catch (Exception e) {
+            throw new Error("Unable to initialize I18n", e);
+        }
+    }
 
-                log.debug("Initialized I18n for: {}", name);
-            } catch (Exception e) {
-                throw new Error("Unable to initialize I18n", e);
+    private static void flatten(Map<String, Object> table, String prefix, Map<String, ?> map, Map<String, String> pool) {
+        for (var entry : map.entrySet()) {
+            var key = prefix + entry.getKey();
+            var value = entry.getValue();
+
+            if (value instanceof Map<?, ?> inner) {
+                @SuppressWarnings("unchecked")
+                var next = (Map<String, ?>) inner;
+                flatten(table, key + ".", next, pool);
+            } else if (value instanceof String str) {
+                table.put(key, pooled(pool, str));
+            } else if (value instanceof Collection<?> collection && !collection.isEmpty()) {
+                table.put(key, collection.stream()
+                        .map(choice -> pooled(pool, String.valueOf(choice)))
+                        .toArray(String[]::new)
+                );
             }
         }
+    }
 
-        LANGUAGE_MAP = Collections.unmodifiableMap(m);
+    // Languages repeat a fair amount of strings, so only keep one copy of each.
+    private static String pooled(Map<String, String> pool, String value) {
+        var fixed = Utils.fixInlineCodeblockDirection(value);
+        var existing = pool.putIfAbsent(fixed, fixed);
+        return existing == null ? fixed : existing;
     }
 
-    private final Map<String, ?> map;
-    private final String language;
+    private static boolean sameValue(Object value, Object fallback) {
+        if (value instanceof String[] choices && fallback instanceof String[] fallbackChoices) {
+            return Arrays.equals(choices, fallbackChoices);
+        }
 
-    private I18n(Map<String, ?> map, String language) {
-        this.map = map;
-        this.language = language;
+        return value.equals(fallback);
+    }
+
+    // Rough retained size of a value: object headers, plus one byte per char (two if it isn't latin-1).
+    private static long estimateSize(Object value) {
+        if (value instanceof String[] choices) {
+            var size = 16L + choices.length * 4L;
+            for (var choice : choices) {
+                size += estimateSize(choice);
+            }
+
+            return size;
+        }
+
+        var str = (String) value;
+        var latin = str.chars().allMatch(c -> c < 256);
+        return 40L + (latin ? str.length() : str.length() * 2L);
     }
 
     public static I18n of(DiscordLocale dLocal) {
@@ -117,16 +219,24 @@ public class I18n {
     }
 
     public static I18n getForLanguage(String language) {
-        var lang = LANGUAGE_MAP.get(language);
-        if (lang == null) {
-            return LANGUAGE_MAP.get("en_US");
+        if (language == null || !AVAILABLE_LANGUAGES.contains(language)) {
+            return FALLBACK;
         }
 
-        return lang;
+        var loaded = LANGUAGE_MAP.get(language);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        // Loaded outside of the map, so parsing a language doesn't hold up lookups of other ones.
+        // If two threads load it at once, both get the one that made it in first.
+        var fresh = load(language);
+        var existing = LANGUAGE_MAP.putIfAbsent(language, fresh);
+        return existing == null ? fresh : existing;
     }
 
     public static boolean isValidLanguage(String lang) {
-        return LANGUAGE_MAP.containsKey(lang);
+        return AVAILABLE_LANGUAGES.contains(lang);
     }
 
     public String getLanguage() {
@@ -138,43 +248,6 @@ public class I18n {
         ROOT.set(newRoot);
     }
 
-    @SuppressWarnings("unchecked")
-    private String get(Map<String, ?> map, String[] parts, boolean recursion) {
-        var index = 0;
-        while (index != parts.length - 1) {
-            Object maybeMap = map.get(parts[index]);
-            if (maybeMap instanceof Map) {
-                map = (Map<String, ?>) maybeMap;
-                index++;
-            } else {
-                if (language.equals("en_US") || recursion) {
-                    throw new LanguageKeyNotFoundException("Missing i18n key " + String.join(".", parts));
-                }
-
-                return get(LANGUAGE_MAP.get("en_US").map, parts, true);
-            }
-        }
-
-        Object maybeString = map.get(parts[index]);
-        if (maybeString instanceof String) {
-            return (String) maybeString;
-        }
-
-        if (maybeString instanceof Collection) {
-            Collection<String> c = ((Collection<String>) maybeString);
-            return c.stream()
-                    .skip(ThreadLocalRandom.current().nextInt(c.size()))
-                    .findFirst()
-                    .orElseThrow(AssertionError::new);
-        }
-
-        if (language.equals("en_US") || recursion) {
-            throw new LanguageKeyNotFoundException("Missing i18n key " + String.join(".", parts));
-        }
-
-        return get(LANGUAGE_MAP.get("en_US").map, parts, true);
-    }
-
     public String get(String query) {
         var root = ROOT.get();
         String actualQuery;
@@ -185,7 +258,17 @@ public class I18n {
             actualQuery = root + "." + query;
         }
 
-        return Utils.fixInlineCodeblockDirection(get(map, actualQuery.split("\\."), false));
+        var index = KEY_INDEX.get(actualQuery);
+        var value = index == null ? extra.get(actualQuery) : values[index];
+        if (value instanceof String str) {
+            return str;
+        }
+
+        if (value instanceof String[] choices) {
+            return choices[ThreadLocalRandom.current().nextInt(choices.length)];
+        }
+
+        throw new LanguageKeyNotFoundException("Missing i18n key " + actualQuery);
     }
 
     public String withRoot(String root, String query) {
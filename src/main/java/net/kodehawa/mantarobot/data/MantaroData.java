@@ -23,11 +23,17 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.connection.ConnectionPoolSettings;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
+import net.kodehawa.mantarobot.db.codecs.EntityCodecProvider;
 import net.kodehawa.mantarobot.db.codecs.MapCodecProvider;
+import net.kodehawa.mantarobot.db.entities.MongoGuild;
+import net.kodehawa.mantarobot.db.entities.MongoUser;
+import net.kodehawa.mantarobot.db.entities.Player;
+import net.kodehawa.mantarobot.db.entities.PlayerStats;
 import net.kodehawa.mantarobot.utils.ShutdownCodes;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
 import org.bson.codecs.configuration.CodecProvider;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Convention;
 import org.bson.codecs.pojo.Conventions;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import org.slf4j.Logger;
@@ -35,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.JedisPool;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.mongodb.MongoClientSettings.getDefaultCodecRegistry;
@@ -46,13 +53,20 @@ public class MantaroData {
     private static JsonDataManager<Config> config;
     private static ManagedDatabase db;
     private static MongoClient mongoClient;
+    private static final List<Convention> conventions = Arrays.asList(
+            Conventions.CLASS_AND_PROPERTY_CONVENTION, Conventions.ANNOTATION_CONVENTION, Conventions.OBJECT_ID_GENERATORS, Conventions.SET_PRIVATE_FIELDS_CONVENTION
+    );
     private static final CodecProvider pojoCodecProvider = PojoCodecProvider.builder()
             .automatic(true)
             .register(new MapCodecProvider())
-            .conventions(Arrays.asList(Conventions.CLASS_AND_PROPERTY_CONVENTION, Conventions.ANNOTATION_CONVENTION, Conventions.OBJECT_ID_GENERATORS, Conventions.SET_PRIVATE_FIELDS_CONVENTION))
+            .conventions(conventions)
             .build();
+    // The entities read on most commands get their own codecs, see EntityCodec. Everything else goes through the POJO codec.
+    private static final CodecProvider entityCodecProvider = new EntityCodecProvider(
+            conventions, Player.class, MongoUser.class, MongoGuild.class, PlayerStats.class
+    );
 
-    private static final CodecRegistry pojoCodecRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(pojoCodecProvider));
+    private static final CodecRegistry pojoCodecRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(entityCodecProvider, pojoCodecProvider));
     private static final JedisPool defaultJedisPool = new JedisPool(config().get().jedisPoolAddress, config().get().jedisPoolPort);
 
     public static JsonDataManager<Config> config() {
@@ -96,7 +110,7 @@ public class MantaroData {
 
     public static ManagedDatabase db() {
         if (db == null) {
-            db = new ManagedDatabase(mongoConnection());
+            db = new ManagedDatabase(mongoConnection(), config().get().writeBehindMillis);
         }
 
         return db;
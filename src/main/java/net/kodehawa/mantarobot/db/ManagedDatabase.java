@@ -17,13 +17,15 @@
 
 package net.kodehawa.mantarobot.db;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.FindOneAndReplaceOptions;
-import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import net.dv8tion.jda.api.entities.Guild;
@@ -31,6 +33,7 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.kodehawa.mantarobot.ExtraRuntimeOptions;
+import net.kodehawa.mantarobot.db.codecs.EntityCodec;
 import net.kodehawa.mantarobot.db.entities.CustomCommand;
 import net.kodehawa.mantarobot.db.entities.MongoGuild;
 import net.kodehawa.mantarobot.db.entities.MantaroObject;
@@ -39,6 +42,7 @@ import net.kodehawa.mantarobot.db.entities.MongoUser;
 import net.kodehawa.mantarobot.db.entities.Player;
 import net.kodehawa.mantarobot.db.entities.PlayerStats;
 import net.kodehawa.mantarobot.db.entities.PremiumKey;
+import org.bson.BsonDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
@@ -48,16 +52,45 @@ import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
 public class ManagedDatabase {
     private static final Logger log = LoggerFactory.getLogger(ManagedDatabase.class);
     private final MongoClient mongoClient;
+    private final WriteBehindQueue writeBehind;
+    // Entities that were read with only some of their fields. Weak keys compare by identity, and let them go once unused.
+    private final Cache<Object, Boolean> partialEntities = CacheBuilder.newBuilder().weakKeys().build();
 
     public ManagedDatabase(@Nonnull MongoClient mongoClient) {
+        this(mongoClient, 0);
+    }
+
+    /**
+     * @param mongoClient The client to use.
+     * @param writeBehindMillis If above 0, field updates wait this long to be written, and repeated updates
+     *                          of the same document on that time are written together. See {@link #flush()}.
+     */
+    public ManagedDatabase(@Nonnull MongoClient mongoClient, long writeBehindMillis) {
         this.mongoClient = mongoClient;
+        if (writeBehindMillis > 0) {
+            this.writeBehind = new WriteBehindQueue(writeBehindMillis, (table, models) ->
+                    dbMantaro().getCollection(table, BsonDocument.class).bulkWrite(models)
+            );
+
+            Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::flush, "Mantaro Write Behind Flush"));
+        } else {
+            this.writeBehind = null;
+        }
     }
 
     private static void log(String message, Object... fmtArgs) {
@@ -139,6 +172,7 @@ public class ManagedDatabase {
     @CheckReturnValue
     public MongoGuild getGuild(@Nonnull String guildId) {
         log("Requesting Guild {} from MongoDB", guildId);
+        flushPending(MongoGuild.DB_TABLE, guildId);
         var collection = dbMantaro().getCollection(MongoGuild.DB_TABLE, MongoGuild.class);
         var guild = collection.find().filter(Filters.eq(guildId)).first();
         return guild == null ? MongoGuild.of(guildId) : guild;
@@ -164,6 +198,19 @@ public class ManagedDatabase {
         return getGuild(event.getGuild());
     }
 
+    /**
+     * Gets many guilds on a single query. See {@link #getPlayers(Collection, String...)} for how the result looks.
+     *
+     * @param guildIds The ids of the guilds to get.
+     * @param fields If given, only these fields are read.
+     * @return The guilds, keyed by id.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public Map<String, MongoGuild> getGuilds(@Nonnull Collection<String> guildIds, String... fields) {
+        return getMany(MongoGuild.DB_TABLE, MongoGuild.class, guildIds, MongoGuild::of, fields);
+    }
+
     @Nonnull
     @CheckReturnValue
     public MantaroObject getMantaroData() {
@@ -182,6 +229,7 @@ public class ManagedDatabase {
     @CheckReturnValue
     public Player getPlayer(@Nonnull String userId) {
         log("Requesting Player {} from MongoDB", userId);
+        flushPending(Player.DB_TABLE, userId);
         var collection = dbMantaro().getCollection(Player.DB_TABLE, Player.class);
         var player = collection.find().filter(Filters.eq(userId)).first();
 
@@ -200,10 +248,26 @@ public class ManagedDatabase {
         return getPlayer(member.getUser());
     }
 
+    /**
+     * Gets many players on a single query, instead of one query per player.
+     * When fields are given, everything else is left at its default value, and the players can't be saved whole
+     * (saveMongo, and so insertOrReplace, throws), but changes can still be saved with updateAllChanged.
+     *
+     * @param userIds The ids of the players to get.
+     * @param fields If given, only these fields are read.
+     * @return The players keyed by id, in the same order as the ids. Players that aren't on the database get a new one.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public Map<String, Player> getPlayers(@Nonnull Collection<String> userIds, String... fields) {
+        return getMany(Player.DB_TABLE, Player.class, userIds, Player::of, fields);
+    }
+
     @Nonnull
     @CheckReturnValue
     public PlayerStats getPlayerStats(@Nonnull String userId) {
         log("Requesting Player {} from MongoDB", userId);
+        flushPending(PlayerStats.DB_TABLE, userId);
         var collection = dbMantaro().getCollection(PlayerStats.DB_TABLE, PlayerStats.class);
         var stats = collection.find().filter(Filters.eq(userId)).first();
 
@@ -222,6 +286,19 @@ public class ManagedDatabase {
         return getPlayerStats(member.getUser());
     }
 
+    /**
+     * Gets many player stats on a single query. See {@link #getPlayers(Collection, String...)} for how the result looks.
+     *
+     * @param userIds The ids of the players to get the stats of.
+     * @param fields If given, only these fields are read.
+     * @return The stats, keyed by id.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public Map<String, PlayerStats> getPlayerStats(@Nonnull Collection<String> userIds, String... fields) {
+        return getMany(PlayerStats.DB_TABLE, PlayerStats.class, userIds, PlayerStats::of, fields);
+    }
+
     //Can be null and it's perfectly valid.
     public Marriage getMarriage(String marriageId) {
         if (marriageId == null) {
@@ -229,6 +306,7 @@ public class ManagedDatabase {
         }
 
         log("Requesting Marriage {} from MongoDB", marriageId);
+        flushPending(Marriage.DB_TABLE, marriageId);
         return dbMantaro().getCollection(Marriage.DB_TABLE, Marriage.class).find(Filters.eq(marriageId)).first();
     }
 
@@ -264,6 +342,7 @@ public class ManagedDatabase {
     @CheckReturnValue
     public MongoUser getUser(@Nonnull String userId) {
         log("Requesting User {} from MongoDB", userId);
+        flushPending(MongoUser.DB_TABLE, userId);
         var collection = dbMantaro().getCollection(MongoUser.DB_TABLE, MongoUser.class);
         var user = collection.find().filter(Filters.eq(userId)).first();
 
@@ -282,20 +361,89 @@ public class ManagedDatabase {
         return getUser(member.getUser());
     }
 
+    /**
+     * Gets many users on a single query. See {@link #getPlayers(Collection, String...)} for how the result looks.
+     *
+     * @param userIds The ids of the users to get.
+     * @param fields If given, only these fields are read.
+     * @return The users, keyed by id.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public Map<String, MongoUser> getUsers(@Nonnull Collection<String> userIds, String... fields) {
+        return getMany(MongoUser.DB_TABLE, MongoUser.class, userIds, MongoUser::of, fields);
+    }
+
+    private <T extends ManagedMongoObject> Map<String, T> getMany(String table, Class<T> clazz, Collection<String> ids,
+                                       Function<String, T> create, String... fields) {
+        var unique = new LinkedHashSet<>(ids);
+        var result = new LinkedHashMap<String, T>(unique.size() * 2);
+        if (unique.isEmpty()) {
+            return result;
+        }
+
+        log("Requesting {} {} from MongoDB", unique.size(), table);
+        for (var id : unique) {
+            flushPending(table, id);
+        }
+
+        var collection = dbMantaro().getCollection(table, clazz);
+        var find = fields.length == 0 ? collection.find(Filters.in("_id", unique)) : findSelecting(collection, unique, fields);
+        var found = new HashMap<String, T>(unique.size() * 2);
+        for (var entity : find) {
+            found.put(entity.getId(), entity);
+            if (fields.length != 0) {
+                markPartial(entity);
+            }
+        }
+
+        for (var id : unique) {
+            var entity = found.get(id);
+            result.put(id, entity == null ? create.apply(id) : entity);
+        }
+
+        return result;
+    }
+
+    // Projected reads go through a codec that only decodes those fields (and the id, which projections always return).
+    // What keeps the result from overwriting a whole document is markPartial, as saves use the full codec.
+    private <T> Iterable<T> findSelecting(MongoCollection<T> collection, Collection<String> ids, String... fields) {
+        if (!(collection.getCodecRegistry().get(collection.getDocumentClass()) instanceof EntityCodec<T> codec)) {
+            return collection.find(Filters.in("_id", ids));
+        }
+
+        var selected = new ArrayList<>(List.of(fields));
+        selected.add("_id");
+        var registry = fromRegistries(fromCodecs(codec.selecting(selected.toArray(String[]::new))), collection.getCodecRegistry());
+        return collection.withCodecRegistry(registry)
+                .find(Filters.in("_id", ids))
+                .projection(Projections.include(fields));
+    }
+
+    // Saving this whole would write default values over every field that wasn't read.
+    void markPartial(Object entity) {
+        partialEntities.put(entity, Boolean.TRUE);
+    }
+
     public <T extends ManagedMongoObject> void saveMongo(@Nonnull T object, Class<T> clazz) {
+        if (partialEntities.getIfPresent(object) != null) {
+            throw new IllegalStateException("%s %s was read with only some of its fields and can't be saved whole, use updateAllChanged"
+                    .formatted(object.getTableName(), object.getId()));
+        }
+
         log("Saving {} {}:{} to MongoDB (replacing whole)", object.getClass().getSimpleName(), object.getTableName(), object.getDatabaseId());
 
+        // Pending field updates would otherwise land on top of the replaced document.
+        flushPending(object.getTableName(), object.getId());
         var collection = dbMantaro().getCollection(object.getTableName(), clazz);
-        var returnDoc = new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER);
-        var found = collection.findOneAndReplace(Filters.eq(object.getId()), object, returnDoc);
-        if (found == null) { // New document?
-            collection.insertOne(object);
-        }
+        // Upserting does it on a single round trip whether it's a new document or not, and doesn't send anything back.
+        collection.replaceOne(Filters.eq(object.getId()), object, new ReplaceOptions().upsert(true));
     }
 
     public <T extends ManagedMongoObject> void deleteMongo(@Nonnull T object, Class<T> clazz) {
         log("Deleting {} {}:{} from MongoDB (whole)", object.getClass().getSimpleName(), object.getTableName(), object.getDatabaseId());
 
+        flushPending(object.getTableName(), object.getId());
         MongoCollection<T> collection = dbMantaro().getCollection(object.getTableName(), clazz);
         collection.deleteOne(Filters.eq(object.getId()));
     }
@@ -304,6 +452,11 @@ public class ManagedDatabase {
         log("Updating id {} key {} (from db {}) to {} (single value)", object.getId(), key, object.getTableName(), value);
 
         var collection = dbMantaro().getCollection(object.getTableName());
+        if (writeBehind != null) {
+            writeBehind.set(object.getTableName(), object.getId(), toSet(collection, Updates.set(key, value)));
+            return;
+        }
+
         collection.updateOne(Filters.eq(object.getId()), Updates.set(key, value), new UpdateOptions().upsert(true));
     }
 
@@ -354,8 +507,35 @@ public class ManagedDatabase {
         });
 
         log("Database Update with content: {}", updates.toString());
+        if (writeBehind != null) {
+            // Encoded right away: the values are the entity's own (mutable) fields.
+            writeBehind.set(object.getTableName(), object.getId(), toSet(collection, Updates.combine(updates)));
+            return;
+        }
+
         // Reminder: you NEED to use Updates.combine, else somehow Map objects will act really strangely (ex. will not remove deleted items, but will add new ones)
         // Upsert means it's adding the document/embedded document if it does not exist on the current collection/document.
         collection.updateOne(Filters.eq(object.getId()), Updates.combine(updates), new UpdateOptions().upsert(true));
     }
+
+    /**
+     * Writes every pending field update right away, if updates are being held (see {@link #ManagedDatabase(MongoClient, long)}).
+     * Reads, replaces and deletes of a document with pending updates already do this, so this is only needed when
+     * something else (another node, a leaderboard query...) has to see the writes.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    private void flushPending(String table, String id) {
+        if (writeBehind != null) {
+            writeBehind.flush(table, id);
+        }
+    }
+
+    private static BsonDocument toSet(MongoCollection<?> collection, Bson update) {
+        return update.toBsonDocument(BsonDocument.class, collection.getCodecRegistry()).getDocument("$set");
+    }
 }
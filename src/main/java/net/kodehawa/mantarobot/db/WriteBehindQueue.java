@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.db;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+import org.bson.BsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds field updates for a short window before writing them, so an entity that gets updated several times in a row
+ * (think of a currency command touching the same player a few times) only costs one write.
+ * Updates to the same document are merged into a single $set, and each flush does one ordered bulkWrite per collection.
+ * <p>
+ * Anything that needs to see the writes, like reads, replaces or deletes of a pending document, should flush first.
+ */
+class WriteBehindQueue {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindQueue.class);
+    // How long to wait before trying again after a flush failed.
+    private static final long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final long windowMillis;
+    private final Writer writer;
+    private final ScheduledExecutorService executor;
+    // Pending $set documents, in update order. Usually a single one per entity, see #merge.
+    private Map<Key, List<BsonDocument>> pending = new LinkedHashMap<>();
+    // Flushes need to go out in order, else an older flush could land after a newer one.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    WriteBehindQueue(long windowMillis, Writer writer) {
+        this.windowMillis = windowMillis;
+        this.writer = writer;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "Mantaro Write Behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a $set of some fields of a document, to be written on the next flush.
+     *
+     * @param table The collection the document is on.
+     * @param id The id of the document.
+     * @param set The fields to set, already encoded. It won't be modified.
+     */
+    void set(String table, String id, BsonDocument set) {
+        boolean schedule;
+        synchronized (this) {
+            schedule = pending.isEmpty();
+            merge(pending.computeIfAbsent(new Key(table, id), k -> new ArrayList<>(1)), set);
+            Metrics.DB_WRITE_QUEUE_DEPTH.set(pending.size());
+        }
+
+        if (schedule) {
+            executor.schedule(this::flushQuietly, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized boolean isPending(String table, String id) {
+        return pending.containsKey(new Key(table, id));
+    }
+
+    /**
+     * Writes everything that's pending, and waits for it to be written.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<Key, List<BsonDocument>> toWrite;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                toWrite = pending;
+                pending = new LinkedHashMap<>();
+                Metrics.DB_WRITE_QUEUE_DEPTH.set(0);
+            }
+
+            var start = System.nanoTime();
+            var byTable = new LinkedHashMap<String, List<Key>>();
+            for (var key : toWrite.keySet()) {
+                byTable.computeIfAbsent(key.table(), k -> new ArrayList<>()).add(key);
+            }
+
+            var tables = new ArrayList<>(byTable.keySet());
+            for (int i = 0; i < tables.size(); i++) {
+                var models = new ArrayList<WriteModel<BsonDocument>>();
+                for (var key : byTable.get(tables.get(i))) {
+                    for (var set : toWrite.get(key)) {
+                        models.add(new UpdateOneModel<>(
+                                Filters.eq(key.id()), new BsonDocument("$set", set), new UpdateOptions().upsert(true)
+                        ));
+                    }
+                }
+
+                try {
+                    writer.write(tables.get(i), models);
+                } catch (RuntimeException e) {
+                    // Put back this table and the ones that didn't get a chance to be written, so they go out
+                    // on the next flush. Part of this table could have been written already, but $set is idempotent.
+                    var unwritten = new ArrayList<Key>();
+                    for (var table : tables.subList(i, tables.size())) {
+                        unwritten.addAll(byTable.get(table));
+                    }
+
+                    restore(toWrite, unwritten);
+                    throw e;
+                }
+            }
+
+            Metrics.DB_WRITE_FLUSH_LATENCY.observe((System.nanoTime() - start) / 1_000_000D);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Updates that failed to be written go before the ones that got queued since, so they can't overwrite newer values.
+    private void restore(Map<Key, List<BsonDocument>> failed, List<Key> keys) {
+        synchronized (this) {
+            var newer = pending;
+            pending = new LinkedHashMap<>();
+            for (var key : keys) {
+                pending.put(key, new ArrayList<>(failed.get(key)));
+            }
+
+            newer.forEach((key, sets) -> {
+                var merged = pending.computeIfAbsent(key, k -> new ArrayList<>(1));
+                for (var set : sets) {
+                    merge(merged, set);
+                }
+            });
+
+            Metrics.DB_WRITE_QUEUE_DEPTH.set(pending.size());
+        }
+
+        executor.schedule(this::flushQuietly, Math.max(windowMillis, RETRY_MILLIS), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flushes if the document has pending writes.
+     *
+     * @param table The collection the document is on.
+     * @param id The id of the document.
+     */
+    void flush(String table, String id) {
+        if (isPending(table, id)) {
+            flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Couldn't flush pending database writes", e);
+        }
+    }
+
+    /**
+     * Merges a $set into the last pending one of a document. A later value of a field replaces the earlier one, and
+     * setting a field drops earlier sets of its subfields. Setting a subfield of a field that's already pending
+     * can't be merged on the same $set (MongoDB rejects conflicting paths), so that one goes on a new one.
+     */
+    static void merge(List<BsonDocument> sets, BsonDocument set) {
+        var last = sets.isEmpty() ? null : sets.get(sets.size() - 1);
+        if (last == null || conflicts(last, set)) {
+            sets.add(set.clone());
+            return;
+        }
+
+        for (var key : set.keySet()) {
+            var prefix = key + ".";
+            last.keySet().removeIf(field -> field.startsWith(prefix));
+            last.put(key, set.get(key));
+        }
+    }
+
+    private static boolean conflicts(BsonDocument pending, BsonDocument set) {
+        for (var key : set.keySet()) {
+            for (var field : pending.keySet()) {
+                if (key.startsWith(field + ".")) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    interface Writer {
+        void write(String table, List<WriteModel<BsonDocument>> models);
+    }
+
+    private record Key(String table, String id) { }
+}
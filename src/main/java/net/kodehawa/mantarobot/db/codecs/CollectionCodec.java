@@ -0,0 +1,91 @@
+package net.kodehawa.mantarobot.db.codecs;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Collections as BSON arrays, the same way the driver's POJO codec writes collection properties.
+ */
+class CollectionCodec<T> implements Codec<Collection<T>> {
+    private final Class<Collection<T>> encoderClass;
+    private final Codec<T> codec;
+    // Null for interfaces, which get an ArrayList or a HashSet.
+    private final Constructor<Collection<T>> constructor;
+
+    CollectionCodec(final Class<Collection<T>> encoderClass, final Codec<T> codec) {
+        this.encoderClass = encoderClass;
+        this.codec = codec;
+
+        if (encoderClass.isInterface()) {
+            if (!encoderClass.isAssignableFrom(ArrayList.class) && !encoderClass.isAssignableFrom(HashSet.class)) {
+                throw new CodecConfigurationException("Unsupported collection interface " + encoderClass);
+            }
+
+            this.constructor = null;
+        } else {
+            try {
+                this.constructor = encoderClass.getDeclaredConstructor();
+            } catch (final NoSuchMethodException e) {
+                throw new CodecConfigurationException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void encode(final BsonWriter writer, final Collection<T> collection, final EncoderContext encoderContext) {
+        writer.writeStartArray();
+        for (final T value : collection) {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                codec.encode(writer, value, encoderContext);
+            }
+        }
+
+        writer.writeEndArray();
+    }
+
+    @Override
+    public Collection<T> decode(final BsonReader reader, final DecoderContext context) {
+        var collection = getInstance();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                collection.add(null);
+                reader.readNull();
+            } else {
+                collection.add(codec.decode(reader, context));
+            }
+        }
+
+        reader.readEndArray();
+        return collection;
+    }
+
+    @Override
+    public Class<Collection<T>> getEncoderClass() {
+        return encoderClass;
+    }
+
+    private Collection<T> getInstance() {
+        if (constructor == null) {
+            return encoderClass.isAssignableFrom(ArrayList.class) ? new ArrayList<>() : new HashSet<>();
+        }
+
+        try {
+            return constructor.newInstance();
+        } catch (final Exception e) {
+            throw new CodecConfigurationException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package net.kodehawa.mantarobot.db.codecs;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.BooleanCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DoubleCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.IntegerCodec;
+import org.bson.codecs.LongCodec;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.ClassModel;
+import org.bson.codecs.pojo.PropertyAccessor;
+import org.bson.codecs.pojo.PropertyModel;
+import org.bson.codecs.pojo.TypeWithTypeParameters;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codec for the entities that get decoded on almost every command. The schema (which properties there are, their
+ * names and types) comes from the same {@link ClassModel} the driver's POJO codec would use, so documents are
+ * read and written exactly the same way, but it's resolved once: properties are looked up by name on a hash map
+ * instead of a scan over every property, codecs are picked up front, and values are read and written through
+ * method handles, with primitive fields read straight from the stream without boxing.
+ *
+ * @param <T> The entity type. It needs a public zero arg constructor.
+ */
+public class EntityCodec<T> implements Codec<T> {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final ClassModel<T> classModel;
+    private final MethodHandle constructor;
+    // In the order the POJO codec writes them: id first.
+    private final Property[] readable;
+    private final boolean idReadable;
+    // By write name.
+    private final Map<String, Property> writable;
+    private final boolean partial;
+
+    EntityCodec(final ClassModel<T> classModel, final CodecRegistry registry) {
+        this.classModel = classModel;
+        var type = classModel.getType();
+        var lookup = lookup(type);
+
+        try {
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (final ReflectiveOperationException e) {
+            throw new CodecConfigurationException("No public zero arg constructor for " + type.getName(), e);
+        }
+
+        var models = new ArrayList<>(classModel.getPropertyModels());
+        var id = classModel.getIdPropertyModel();
+        if (id != null) {
+            models.remove(id);
+            models.add(0, id);
+        }
+
+        var readable = new ArrayList<Property>();
+        var writable = new HashMap<String, Property>();
+        for (var model : models) {
+            if (!model.isReadable() && !model.isWritable()) {
+                continue;
+            }
+
+            var property = Property.of(type, lookup, model, registry);
+            if (model.isReadable()) {
+                readable.add(property);
+            }
+
+            if (model.isWritable()) {
+                writable.put(model.getWriteName(), property);
+            }
+        }
+
+        this.readable = readable.toArray(Property[]::new);
+        this.idReadable = id != null && id.isReadable();
+        this.writable = Map.copyOf(writable);
+        this.partial = false;
+    }
+
+    private EntityCodec(final EntityCodec<T> codec, final Map<String, Property> writable) {
+        this.classModel = codec.classModel;
+        this.constructor = codec.constructor;
+        this.readable = codec.readable;
+        this.idReadable = codec.idReadable;
+        this.writable = writable;
+        this.partial = true;
+    }
+
+    /**
+     * A codec that only decodes some properties and skips everything else. Unselected properties keep whatever
+     * value the entity constructor gives them. This codec can't encode, but the entities it decodes could still be
+     * encoded by the full codec, so whoever reads them has to keep them from being saved whole.
+     *
+     * @param names The (document) names of the properties to decode.
+     * @return A codec that decodes only those.
+     */
+    public EntityCodec<T> selecting(final String... names) {
+        var selected = new HashMap<String, Property>();
+        for (var name : names) {
+            var property = writable.get(name);
+            if (property == null) {
+                throw new IllegalArgumentException("Unknown property " + name + " on " + classModel.getName());
+            }
+
+            selected.put(name, property);
+        }
+
+        return new EntityCodec<>(this, Map.copyOf(selected));
+    }
+
+    @Override
+    public void encode(final BsonWriter writer, final T value, final EncoderContext encoderContext) {
+        if (partial) {
+            throw new UnsupportedOperationException("Partially decoded entities can't be encoded");
+        }
+
+        writer.writeStartDocument();
+        for (var i = 0; i < readable.length; i++) {
+            // Right after the id, if there's one.
+            if (i == (idReadable ? 1 : 0) && classModel.useDiscriminator()) {
+                writer.writeString(classModel.getDiscriminatorKey(), classModel.getDiscriminator());
+            }
+
+            var property = readable[i];
+            try {
+                property.encode(writer, value);
+            } catch (final CodecConfigurationException e) {
+                throw new CodecConfigurationException(
+                        "Failed to encode '%s'. Encoding '%s' errored with: %s".formatted(classModel.getName(), property.readName, e.getMessage()), e
+                );
+            }
+        }
+
+        writer.writeEndDocument();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(final BsonReader reader, final DecoderContext decoderContext) {
+        T instance;
+        try {
+            instance = (T) (Object) constructor.invokeExact();
+        } catch (final Throwable e) {
+            throw new CodecConfigurationException("Couldn't create an instance of " + classModel.getName(), e);
+        }
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            var name = reader.readName();
+            var property = writable.get(name);
+            if (property == null) {
+                reader.skipValue();
+                continue;
+            }
+
+            try {
+                property.decode(reader, instance);
+            } catch (final RuntimeException e) {
+                throw new CodecConfigurationException(
+                        "Failed to decode '%s'. Decoding '%s' errored with: %s".formatted(classModel.getName(), name, e.getMessage()), e
+                );
+            }
+        }
+
+        reader.readEndDocument();
+        return instance;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return classModel.getType();
+    }
+
+    private static MethodHandles.Lookup lookup(final Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (final IllegalAccessException e) {
+            throw new CodecConfigurationException("Can't access " + type.getName(), e);
+        }
+    }
+
+    private abstract static class Property {
+        final String readName;
+
+        Property(final String readName) {
+            this.readName = readName;
+        }
+
+        abstract void encode(BsonWriter writer, Object instance);
+
+        abstract void decode(BsonReader reader, Object instance);
+
+        /**
+         * Handles are found the same way the driver's property accessors work: through the public getter and setter
+         * if there are any, or the field otherwise. Anything ambiguous goes through the driver's accessor instead.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static Property of(final Class<?> type, final MethodHandles.Lookup lookup, final PropertyModel<?> model, final CodecRegistry registry) {
+            var name = model.getName();
+            var capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            var getter = model.isReadable() ? getter(type, lookup, capitalized, name) : null;
+            var setter = model.isWritable() ? setter(type, lookup, capitalized, name) : null;
+            var readName = model.getReadName();
+
+            if ((!model.isReadable() || getter != null) && (!model.isWritable() || setter != null)) {
+                var primitive = primitiveType(getter, setter);
+                if (primitive == long.class) {
+                    return new LongProperty(readName, getter, setter);
+                } else if (primitive == int.class) {
+                    return new IntProperty(readName, getter, setter);
+                } else if (primitive == boolean.class) {
+                    return new BooleanProperty(readName, getter, setter);
+                } else if (primitive == double.class) {
+                    return new DoubleProperty(readName, getter, setter);
+                }
+            } else {
+                getter = null;
+                setter = null;
+            }
+
+            var codec = model.getCodec() != null ? model.getCodec() : resolve(model.getTypeData(), registry);
+            return new ObjectProperty(readName, model, getter, setter, (Codec) codec);
+        }
+
+        // The primitive type both handles share, if any.
+        private static Class<?> primitiveType(final MethodHandle getter, final MethodHandle setter) {
+            var getterType = getter == null ? null : getter.type().returnType();
+            var setterType = setter == null ? null : setter.type().parameterType(1);
+            var type = getterType != null ? getterType : setterType;
+            if (type == null || !type.isPrimitive() || (getterType != null && setterType != null && getterType != setterType)) {
+                return null;
+            }
+
+            return type;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Codec<?> resolve(final TypeWithTypeParameters<?> typeData, final CodecRegistry registry) {
+            var type = typeData.getType();
+            var parameters = typeData.getTypeParameters();
+            if (Collection.class.isAssignableFrom(type) && parameters.size() == 1) {
+                return new CollectionCodec(type, resolve(parameters.get(0), registry));
+            }
+
+            if (Map.class.isAssignableFrom(type) && parameters.size() == 2) {
+                var keyType = parameters.get(0);
+                var keyCodec = MapKeyCodec.of((Class) keyType.getType(), () -> (Codec) resolve(keyType, registry));
+                return new MapCodec(type, keyCodec, resolve(parameters.get(1), registry));
+            }
+
+            return registry.get(type);
+        }
+
+        private static MethodHandle getter(final Class<?> type, final MethodHandles.Lookup lookup, final String capitalized, final String name) {
+            var candidates = Arrays.stream(type.getMethods())
+                    .filter(method -> method.getParameterCount() == 0 && method.getReturnType() != void.class)
+                    .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                    .filter(method -> method.getName().equals("get" + capitalized) || method.getName().equals("is" + capitalized))
+                    .toList();
+
+            try {
+                if (candidates.size() == 1) {
+                    return lookup.unreflect(candidates.get(0));
+                }
+
+                var field = field(type, name);
+                if (candidates.isEmpty() && field != null && Modifier.isPublic(field.getModifiers())) {
+                    return lookup.unreflectGetter(field);
+                }
+            } catch (final IllegalAccessException ignored) { }
+
+            return null;
+        }
+
+        private static MethodHandle setter(final Class<?> type, final MethodHandles.Lookup lookup, final String capitalized, final String name) {
+            var candidates = Arrays.stream(type.getMethods())
+                    .filter(method -> method.getParameterCount() == 1 && method.getName().equals("set" + capitalized))
+                    .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                    .toList();
+
+            try {
+                if (candidates.size() == 1) {
+                    return lookup.unreflect(candidates.get(0)).asType(MethodType.methodType(void.class, type, candidates.get(0).getParameterTypes()[0]));
+                }
+
+                var field = field(type, name);
+                if (candidates.isEmpty() && field != null && !Modifier.isFinal(field.getModifiers())) {
+                    return lookup.unreflectSetter(field);
+                }
+            } catch (final IllegalAccessException ignored) { }
+
+            return null;
+        }
+
+        private static Field field(final Class<?> type, final String name) {
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                try {
+                    var field = current.getDeclaredField(name);
+                    return Modifier.isStatic(field.getModifiers()) ? null : field;
+                } catch (final NoSuchFieldException ignored) { }
+            }
+
+            return null;
+        }
+    }
+
+    private static final class ObjectProperty extends Property {
+        private final PropertyModel<Object> model;
+        private final PropertyAccessor<Object> accessor;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Codec<Object> codec;
+
+        @SuppressWarnings("unchecked")
+        ObjectProperty(final String readName, final PropertyModel<?> model, final MethodHandle getter, final MethodHandle setter, final Codec<Object> codec) {
+            super(readName);
+            this.model = (PropertyModel<Object>) model;
+            this.accessor = this.model.getPropertyAccessor();
+            this.getter = getter == null ? null : getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.codec = codec;
+        }
+
+        @Override
+        void encode(final BsonWriter writer, final Object instance) {
+            Object value;
+            try {
+                value = getter == null ? accessor.get(instance) : (Object) getter.invokeExact(instance);
+            } catch (final Throwable e) {
+                throw new CodecConfigurationException(e.getMessage(), e);
+            }
+
+            if (!model.shouldSerialize(value)) {
+                return;
+            }
+
+            writer.writeName(readName);
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                codec.encode(writer, value, ENCODER_CONTEXT);
+            }
+        }
+
+        @Override
+        void decode(final BsonReader reader, final Object instance) {
+            Object value = null;
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+            } else {
+                value = codec.decode(reader, DECODER_CONTEXT);
+            }
+
+            try {
+                if (setter == null) {
+                    accessor.set(instance, value);
+                } else {
+                    setter.invokeExact(instance, value);
+                }
+            } catch (final Throwable e) {
+                throw new CodecConfigurationException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // Primitive properties: read straight from the stream when the type matches, through the boxed codec otherwise
+    // (numbers stored as another numeric type). A null leaves the field as it is.
+
+    private static final class LongProperty extends Property {
+        private static final LongCodec codec = new LongCodec();
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        LongProperty(final String readName, final MethodHandle getter, final MethodHandle setter) {
+            super(readName);
+            this.getter = getter == null ? null : getter.asType(MethodType.methodType(long.class, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+        }
+
+        @Override
+        void encode(final BsonWriter writer, final Object instance) {
+            try {
+                writer.writeInt64(readName, (long) getter.invokeExact(instance));
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void decode(final BsonReader reader, final Object instance) {
+            var type = reader.getCurrentBsonType();
+            if (type == BsonType.NULL) {
+                reader.readNull();
+                return;
+            }
+
+            long value = type == BsonType.INT64 ? reader.readInt64() : codec.decode(reader, DECODER_CONTEXT);
+            try {
+                setter.invokeExact(instance, value);
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class IntProperty extends Property {
+        private static final IntegerCodec codec = new IntegerCodec();
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        IntProperty(final String readName, final MethodHandle getter, final MethodHandle setter) {
+            super(readName);
+            this.getter = getter == null ? null : getter.asType(MethodType.methodType(int.class, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+        }
+
+        @Override
+        void encode(final BsonWriter writer, final Object instance) {
+            try {
+                writer.writeInt32(readName, (int) getter.invokeExact(instance));
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void decode(final BsonReader reader, final Object instance) {
+            var type = reader.getCurrentBsonType();
+            if (type == BsonType.NULL) {
+                reader.readNull();
+                return;
+            }
+
+            int value = type == BsonType.INT32 ? reader.readInt32() : codec.decode(reader, DECODER_CONTEXT);
+            try {
+                setter.invokeExact(instance, value);
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class BooleanProperty extends Property {
+        private static final BooleanCodec codec = new BooleanCodec();
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        BooleanProperty(final String readName, final MethodHandle getter, final MethodHandle setter) {
+            super(readName);
+            this.getter = getter == null ? null : getter.asType(MethodType.methodType(boolean.class, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+        }
+
+        @Override
+        void encode(final BsonWriter writer, final Object instance) {
+            try {
+                writer.writeBoolean(readName, (boolean) getter.invokeExact(instance));
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void decode(final BsonReader reader, final Object instance) {
+            var type = reader.getCurrentBsonType();
+            if (type == BsonType.NULL) {
+                reader.readNull();
+                return;
+            }
+
+            boolean value = type == BsonType.BOOLEAN ? reader.readBoolean() : codec.decode(reader, DECODER_CONTEXT);
+            try {
+                setter.invokeExact(instance, value);
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class DoubleProperty extends Property {
+        private static final DoubleCodec codec = new DoubleCodec();
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        DoubleProperty(final String readName, final MethodHandle getter, final MethodHandle setter) {
+            super(readName);
+            this.getter = getter == null ? null : getter.asType(MethodType.methodType(double.class, Object.class));
+            this.setter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+        }
+
+        @Override
+        void encode(final BsonWriter writer, final Object instance) {
+            try {
+                writer.writeDouble(readName, (double) getter.invokeExact(instance));
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void decode(final BsonReader reader, final Object instance) {
+            var type = reader.getCurrentBsonType();
+            if (type == BsonType.NULL) {
+                reader.readNull();
+                return;
+            }
+
+            double value = type == BsonType.DOUBLE ? reader.readDouble() : codec.decode(reader, DECODER_CONTEXT);
+            try {
+                setter.invokeExact(instance, value);
+            } catch (final Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(final Throwable e) {
+        if (e instanceof RuntimeException runtime) {
+            return runtime;
+        }
+
+        if (e instanceof Error error) {
+            throw error;
+        }
+
+        return new CodecConfigurationException(e.getMessage(), e);
+    }
+}
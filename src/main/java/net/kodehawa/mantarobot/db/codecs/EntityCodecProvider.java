@@ -0,0 +1,55 @@
+package net.kodehawa.mantarobot.db.codecs;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.ClassModel;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.annotations.BsonExtraElements;
+
+import java.lang.reflect.AccessibleObject;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Provides {@link EntityCodec}s for the given entity classes. Has to go before the POJO codec provider.
+ * Entities using features EntityCodec doesn't handle (representations, extra elements) are left to the POJO codec.
+ */
+public class EntityCodecProvider implements CodecProvider {
+    private final List<Convention> conventions;
+    private final Set<Class<?>> types;
+
+    /**
+     * @param conventions The conventions the POJO codec provider uses.
+     * @param types The entity classes to provide codecs for.
+     */
+    public EntityCodecProvider(final List<Convention> conventions, final Class<?>... types) {
+        this.conventions = List.copyOf(conventions);
+        this.types = Set.of(types);
+    }
+
+    @Override
+    public <T> Codec<T> get(final Class<T> clazz, final CodecRegistry registry) {
+        if (!types.contains(clazz)) {
+            return null;
+        }
+
+        var classModel = ClassModel.builder(clazz).conventions(conventions).build();
+        if (!isSupported(classModel)) {
+            return null;
+        }
+
+        return new EntityCodec<>(classModel, registry);
+    }
+
+    private static boolean isSupported(final ClassModel<?> classModel) {
+        if (classModel.getPropertyModels().stream().anyMatch(model -> model.getBsonRepresentation() != null)) {
+            return false;
+        }
+
+        var type = classModel.getType();
+        return Stream.<AccessibleObject>concat(Stream.of(type.getDeclaredFields()), Stream.of(type.getMethods()))
+                .noneMatch(member -> member.isAnnotationPresent(BsonExtraElements.class));
+    }
+}
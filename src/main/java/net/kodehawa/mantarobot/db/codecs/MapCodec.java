@@ -1,7 +1,5 @@
 package net.kodehawa.mantarobot.db.codecs;
 
-import org.bson.BsonDocument;
-import org.bson.BsonDocumentWriter;
 import org.bson.BsonReader;
 import org.bson.BsonType;
 import org.bson.BsonWriter;
@@ -9,40 +7,35 @@ import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecConfigurationException;
-import org.bson.json.JsonReader;
 
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 public class MapCodec<K, T> implements Codec<Map<K, T>> {
     private final Class<Map<K, T>> encoderClass;
-    private final Codec<K> keyCodec;
+    private final MapKeyCodec<K> keyCodec;
     private final Codec<T> valueCodec;
+    // Null for interfaces, which get a HashMap.
+    private final Constructor<Map<K, T>> constructor;
 
-    MapCodec(final Class<Map<K, T>> encoderClass, final Codec<K> keyCodec, final Codec<T> valueCodec) {
+    MapCodec(final Class<Map<K, T>> encoderClass, final MapKeyCodec<K> keyCodec, final Codec<T> valueCodec) {
         this.encoderClass = encoderClass;
         this.keyCodec = keyCodec;
         this.valueCodec = valueCodec;
+        this.constructor = encoderClass.isInterface() ? null : findConstructor(encoderClass);
     }
 
     @Override
     public void encode(final BsonWriter writer, final Map<K, T> map, final EncoderContext encoderContext) {
-        try (var dummyWriter = new BsonDocumentWriter(new BsonDocument())) {
-            dummyWriter.writeStartDocument();
-            writer.writeStartDocument();
-            for (final Map.Entry<K, T> entry : map.entrySet()) {
-                var dummyId = UUID.randomUUID().toString();
-                dummyWriter.writeName(dummyId);
-                keyCodec.encode(dummyWriter, entry.getKey(), encoderContext);
-
-                var documentValue = dummyWriter.getDocument().asDocument().get(dummyId);
-                writer.writeName(documentValue.asString().getValue());
-
+        writer.writeStartDocument();
+        for (final Map.Entry<K, T> entry : map.entrySet()) {
+            writer.writeName(keyCodec.encode(entry.getKey()));
+            if (entry.getValue() == null) {
+                writer.writeNull();
+            } else {
                 valueCodec.encode(writer, entry.getValue(), encoderContext);
             }
-
-            dummyWriter.writeEndDocument();
         }
 
         writer.writeEndDocument();
@@ -53,18 +46,13 @@ public class MapCodec<K, T> implements Codec<Map<K, T>> {
         reader.readStartDocument();
         Map<K, T> map = getInstance();
         while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
-            var nameReader = new JsonReader("{\"key:\":\"" + reader.readName() + "\"}");
-            nameReader.readStartDocument();
-            nameReader.readBsonType();
-
+            var key = keyCodec.decode(reader.readName());
             if (reader.getCurrentBsonType() == BsonType.NULL) {
-                map.put(keyCodec.decode(nameReader, context), null);
+                map.put(key, null);
                 reader.readNull();
             } else {
-                map.put(keyCodec.decode(nameReader, context), valueCodec.decode(reader, context));
+                map.put(key, valueCodec.decode(reader, context));
             }
-
-            nameReader.readEndDocument();
         }
 
         reader.readEndDocument();
@@ -77,14 +65,22 @@ public class MapCodec<K, T> implements Codec<Map<K, T>> {
     }
 
     private Map<K, T> getInstance() {
-        if (encoderClass.isInterface()) {
+        if (constructor == null) {
             return new HashMap<>();
         }
 
         try {
-            return encoderClass.getDeclaredConstructor().newInstance();
+            return constructor.newInstance();
         } catch (final Exception e) {
             throw new CodecConfigurationException(e.getMessage(), e);
         }
     }
+
+    private static <M> Constructor<M> findConstructor(final Class<M> type) {
+        try {
+            return type.getDeclaredConstructor();
+        } catch (final NoSuchMethodException e) {
+            throw new CodecConfigurationException(e.getMessage(), e);
+        }
+    }
 }
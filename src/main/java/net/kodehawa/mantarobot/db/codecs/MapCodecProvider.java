@@ -12,10 +12,16 @@ public class MapCodecProvider implements PropertyCodecProvider {
     @SuppressWarnings({"rawtypes", "unchecked"})
     public <T> Codec<T> get(final TypeWithTypeParameters<T> type, final PropertyCodecRegistry registry) {
         if (Map.class.isAssignableFrom(type.getType()) && type.getTypeParameters().size() == 2) {
-            return new MapCodec(type.getType(), registry.get(type.getTypeParameters().get(0)), registry.get(type.getTypeParameters().get(1)));
+            var keyCodec = keyCodec(type.getTypeParameters().get(0), registry);
+            return new MapCodec(type.getType(), keyCodec, registry.get(type.getTypeParameters().get(1)));
         } else {
             return null;
         }
     }
+
+    private static <K> MapKeyCodec<K> keyCodec(final TypeWithTypeParameters<K> type, final PropertyCodecRegistry registry) {
+        // The registry is only needed for key types without a specialized codec.
+        return MapKeyCodec.of(type.getType(), () -> registry.get(type));
+    }
 }
 
@@ -0,0 +1,161 @@
+package net.kodehawa.mantarobot.db.codecs;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonString;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Turns map keys into BSON field names and back. The common key types are done directly, anything else goes
+ * through the key's own codec, which has to write it as a string.
+ */
+interface MapKeyCodec<K> {
+    String encode(K key);
+
+    K decode(String name);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <K> MapKeyCodec<K> of(final Class<K> keyClass, final Supplier<Codec<K>> codec) {
+        if (keyClass == String.class) {
+            return (MapKeyCodec<K>) StringKeys.INSTANCE;
+        }
+
+        if (keyClass == Long.class) {
+            return (MapKeyCodec<K>) LongKeys.INSTANCE;
+        }
+
+        if (keyClass == Integer.class) {
+            return (MapKeyCodec<K>) IntegerKeys.INSTANCE;
+        }
+
+        if (keyClass.isEnum()) {
+            return new EnumKeys(keyClass);
+        }
+
+        return new CodecKeys<>(codec.get());
+    }
+
+    final class StringKeys implements MapKeyCodec<String> {
+        static final StringKeys INSTANCE = new StringKeys();
+
+        @Override
+        public String encode(final String key) {
+            return key;
+        }
+
+        @Override
+        public String decode(final String name) {
+            return name;
+        }
+    }
+
+    final class LongKeys implements MapKeyCodec<Long> {
+        static final LongKeys INSTANCE = new LongKeys();
+
+        @Override
+        public String encode(final Long key) {
+            return key.toString();
+        }
+
+        @Override
+        public Long decode(final String name) {
+            return Long.valueOf(name);
+        }
+    }
+
+    final class IntegerKeys implements MapKeyCodec<Integer> {
+        static final IntegerKeys INSTANCE = new IntegerKeys();
+
+        @Override
+        public String encode(final Integer key) {
+            return key.toString();
+        }
+
+        @Override
+        public Integer decode(final String name) {
+            return Integer.valueOf(name);
+        }
+    }
+
+    /**
+     * Writes enums by name, same as the driver's enum codec does.
+     */
+    final class EnumKeys<E extends Enum<E>> implements MapKeyCodec<E> {
+        private final Class<E> enumClass;
+        private final String[] names;
+        private final Map<String, E> values;
+
+        EnumKeys(final Class<E> enumClass) {
+            var constants = enumClass.getEnumConstants();
+            this.enumClass = enumClass;
+            this.names = new String[constants.length];
+            this.values = new HashMap<>(constants.length * 2);
+            for (var constant : constants) {
+                names[constant.ordinal()] = constant.name();
+                values.put(constant.name(), constant);
+            }
+        }
+
+        @Override
+        public String encode(final E key) {
+            return names[key.ordinal()];
+        }
+
+        @Override
+        public E decode(final String name) {
+            var value = values.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("No enum constant " + enumClass.getCanonicalName() + "." + name);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Encodes the key as the value of a single field document and reads the name back from it.
+     */
+    final class CodecKeys<K> implements MapKeyCodec<K> {
+        private static final String FIELD = "key";
+        private final Codec<K> codec;
+
+        CodecKeys(final Codec<K> codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public String encode(final K key) {
+            var document = new BsonDocument();
+            try (var writer = new BsonDocumentWriter(document)) {
+                writer.writeStartDocument();
+                writer.writeName(FIELD);
+                codec.encode(writer, key, EncoderContext.builder().build());
+                writer.writeEndDocument();
+            }
+
+            var value = document.get(FIELD);
+            if (!value.isString()) {
+                throw new CodecConfigurationException("Map keys must be written as strings, got " + value.getBsonType());
+            }
+
+            return value.asString().getValue();
+        }
+
+        @Override
+        public K decode(final String name) {
+            try (var reader = new BsonDocumentReader(new BsonDocument(FIELD, new BsonString(name)))) {
+                reader.readStartDocument();
+                reader.readName();
+                return codec.decode(reader, DecoderContext.builder().build());
+            }
+        }
+    }
+}
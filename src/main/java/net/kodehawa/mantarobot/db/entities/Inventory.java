@@ -113,10 +113,17 @@ public class Inventory {
     }
 
     public static List<ItemStack> unserialize(Map<String, Integer> map) {
-        //noinspection OptionalGetWithoutIsPresent
-        return map.entrySet().stream().filter(e -> e.getValue() != 0)
-                .filter(e -> ItemHelper.fromTranslationSlice(e.getKey()).isPresent())
-                .map(entry -> new ItemStack(ItemHelper.fromTranslationSlice(entry.getKey()).get(), Math.max(Math.min(entry.getValue(), ItemStack.MAX_STACK_SIZE), 0)))
-                .collect(Collectors.toList());
+        List<ItemStack> stacks = new ArrayList<>(map.size());
+        for (var entry : map.entrySet()) {
+            if (entry.getValue() == 0) {
+                continue;
+            }
+
+            ItemHelper.fromTranslationSlice(entry.getKey()).ifPresent(item ->
+                    stacks.add(new ItemStack(item, Math.max(Math.min(entry.getValue(), ItemStack.MAX_STACK_SIZE), 0)))
+            );
+        }
+
+        return stacks;
     }
 }
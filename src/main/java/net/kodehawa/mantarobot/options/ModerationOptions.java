@@ -22,6 +22,7 @@ import net.dv8tion.jda.api.entities.ISnowflake;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.StandardGuildMessageChannel;
+import net.kodehawa.mantarobot.core.listeners.entities.MessageCache;
 import net.kodehawa.mantarobot.core.modules.commands.base.CommandPermission;
 import net.kodehawa.mantarobot.options.annotations.Option;
 import net.kodehawa.mantarobot.options.core.OptionHandler;
@@ -129,6 +130,7 @@ public class ModerationOptions extends OptionHandler {
                 var dbGuild = ctx.getDBGuild();
                 dbGuild.guildLogChannel(textChannel.getId());
                 dbGuild.updateAllChanged();
+                MessageCache.updateSnapshot(dbGuild);
                 ctx.sendLocalized("options.logs_enable.success", EmoteReference.MEGA, textChannel.getName(), textChannel.getId());
             };
 
@@ -153,6 +155,7 @@ public class ModerationOptions extends OptionHandler {
             if (args[0].equals("clearchannels")) {
                 dbGuild.clearLogExcludedChannels();
                 dbGuild.updateAllChanged();
+                MessageCache.updateSnapshot(dbGuild);
                 ctx.sendLocalized("options.logs_exclude.clearchannels.success", EmoteReference.OK);
                 return;
             }
@@ -168,6 +171,7 @@ public class ModerationOptions extends OptionHandler {
                     var dbGuildFinal = ctx.getDBGuild();
                     dbGuildFinal.removeLogExcludedChannel(textChannel.getId());
                     dbGuildFinal.updateAllChanged();
+                    MessageCache.updateSnapshot(dbGuildFinal);
                     ctx.sendLocalized("options.logs_exclude.remove.success", EmoteReference.OK, textChannel.getAsMention());
                 };
 
@@ -184,6 +188,7 @@ public class ModerationOptions extends OptionHandler {
                 var dbGuildFinal = ctx.getDBGuild();
                 dbGuildFinal.addLogExcludedChannel(textChannel.getId());
                 dbGuildFinal.updateAllChanged();
+                MessageCache.updateSnapshot(dbGuildFinal);
                 ctx.sendLocalized("options.logs_exclude.success", EmoteReference.OK, textChannel.getAsMention());
             };
 
@@ -233,6 +238,7 @@ public class ModerationOptions extends OptionHandler {
             var dbGuild = ctx.getDBGuild();
             dbGuild.guildLogChannel(null);
             dbGuild.updateAllChanged();
+            MessageCache.updateSnapshot(dbGuild);
             ctx.sendLocalized("options.logs_disable.success", EmoteReference.MEGA);
         });
 
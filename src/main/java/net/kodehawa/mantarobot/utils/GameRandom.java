@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Randomness for gameplay: currency rolls, drops, games, picking responses and such.
+ * Every thread gets its own {@link SplittableRandom}, split off a common root, so rolls never wait on each other
+ * or on the system's entropy like a shared {@link java.security.SecureRandom} does. None of this is fit for
+ * anything that has to be unpredictable (keys, tokens): use SecureRandom for those.
+ * <p>
+ * The root can be seeded with {@link #setSeed(long)}, which makes rolls repeatable for a single thread (say, a test).
+ */
+public final class GameRandom {
+    private static final Random INSTANCE = new ThreadLocalGenerator();
+    private static final ThreadLocal<Generator> generators = new ThreadLocal<>();
+    private static SplittableRandom root = new SplittableRandom();
+    private static volatile int generation;
+
+    private GameRandom() { }
+
+    /**
+     * @return A {@link Random} that can be shared by every thread: each call goes to the generator of the calling thread.
+     *         Its seed can't be set, use {@link #setSeed(long)} instead.
+     */
+    public static Random get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Seeds the root every generator comes from. Every thread starts over from it on its next roll.
+     *
+     * @param seed The new seed.
+     */
+    public static synchronized void setSeed(long seed) {
+        root = new SplittableRandom(seed);
+        generation++;
+    }
+
+    private static SplittableRandom current() {
+        var generator = generators.get();
+        var currentGeneration = generation;
+        if (generator == null || generator.generation() != currentGeneration) {
+            generator = new Generator(currentGeneration, split());
+            generators.set(generator);
+        }
+
+        return generator.random();
+    }
+
+    private static synchronized SplittableRandom split() {
+        return root.split();
+    }
+
+    private record Generator(int generation, SplittableRandom random) { }
+
+    // Hands every call to the generator of the current thread, so it's never contended.
+    private static class ThreadLocalGenerator extends Random {
+        private final boolean initialized;
+
+        ThreadLocalGenerator() {
+            initialized = true;
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            // Random's constructor calls this.
+            if (initialized) {
+                throw new UnsupportedOperationException("Use GameRandom#setSeed");
+            }
+        }
+
+        @Override
+        protected int next(int bits) {
+            return current().nextInt() >>> (32 - bits);
+        }
+
+        @Override
+        public int nextInt() {
+            return current().nextInt();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return current().nextInt(bound);
+        }
+
+        @Override
+        public long nextLong() {
+            return current().nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return current().nextBoolean();
+        }
+
+        @Override
+        public float nextFloat() {
+            return (current().nextInt() >>> 8) * 0x1.0p-24f;
+        }
+
+        @Override
+        public double nextDouble() {
+            return current().nextDouble();
+        }
+    }
+}
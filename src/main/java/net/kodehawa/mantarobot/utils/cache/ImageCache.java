@@ -17,93 +17,207 @@
 
 package net.kodehawa.mantarobot.utils.cache;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.kodehawa.mantarobot.commands.action.WeebAPIRequester;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.data.JsonDataManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Random;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Random images for action commands. Every type keeps a few upcoming images fetched ahead of time, so commands
+ * don't have to wait on weeb.sh, and the buffer is topped up in the background once it runs low.
+ * Every image fetched is also added to a Redis set per type, which is where images come from if weeb.sh is down.
+ */
 public class ImageCache {
-    @JsonIgnore
-    private static final Random rand = new Random();
-    @JsonIgnore
+    private static final Logger log = LoggerFactory.getLogger(ImageCache.class);
     private static final WeebAPIRequester weebAPI = new WeebAPIRequester();
+    // How many images to keep ready per type, and how low it can get before fetching more.
+    private static final int BUFFER_SIZE = 8;
+    private static final int REFILL_AT = 3;
+    private static final String KEY_PREFIX = "image-cache:";
+    // Where the fallback images used to be, as a hash of type to a JSON list of images.
+    private static final String LEGACY_KEY = "image-cache";
+    private static final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private static final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2,
+            new ThreadFactoryBuilder()
+                    .setNameFormat("ImageCache Prefetch-%d")
+                    .setDaemon(true)
+                    .build()
+    );
 
-    private static final Logger log = LoggerFactory.getLogger(ImageCache.class);
-    private final List<ImageCacheType> images = new ArrayList<>();
+    public static WeebAPIRequester.WeebAPIObject getImage(String type) throws NoSuchElementException, JsonProcessingException {
+        var buffer = buffers.computeIfAbsent(type, Buffer::new);
+        var result = buffer.poll();
+        buffer.refillIfLow();
+        if (result != null) {
+            return result;
+        }
 
-    public List<ImageCacheType> getImages() {
-        return images;
+        // Nothing ready (first use, or weeb.sh can't keep up), so fetch it now.
+        try {
+            result = fetch(type);
+        } catch (Exception e) {
+            log.debug("Error getting image from WeebAPI, attempting fallback", e);
+        }
+
+        if (result != null) {
+            store(type, List.of(result));
+            return result;
+        }
+
+        // API is dead, again.
+        return fallback(type);
     }
 
-    @JsonIgnore
-    public boolean containsImage(String hash) {
-        return images.stream()
-                .filter(type -> type.id() != null) // How?
-                .anyMatch(type -> type.id().equals(hash));
+    private static WeebAPIRequester.WeebAPIObject fetch(String type) throws JsonProcessingException {
+        var result = weebAPI.getRandomImageByType(type, false, "gif");
+        // How any of this ones can be null is out of my understanding
+        // but it happens
+        if (result == null || result.id() == null || result.type() == null || result.url() == null) {
+            return null;
+        }
+
+        return result;
     }
 
-    @JsonIgnore
-    public static WeebAPIRequester.WeebAPIObject getImage(String type) throws NoSuchElementException, JsonProcessingException {
-        // Having this on the method call itself caused this to fail prematurely.
-        WeebAPIRequester.WeebAPIObject result = null;
+    private static void store(String type, List<WeebAPIRequester.WeebAPIObject> images) {
+        var members = new String[images.size()];
         try {
-            result = weebAPI.getRandomImageByType(type, false, "gif");
+            for (int i = 0; i < members.length; i++) {
+                var image = images.get(i);
+                members[i] = JsonDataManager.toJson(new ImageCacheType(image.type(), image.url(), image.id()));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Couldn't serialize cached images for {}", type, e);
+            return;
+        }
+
+        var key = KEY_PREFIX + type;
+        try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
+            jedis.sadd(key, members);
+            // Expire the entire cache in 10 days, assuming we have no expiry set.
+            if (jedis.ttl(key) == -1) { // NX option was added in Redis 7, and I spent a solid 20 minutes without realizing this.
+                jedis.expire(key, TimeUnit.DAYS.toSeconds(10));
+            }
         } catch (Exception e) {
-            log.debug("Error getting image from WeebAPI, attempting fallback", e);
+            log.warn("Couldn't save cached images for {}", type, e);
         }
+    }
 
-        if (result != null) {
-            try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
-                var cached = jedis.hget("image-cache", type);
-                ImageCache cache;
-                if (cached == null) {
-                    cache = new ImageCache(); // No cache saved?
-                } else {
-                    cache = JsonDataManager.fromJson(cached, ImageCache.class);
-                }
+    private static WeebAPIRequester.WeebAPIObject fallback(String type) throws JsonProcessingException {
+        String member;
+        try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
+            member = jedis.srandmember(KEY_PREFIX + type);
+            if (member == null) {
+                member = migrateLegacy(jedis, type);
+            }
+        }
 
-                // How any of this ones can be null is out of my understanding
-                // but it happens
-                var pass = result.id() != null && result.type() != null && result.url() != null;
-                if (pass && !cache.containsImage(result.id())) {
-                    cache.getImages().add(new ImageCacheType(result.type(), result.url(), result.id()));
-                    jedis.hset("image-cache", type, JsonDataManager.toJson(cache));
+        if (member == null) {
+            throw new NoSuchElementException();
+        }
 
-                    // Expire the entire cache in 10 days, assuming we have no expiry set.
-                    if (jedis.ttl("image-cache") == -1) { // NX option was added in Redis 7, and I spent a solid 20 minutes without realizing this.
-                        jedis.expire("image-cache", TimeUnit.DAYS.toSeconds(10));
-                    }
-                }
-            }
-        } else { // API is dead, again.
-            try (var jedis = MantaroData.getDefaultJedisPool().getResource()) {
-                var cache = jedis.hget("image-cache", type);
-                if (cache != null) {
-                    var cacheData = JsonDataManager.fromJson(cache, ImageCache.class);
-                    var images = cacheData.getImages();
-                    var res = images.get(rand.nextInt(images.size()));
-                    // We probably want to cache the actual image too somewhere? This kinda assumes the API is dead but the CDN isn't, which
-                    // isn't always true...
-                    // Also, this feels kinda hacky.
-                    result = new WeebAPIRequester.WeebAPIObject(
-                            res.id(), res.url(), "gif", false, type, Collections.emptyList()
-                    );
-                } else {
-                    throw new NoSuchElementException();
-                }
+        var res = JsonDataManager.fromJson(member, ImageCacheType.class);
+        // We probably want to cache the actual image too somewhere? This kinda assumes the API is dead but the CDN isn't, which
+        // isn't always true...
+        // Also, this feels kinda hacky.
+        return new WeebAPIRequester.WeebAPIObject(
+                res.id(), res.url(), "gif", false, type, Collections.emptyList()
+        );
+    }
+
+    // Moves the images of a type from the old JSON hash to its set, and returns one of them (or null if there were none).
+    private static String migrateLegacy(Jedis jedis, String type) throws JsonProcessingException {
+        var legacy = jedis.hget(LEGACY_KEY, type);
+        if (legacy == null) {
+            return null;
+        }
+
+        var images = JsonDataManager.fromJson(legacy, LegacyImages.class).images();
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+
+        var members = new String[images.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = JsonDataManager.toJson(images.get(i));
+        }
+
+        var key = KEY_PREFIX + type;
+        jedis.sadd(key, members);
+        jedis.expire(key, TimeUnit.DAYS.toSeconds(10));
+        jedis.hdel(LEGACY_KEY, type);
+        return members[0];
+    }
+
+    private record LegacyImages(List<ImageCacheType> images) { }
+
+    private static class Buffer {
+        private final String type;
+        private final Queue<WeebAPIRequester.WeebAPIObject> images = new ConcurrentLinkedQueue<>();
+        // ConcurrentLinkedQueue#size walks the queue.
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private Buffer(String type) {
+            this.type = type;
+        }
+
+        private WeebAPIRequester.WeebAPIObject poll() {
+            var image = images.poll();
+            if (image != null) {
+                size.decrementAndGet();
             }
+
+            return image;
         }
 
-        return result;
+        private void refillIfLow() {
+            if (size.get() > REFILL_AT || !refilling.compareAndSet(false, true)) {
+                return;
+            }
+
+            prefetchExecutor.execute(() -> {
+                try {
+                    var fetched = new ArrayList<WeebAPIRequester.WeebAPIObject>();
+                    for (int i = size.get(); i < BUFFER_SIZE; i++) {
+                        var image = fetch(type);
+                        // If weeb.sh is having trouble, just try again on the next command.
+                        if (image == null) {
+                            break;
+                        }
+
+                        fetched.add(image);
+                        images.add(image);
+                        size.incrementAndGet();
+                    }
+
+                    if (!fetched.isEmpty()) {
+                        store(type, fetched);
+                    }
+                } catch (Exception e) {
+                    log.debug("Error prefetching images for {}", type, e);
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
     }
 }
@@ -18,84 +18,296 @@
 package net.kodehawa.mantarobot.utils.cache;
 
 import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
 import net.kodehawa.mantarobot.utils.Utils;
 import okhttp3.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Downloads files once and keeps them on disk, up to a total size. Files are named after the hash of their URL,
+ * so the directory itself is the index: it's read back on startup, with the last modified time of each file
+ * (bumped on every hit) as its last use. Once over budget, the least recently used files get deleted.
+ * Concurrent requests for a URL that's being downloaded wait on that download instead of starting their own.
+ * Files are pinned while they're being looked up and opened, so eviction can't delete them in between.
+ */
 public class URLCache {
+    private static final Logger log = LoggerFactory.getLogger(URLCache.class);
     public static final File DEFAULT_CACHE_DIR = new File("urlcache_files");
-    private static final Map<String, File> saved = new ConcurrentHashMap<>();
-    private final FileCache cache;
-    private final File cacheDir;
+    public static final URLCache DEFAULT = new URLCache(DEFAULT_CACHE_DIR, 256L * 1024 * 1024);
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    // File name to size, in access order.
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+    // File name to how many lookups are using it. Pinned files aren't evicted.
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private long totalBytes;
+
+    /**
+     * @param cacheDir The directory to keep files on. Anything else on it counts towards the budget.
+     * @param maxBytes How much space files can take in total.
+     */
+    public URLCache(File cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir.toPath();
+        this.maxBytes = maxBytes;
+
+        try {
+            if (Files.exists(this.cacheDir) && !Files.isDirectory(this.cacheDir)) {
+                Files.delete(this.cacheDir);
+            }
 
-    public URLCache(File cacheDir, int cacheSize) {
-        this.cacheDir = cacheDir;
-        var path = cacheDir.toPath();
+            Files.createDirectories(this.cacheDir);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void load() throws IOException {
+        var found = new ArrayList<Path>();
+        try (var stream = Files.list(cacheDir)) {
+            for (var path : (Iterable<Path>) stream::iterator) {
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
 
-        if (Files.exists(path) && !Files.isDirectory(path)) {
+                // Left over from a download that didn't finish.
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+
+                found.add(path);
+            }
+        }
+
+        found.sort(Comparator.comparing(path -> {
             try {
-                Files.delete(path);
-                Files.createDirectories(path);
+                return Files.getLastModifiedTime(path);
             } catch (IOException e) {
-                throw new UncheckedIOException(e);
+                return FileTime.fromMillis(0);
             }
+        }));
+
+        synchronized (this) {
+            for (var path : found) {
+                var size = Files.size(path);
+                files.put(path.getFileName().toString(), size);
+                totalBytes += size;
+            }
+
+            evict();
         }
 
-        cache = new FileCache(cacheSize);
+        log.debug("Loaded {} cached files ({} bytes) from {}", files.size(), totalBytes, cacheDir);
     }
 
-    public URLCache(int cacheSize) {
-        this(DEFAULT_CACHE_DIR, cacheSize);
+    /**
+     * @param url The URL to get.
+     * @return The file for it. It can get evicted once this returns, so prefer {@link #getInput(String)} to read it.
+     */
+    public File getFile(String url) {
+        var name = nameOf(url);
+        pin(name);
+        try {
+            return getPath(url, name).toFile();
+        } finally {
+            unpin(name);
+        }
     }
 
-    public File getFile(String url) {
-        var cachedFile = saved.get(Preconditions.checkNotNull(url, "url"));
-        if (cachedFile != null) {
-            return cachedFile;
+    /**
+     * @param url The URL to get.
+     * @return A stream over the file, memory-mapped so it doesn't get copied into the heap.
+     */
+    public InputStream getInput(String url) {
+        var name = nameOf(url);
+        pin(name);
+        try (var channel = FileChannel.open(getPath(url, name), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed, even if the file gets evicted meanwhile.
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            unpin(name);
         }
+    }
 
-        File file = null;
+    private static String nameOf(String url) {
+        return Hashing.sha256().hashString(Preconditions.checkNotNull(url, "url"), StandardCharsets.UTF_8).toString();
+    }
 
-        try {
-            file = new File(cacheDir, url.replace('/', '_').replace(':', '_'));
-            var r = new Request.Builder()
-                    .url(url)
-                    .build();
+    private synchronized void pin(String name) {
+        pinned.merge(name, 1, Integer::sum);
+    }
+
+    private synchronized void unpin(String name) {
+        pinned.computeIfPresent(name, (key, count) -> count == 1 ? null : count - 1);
+        // Whatever got skipped while it was pinned.
+        evict();
+    }
+
+    // The caller must have pinned the name, so the file is still there when it gets to use it.
+    private Path getPath(String url, String name) {
+        var path = cacheDir.resolve(name);
 
-            try (var response = Utils.httpClient.newCall(r).execute(); var fos = new FileOutputStream(file)) {
-                var body = response.body();
+        boolean cached;
+        synchronized (this) {
+            cached = files.get(name) != null;
+        }
 
-                if (body == null) {
-                    throw new IllegalStateException("Null response body! Code: " + response.code() + " " + response.message());
+        if (cached) {
+            try {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                return path;
+            } catch (IOException e) {
+                // Deleted from under us, just download it again.
+                synchronized (this) {
+                    var size = files.remove(name);
+                    if (size != null) {
+                        totalBytes -= size;
+                    }
                 }
+            }
+        }
 
-                body.byteStream().transferTo(fos);
-                saved.put(url, file);
-                return file;
+        var download = new CompletableFuture<Path>();
+        var existing = downloads.putIfAbsent(name, download);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Couldn't download " + url, e.getCause());
             }
+        }
+
+        try {
+            download(url, path);
+            download.complete(path);
+            return path;
         } catch (Exception e) {
-            if (file != null) {
-                try {
-                    Files.delete(file.toPath());
-                } catch (IOException e2) {
-                    e.addSuppressed(e2);
-                }
+            download.completeExceptionally(e);
+            throw new IllegalStateException("Couldn't download " + url, e);
+        } finally {
+            downloads.remove(name, download);
+        }
+    }
+
+    private void download(String url, Path path) throws IOException {
+        var temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        var r = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (var response = Utils.httpClient.newCall(r).execute()) {
+            var body = response.body();
+            if (body == null || !response.isSuccessful()) {
+                throw new IllegalStateException("Bad response! Code: " + response.code() + " " + response.message());
             }
 
-            e.printStackTrace();
-            throw new IllegalStateException();
+            try (var in = body.byteStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        var size = Files.size(path);
+        synchronized (this) {
+            var previous = files.put(path.getFileName().toString(), size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evict();
         }
     }
 
-    public InputStream getInput(String url) {
-        return cache.input(getFile(url));
+    // Must hold the lock. Never evicts pinned files, nor the newest one, so a file bigger than the budget can still be served.
+    private void evict() {
+        var iterator = files.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            var entry = iterator.next();
+            if (!iterator.hasNext() || pinned.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            try {
+                // Readers with the file mapped or open keep their copy.
+                Files.deleteIfExists(cacheDir.resolve(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Couldn't delete cached file {}", entry.getKey(), e);
+            }
+
+            totalBytes -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            var read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            var skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.utils.commands;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An immutable weighted collection, sampled in constant time using Vose's alias method.
+ * Unlike {@link RandomCollection}, building it is a one-time cost, so it's meant to be built once and shared.
+ */
+public class AliasTable<E> {
+    private final List<E> values;
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasTable(List<E> values, double[] weights) {
+        if (values.size() != weights.length) {
+            throw new IllegalArgumentException("There should be a weight for each value.");
+        }
+
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("There should be at least one value.");
+        }
+
+        var size = weights.length;
+        var total = 0D;
+        for (var weight : weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight should be over zero.");
+            }
+
+            total += weight;
+        }
+
+        this.values = List.copyOf(values);
+        this.probability = new double[size];
+        this.alias = new int[size];
+
+        // Split the columns into the ones under and over the average weight, and fill every small column with
+        // a piece of a large one.
+        var scaled = new double[size];
+        var small = new int[size];
+        var large = new int[size];
+        var smallCount = 0;
+        var largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            var less = small[--smallCount];
+            var more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is (up to rounding) exactly full.
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * @param random The source of randomness.
+     * @return The index of a weighted random value.
+     */
+    public int nextIndex(Random random) {
+        var column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    public E next(Random random) {
+        return values.get(nextIndex(random));
+    }
+
+    public E get(int index) {
+        return values.get(index);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -36,6 +36,53 @@ public class Metrics {
             .name("command_latency")
             .help("Time it takes for a command to process.")
             .register();
+    public static final Histogram COMMAND_PHASE_LATENCY = Histogram.build()
+            .name("command_phase_latency")
+            .help("Time it takes for each phase of a command to process, in milliseconds")
+            .labelNames("command", "phase")
+            .buckets(1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000)
+            .register();
+    public static final Histogram AUTOCOMPLETE_LATENCY = Histogram.build()
+            .name("autocomplete_latency")
+            .help("Time it takes for an autocomplete handler to come up with choices, in milliseconds")
+            .labelNames("handler")
+            .buckets(0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 1000)
+            .register();
+    public static final Counter AUTOCOMPLETE_CACHE = Counter.build()
+            .name("autocomplete_cache")
+            .help("Autocomplete events answered from cache (hit) or by their handler (miss)")
+            .labelNames("handler", "result")
+            .register();
+    public static final Gauge LAVALINK_NODE_PLAYERS = Gauge.build()
+            .name("lavalink_node_players")
+            .help("Players on each Lavalink node (all/playing), as reported by the node")
+            .labelNames("node", "type")
+            .register();
+    public static final Gauge LAVALINK_NODE_CPU = Gauge.build()
+            .name("lavalink_node_cpu")
+            .help("CPU load of each Lavalink node (system/lavalink), from 0 to 1")
+            .labelNames("node", "type")
+            .register();
+    public static final Gauge LAVALINK_NODE_FRAMES = Gauge.build()
+            .name("lavalink_node_frames")
+            .help("Average frames per player per minute on each Lavalink node (sent/nulled/deficit)")
+            .labelNames("node", "type")
+            .register();
+    public static final Gauge LAVALINK_NODE_PENALTY = Gauge.build()
+            .name("lavalink_node_penalty")
+            .help("Load balancing penalty of each Lavalink node")
+            .labelNames("node")
+            .register();
+    public static final Gauge LAVALINK_NODE_LINKS = Gauge.build()
+            .name("lavalink_node_links")
+            .help("Links currently on each Lavalink node")
+            .labelNames("node")
+            .register();
+    public static final Counter LAVALINK_LINK_MOVES = Counter.build()
+            .name("lavalink_link_moves")
+            .help("Links moved to another Lavalink node, by reason (degraded/overloaded)")
+            .labelNames("reason")
+            .register();
     public static final Counter COMMAND_COUNTER = Counter.build()
             .name("commands")
             .help("Amounts of commands ran by name")
@@ -91,5 +138,51 @@ public class Metrics {
             .help("HTTP Requests per-route (to discord)")
             .labelNames("route")
             .register();
+    public static final Gauge I18N_LANGUAGE_SIZE = Gauge.build()
+            .name("i18n_language_size")
+            .help("Estimated retained size of a loaded language, in bytes")
+            .labelNames("language")
+            .register();
+    public static final Gauge I18N_LANGUAGE_LOAD_TIME = Gauge.build()
+            .name("i18n_language_load_time")
+            .help("Time it took to load a language, in seconds")
+            .labelNames("language")
+            .register();
+    public static final Gauge MODULE_REGISTRATION_TIME = Gauge.build()
+            .name("module_registration_time")
+            .help("Time each startup phase of module registration took (index/instantiate/commands/options), in seconds")
+            .labelNames("phase")
+            .register();
+    public static final Gauge DB_WRITE_QUEUE_DEPTH = Gauge.build()
+            .name("db_write_queue_depth")
+            .help("Documents with field updates waiting to be written")
+            .register();
+    public static final Histogram DB_WRITE_FLUSH_LATENCY = Histogram.build()
+            .name("db_write_flush_latency")
+            .help("Time it takes to write all pending field updates, in milliseconds")
+            .buckets(1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000)
+            .register();
+    public static final Histogram DELAYED_JOB_LAG = Histogram.build()
+            .name("delayed_job_lag")
+            .help("Time between when a delayed job (reminder, poll...) was due and when it ran, in milliseconds")
+            .labelNames("queue")
+            .buckets(5, 10, 25, 50, 100, 250, 500, 1000, 5000, 30000, 60000)
+            .register();
+    public static final Histogram GUILD_EVENT_BATCH_SIZE = Histogram.build()
+            .name("guild_event_batch_size")
+            .help("Events handled together on a batch (join/leave...), sum / count is how many events every batch took")
+            .labelNames("type")
+            .buckets(1, 2, 5, 10, 25, 50, 100, 250, 500, 1000)
+            .register();
+    public static final Counter DEFER_DECISIONS = Counter.build()
+            .name("interaction_defer_decisions")
+            .help("Whether interactions got deferred before running their command, and why (annotated/lagging/predicted/none)")
+            .labelNames("decision")
+            .register();
+    public static final Counter MISSED_ACKS = Counter.build()
+            .name("interaction_missed_acks")
+            .help("Interactions we didn't acknowledge in time")
+            .labelNames("type")
+            .register();
 
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils.scheduler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.kodehawa.mantarobot.utils.exporters.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs jobs at a set time, across every node.
+ * <p>
+ * Jobs are kept on a {@link JobStore}, on one queue per shard (name:shard), so every node only handles the jobs of
+ * the shards it runs. Every few seconds, each node claims the jobs of its queues that are due soon and keeps a local
+ * timer for each of them, so they run on time instead of on the next check. Claims are leased: if a node goes away
+ * before running a job it claimed, the job goes back to its queue once the lease runs out, and another node gets it.
+ * <p>
+ * Jobs run at most once. A job that's cancelled while a node holds its timer doesn't run, as acknowledging it fails.
+ */
+public class DelayedJobScheduler {
+    private static final Logger log = LoggerFactory.getLogger(DelayedJobScheduler.class);
+    private static final int CLAIM_LIMIT = 100;
+
+    private final String name;
+    private final JobStore store;
+    private final Supplier<? extends Collection<Integer>> shards;
+    private final Consumer<String> handler;
+    private final long pollMillis;
+    private final long lookaheadMillis;
+    private final long leaseMillis;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param name The name of the scheduler. Queues are named after it.
+     * @param store Where the jobs are kept.
+     * @param shards The shards this node handles the jobs of.
+     * @param handler What to do with each job once it's due.
+     */
+    public DelayedJobScheduler(String name, JobStore store, Supplier<? extends Collection<Integer>> shards, Consumer<String> handler) {
+        this(name, store, shards, handler, TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(30), TimeUnit.MINUTES.toMillis(1));
+    }
+
+    DelayedJobScheduler(String name, JobStore store, Supplier<? extends Collection<Integer>> shards, Consumer<String> handler,
+                        long pollMillis, long lookaheadMillis, long leaseMillis) {
+        this.name = name;
+        this.store = store;
+        this.shards = shards;
+        this.handler = handler;
+        this.pollMillis = pollMillis;
+        this.lookaheadMillis = lookaheadMillis;
+        this.leaseMillis = leaseMillis;
+        this.executor = Executors.newScheduledThreadPool(2,
+                new ThreadFactoryBuilder().setNameFormat("Mantaro Scheduler (" + name + ") %d").setDaemon(true).build()
+        );
+    }
+
+    public String queue(int shard) {
+        return name + ":" + shard;
+    }
+
+    /**
+     * @param shard The shard the job belongs to. The node running this shard runs the job.
+     * @param job The job. Scheduling the same job again changes when it runs.
+     * @param dueAt When it should run, in epoch milliseconds.
+     */
+    public void schedule(int shard, String job, long dueAt) {
+        store.add(queue(shard), job, dueAt);
+    }
+
+    /**
+     * @param shard The shard the job was scheduled on.
+     * @param job The job.
+     * @return Whether the job was still scheduled.
+     */
+    public boolean cancel(int shard, String job) {
+        return store.remove(queue(shard), job);
+    }
+
+    public void start() {
+        Metrics.THREAD_POOL_COLLECTOR.add(name + "-scheduler", executor);
+        executor.scheduleWithFixedDelay(() -> {
+            // If this throws, the task would never run again.
+            try {
+                poll();
+            } catch (Exception e) {
+                log.error("Couldn't claim jobs of {}", name, e);
+            }
+        }, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claims the jobs due before the next check, and schedules them locally.
+     */
+    void poll() {
+        List<String> queues = shards.get().stream().map(this::queue).toList();
+        if (queues.isEmpty()) {
+            return;
+        }
+
+        List<JobStore.ClaimedJob> claimed;
+        do {
+            var now = System.currentTimeMillis();
+            claimed = store.claim(queues, now, now + lookaheadMillis, leaseMillis, CLAIM_LIMIT);
+            for (var job : claimed) {
+                executor.schedule(() -> fire(job), Math.max(0, job.dueAt() - now), TimeUnit.MILLISECONDS);
+            }
+
+            log.debug("Claimed {} jobs of {}", claimed.size(), name);
+        } while (claimed.size() == CLAIM_LIMIT);
+    }
+
+    private void fire(JobStore.ClaimedJob job) {
+        try {
+            // Cancelled, or the lease ran out and someone else claimed it.
+            if (!store.ack(job.queue(), job.job())) {
+                return;
+            }
+
+            Metrics.DELAYED_JOB_LAG.labels(name).observe(System.currentTimeMillis() - job.dueAt());
+            handler.accept(job.job());
+        } catch (Exception e) {
+            log.error("Error running job of {}: {}", name, job.job(), e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils.scheduler;
+
+import java.util.List;
+
+/**
+ * Where {@link DelayedJobScheduler} keeps its jobs. Jobs are strings, kept on queues ordered by due time.
+ * Every queue has a lease set next to it: claimed jobs stay there until they're acknowledged, and go back to the queue
+ * if their lease runs out before that.
+ */
+public interface JobStore {
+    /**
+     * Adds a job to a queue. Adding a job that's already there just changes its due time.
+     *
+     * @param queue The queue to add it to.
+     * @param job The job.
+     * @param dueAt When it should run, in epoch milliseconds.
+     */
+    void add(String queue, String job, long dueAt);
+
+    /**
+     * Removes a job from a queue and its lease set.
+     *
+     * @param queue The queue the job is on.
+     * @param job The job.
+     * @return Whether the job was on either of them.
+     */
+    boolean remove(String queue, String job);
+
+    /**
+     * Atomically claims the jobs due up to some time, across many queues.
+     * Before that, jobs with an expired lease go back to their queue.
+     *
+     * @param queues The queues to claim from.
+     * @param now The current time, in epoch milliseconds.
+     * @param until Claim jobs due up to this time.
+     * @param leaseMillis How long after their due time (or now, for overdue jobs) claimed jobs are held for.
+     * @param limit The max amount of jobs to claim.
+     * @return The claimed jobs.
+     */
+    List<ClaimedJob> claim(List<String> queues, long now, long until, long leaseMillis, int limit);
+
+    /**
+     * Acknowledges a claimed job, removing it from the lease set.
+     *
+     * @param queue The queue the job was claimed from.
+     * @param job The job.
+     * @return Whether the job was still leased. If it wasn't, it was removed or claimed again, and shouldn't run.
+     */
+    boolean ack(String queue, String job);
+
+    record ClaimedJob(String queue, String job, long dueAt) { }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils.scheduler;
+
+import org.apache.commons.io.IOUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.resps.Tuple;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A {@link JobStore} on Redis sorted sets: every queue is a sorted set of jobs scored by due time, and its lease set
+ * is another sorted set (on queue + ":leased") scored by lease end. Claims go through a lua script, so
+ * many nodes can claim from the same queues without getting the same job.
+ */
+public class RedisJobStore implements JobStore {
+    private static final String SCRIPT;
+
+    static {
+        try {
+            //noinspection DataFlowIssue
+            SCRIPT = IOUtils.toString(
+                    RedisJobStore.class.getResourceAsStream("/delayed_jobs.lua"), StandardCharsets.UTF_8
+            );
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final JedisPool pool;
+    private String scriptSha;
+
+    public RedisJobStore(JedisPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void add(String queue, String job, long dueAt) {
+        try (Jedis jedis = pool.getResource()) {
+            jedis.zadd(queue, dueAt, job);
+        }
+    }
+
+    @Override
+    public boolean remove(String queue, String job) {
+        try (Jedis jedis = pool.getResource()) {
+            var removed = jedis.zrem(queue, job) + jedis.zrem(leases(queue), job);
+            return removed > 0;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ClaimedJob> claim(List<String> queues, long now, long until, long leaseMillis, int limit) {
+        var keys = new ArrayList<String>(queues.size() * 2);
+        for (var queue : queues) {
+            keys.add(queue);
+            keys.add(leases(queue));
+        }
+
+        var args = List.of(String.valueOf(now), String.valueOf(until), String.valueOf(leaseMillis), String.valueOf(limit));
+        List<String> result;
+        try (Jedis jedis = pool.getResource()) {
+            if (scriptSha == null) {
+                scriptSha = jedis.scriptLoad(SCRIPT);
+            }
+
+            try {
+                result = (List<String>) jedis.evalsha(scriptSha, keys, args);
+            } catch (JedisNoScriptException e) {
+                //script not in cache. force load it and try again.
+                scriptSha = jedis.scriptLoad(SCRIPT);
+                result = (List<String>) jedis.evalsha(scriptSha, keys, args);
+            }
+        }
+
+        var claimed = new ArrayList<ClaimedJob>(result.size() / 3);
+        for (int i = 0; i < result.size(); i += 3) {
+            claimed.add(new ClaimedJob(
+                    queues.get(Integer.parseInt(result.get(i))), result.get(i + 1), (long) Double.parseDouble(result.get(i + 2))
+            ));
+        }
+
+        return claimed;
+    }
+
+    @Override
+    public boolean ack(String queue, String job) {
+        try (Jedis jedis = pool.getResource()) {
+            return jedis.zrem(leases(queue), job) > 0;
+        }
+    }
+
+    /**
+     * Moves every job of a queue to other queues, keeping their due time.
+     *
+     * @param from The queue to empty.
+     * @param to Picks the queue each job goes to.
+     * @return How many jobs were moved.
+     */
+    public int move(String from, Function<String, String> to) {
+        var moved = 0;
+        try (Jedis jedis = pool.getResource()) {
+            List<Tuple> batch;
+            while (!(batch = jedis.zrangeWithScores(from, 0, 499)).isEmpty()) {
+                for (var tuple : batch) {
+                    jedis.zadd(to.apply(tuple.getElement()), tuple.getScore(), tuple.getElement());
+                    jedis.zrem(from, tuple.getElement());
+                    moved++;
+                }
+            }
+        }
+
+        return moved;
+    }
+
+    private static String leases(String queue) {
+        return queue + ":leased";
+    }
+}
@@ -0,0 +1,42 @@
+--[[
+KEYS - pairs of queue and lease keys (redis sorted sets: job -> due time, and job -> lease end)
+
+ARGV[1] - current time, in milliseconds
+ARGV[2] - claim jobs due up to this time
+ARGV[3] - lease length, in milliseconds
+ARGV[4] - max amount of jobs to claim
+
+Claimed jobs move from their queue to its lease set, until due time (or now, if they're overdue) + lease length.
+Jobs whose lease ran out (the node that claimed them went away) go back to their queue, at that same time.
+Returns the claimed jobs as triples of queue pair index (starting at 0), job and due time.
+]]
+
+local now = tonumber(ARGV[1])
+local lease = tonumber(ARGV[3])
+local limit = tonumber(ARGV[4])
+local claimed = {}
+
+for i = 1, #KEYS, 2 do
+    local queue = KEYS[i]
+    local leases = KEYS[i + 1]
+
+    local expired = redis.call("ZRANGEBYSCORE", leases, "-inf", now, "WITHSCORES")
+    for j = 1, #expired, 2 do
+        redis.call("ZADD", queue, tonumber(expired[j + 1]) - lease, expired[j])
+        redis.call("ZREM", leases, expired[j])
+    end
+
+    if limit > 0 then
+        local due = redis.call("ZRANGEBYSCORE", queue, "-inf", ARGV[2], "WITHSCORES", "LIMIT", 0, limit)
+        for j = 1, #due, 2 do
+            redis.call("ZREM", queue, due[j])
+            redis.call("ZADD", leases, math.max(tonumber(due[j + 1]), now) + lease, due[j])
+            claimed[#claimed + 1] = tostring((i - 1) / 2)
+            claimed[#claimed + 1] = due[j]
+            claimed[#claimed + 1] = due[j + 1]
+            limit = limit - 1
+        end
+    end
+end
+
+return claimed
@@ -0,0 +1,61 @@
+--[[
+KEYS[1] - ground key (redis hash: "money" and "item:<translation slice>" fields)
+
+ARGV[1] - operation, either "drop" or "collect"
+
+drop:
+ARGV[2] - max stack size
+ARGV[3] - money to drop
+ARGV[4...] - item slice and amount pairs to drop
+Returns the money on the ground after the drop.
+
+collect:
+Empties the ground, returns the money on it followed by item slice and amount pairs.
+]]
+
+local key = KEYS[1]
+
+-- Grounds used to be saved as json strings, convert those before touching them.
+if redis.call("TYPE", key).ok == "string" then
+    local ground = cjson.decode(redis.call("GET", key))
+    redis.call("DEL", key)
+    for slice, amount in pairs(ground.groundItems or {}) do
+        redis.call("HSET", key, "item:" .. slice, amount)
+    end
+
+    if ground.money and ground.money ~= 0 then
+        redis.call("HSET", key, "money", ground.money)
+    end
+end
+
+if ARGV[1] == "drop" then
+    local maxStack = tonumber(ARGV[2])
+    local money = tonumber(ARGV[3])
+    for i = 4, #ARGV, 2 do
+        local field = "item:" .. ARGV[i]
+        if redis.call("HINCRBY", key, field, ARGV[i + 1]) > maxStack then
+            redis.call("HSET", key, field, maxStack)
+        end
+    end
+
+    if money ~= 0 then
+        return redis.call("HINCRBY", key, "money", money)
+    end
+
+    return tonumber(redis.call("HGET", key, "money") or 0)
+end
+
+local data = redis.call("HGETALL", key)
+redis.call("DEL", key)
+
+local result = { "0" }
+for i = 1, #data, 2 do
+    if data[i] == "money" then
+        result[1] = data[i + 1]
+    else
+        result[#result + 1] = string.sub(data[i], 6)
+        result[#result + 1] = data[i + 1]
+    end
+end
+
+return result
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes every class annotated with @Module or @Option to META-INF/mantaro/modules.idx at compile time,
+ * so startup can read the list instead of scanning the classpath for them.
+ * One class per line, as "module binary.Name" or "option binary.Name", sorted so the output is stable.
+ * Annotations are referenced by name: this runs before the main source set is compiled.
+ */
+@SupportedAnnotationTypes({ModuleIndexProcessor.MODULE, ModuleIndexProcessor.OPTION})
+public class ModuleIndexProcessor extends AbstractProcessor {
+    static final String MODULE = "net.kodehawa.mantarobot.core.modules.Module";
+    static final String OPTION = "net.kodehawa.mantarobot.options.annotations.Option";
+    static final String INDEX = "META-INF/mantaro/modules.idx";
+
+    // Sorted by kind, then name.
+    private final Map<String, TypeElement> found = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        collect(roundEnv, MODULE, "module");
+        collect(roundEnv, OPTION, "option");
+
+        if (roundEnv.processingOver()) {
+            write();
+        }
+
+        return false;
+    }
+
+    private void collect(RoundEnvironment roundEnv, String annotationName, String kind) {
+        var annotation = processingEnv.getElementUtils().getTypeElement(annotationName);
+        if (annotation == null) {
+            return;
+        }
+
+        for (var element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@%s can only be used on classes".formatted(annotation.getSimpleName()));
+                continue;
+            }
+
+            var type = (TypeElement) element;
+            if (!isInstantiable(type)) {
+                error(element, "@%s classes need to be public, concrete and have a public zero arg constructor"
+                        .formatted(annotation.getSimpleName()));
+                continue;
+            }
+
+            found.put(kind + " " + processingEnv.getElementUtils().getBinaryName(type), type);
+        }
+    }
+
+    private boolean isInstantiable(TypeElement type) {
+        var modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        if (type.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        return constructors.stream().anyMatch(constructor ->
+                constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().isEmpty()
+        );
+    }
+
+    private void write() {
+        var originating = new ArrayList<Element>(found.values()).toArray(Element[]::new);
+        try {
+            var resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX, originating);
+
+            try (var writer = new PrintWriter(resource.openWriter())) {
+                for (var entry : found.keySet()) {
+                    writer.println(entry);
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + INDEX + ": " + e);
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -14,12 +14,19 @@
  * along with Mantaro.  If not, see http://www.gnu.org/licenses/
  */
 
+import io.prometheus.client.CollectorRegistry;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
+import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.db.entities.MongoGuild;
 import net.kodehawa.mantarobot.utils.LanguageKeyNotFoundException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 class I18nTest {
     @Test
     void testI18n() throws LanguageKeyNotFoundException {
@@ -31,4 +38,36 @@ class I18nTest {
         Assertions.assertNotNull(localized);
         Assertions.assertEquals("owo", localized);
     }
+
+    @Test
+    void testLanguagesLoadLazily() throws Exception {
+        // Nothing else asks for it, so it shouldn't be loaded yet.
+        Assertions.assertNull(loadTime("de_DE"));
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<I18n>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit((Callable<I18n>) () -> I18n.getForLanguage("de_DE")));
+            }
+
+            var first = futures.get(0).get();
+            Assertions.assertEquals("de_DE", first.getLanguage());
+            for (var future : futures) {
+                Assertions.assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertNotNull(loadTime("de_DE"));
+        Assertions.assertSame(I18n.getForLanguage("de_DE"), I18n.getForLanguage("de_DE"));
+        Assertions.assertEquals("en_US", I18n.getForLanguage("xx_XX").getLanguage());
+    }
+
+    private static Double loadTime(String language) {
+        return CollectorRegistry.defaultRegistry.getSampleValue(
+                "i18n_language_load_time", new String[] { "language" }, new String[] { language }
+        );
+    }
 }
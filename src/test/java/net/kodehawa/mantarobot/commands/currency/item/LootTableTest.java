@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.currency.item;
+
+import net.kodehawa.mantarobot.commands.currency.item.special.helpers.attributes.Tiered;
+import net.kodehawa.mantarobot.utils.commands.AliasTable;
+import net.kodehawa.mantarobot.utils.commands.RandomCollection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+class LootTableTest {
+    // Chi-square critical values are taken at p = 0.0001. Seeds are fixed, so this doesn't flake either way.
+    private static final double Z = 3.719;
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    void testAliasTableMatchesWeights() {
+        var weights = new double[] { 1, 2, 3, 4, 10, 0.5, 20 };
+        var values = new ArrayList<Integer>();
+        for (int i = 0; i < weights.length; i++) {
+            values.add(i);
+        }
+
+        var table = new AliasTable<>(values, weights);
+        var random = new Random(42);
+        var counts = new long[weights.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.next(random)]++;
+        }
+
+        var total = Arrays.stream(weights).sum();
+        var statistic = 0D;
+        for (int i = 0; i < weights.length; i++) {
+            var expected = SAMPLES * weights[i] / total;
+            statistic += Math.pow(counts[i] - expected, 2) / expected;
+        }
+
+        Assertions.assertTrue(statistic < critical(weights.length - 1), "Chi-square statistic too high: " + statistic);
+    }
+
+    @Test
+    void testAliasTableRejectsBadWeights() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AliasTable<>(List.of(1, 2), new double[] { 1, 0 }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AliasTable<>(List.of(1, 2), new double[] { 1 }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AliasTable<>(List.of(), new double[0]));
+    }
+
+    @Test
+    void testMineDropsMatchOldSelection() {
+        assertSameDistribution(ItemType.LootboxType.MINE);
+    }
+
+    @Test
+    void testPremiumMineDropsMatchOldSelection() {
+        assertSameDistribution(ItemType.LootboxType.MINE_PREMIUM);
+    }
+
+    @Test
+    void testPremiumDropsMatchOldSelection() {
+        assertSameDistribution(ItemType.LootboxType.PREMIUM);
+    }
+
+    @Test
+    void testEpicHasNoDrops() {
+        Assertions.assertTrue(LootTable.of(ItemType.LootboxType.EPIC).select(5, new Random(1)).isEmpty());
+    }
+
+    // One item per crate, so every draw is independent and a homogeneity test applies.
+    private static void assertSameDistribution(ItemType.LootboxType type) {
+        var table = LootTable.of(type);
+        var random = new Random(type.ordinal());
+        Map<Item, long[]> counts = new HashMap<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            for (var item : table.select(1, random)) {
+                counts.computeIfAbsent(item, k -> new long[2])[0]++;
+            }
+
+            for (var item : oldSelectItems(type, random)) {
+                counts.computeIfAbsent(item, k -> new long[2])[1]++;
+            }
+        }
+
+        // Bin anything too rare to test on its own together.
+        var statistic = 0D;
+        var bins = 0;
+        long rareNew = 0, rareOld = 0;
+        for (var count : counts.values()) {
+            if (count[0] + count[1] < 20) {
+                rareNew += count[0];
+                rareOld += count[1];
+                continue;
+            }
+
+            statistic += Math.pow(count[0] - count[1], 2) / (count[0] + count[1]);
+            bins++;
+        }
+
+        if (rareNew + rareOld > 0) {
+            statistic += Math.pow(rareNew - rareOld, 2) / (rareNew + rareOld);
+            bins++;
+        }
+
+        Assertions.assertTrue(bins > 1, "Expected more than one item on the " + type + " table");
+        Assertions.assertTrue(statistic < critical(bins - 1),
+                "Chi-square statistic too high for " + type + ": " + statistic + " over " + bins + " bins");
+    }
+
+    // Wilson-Hilferty approximation of the chi-square quantile.
+    private static double critical(int degrees) {
+        var term = 2D / (9 * degrees);
+        return degrees * Math.pow(1 - term + Z * Math.sqrt(term), 3);
+    }
+
+    // What ItemHelper#selectItems used to do for a single item, before the tables were precomputed.
+    private static List<Item> oldSelectItems(ItemType.LootboxType type, Random random) {
+        RandomCollection<Item> items = new RandomCollection<>(random);
+        switch (type) {
+            case PREMIUM -> {
+                oldItemDrop(i -> i.getItemType() == ItemType.PREMIUM, false, random).forEach(i -> items.add(2, i));
+                oldItemDrop(i -> i.getItemType() == ItemType.RARE, false, random).forEach(i -> items.add(5, i));
+                oldItemDrop(i -> i.getItemType() == ItemType.COMMON, true, random).forEach(i -> items.add(20, i));
+            }
+            case MINE_PREMIUM -> oldItemDrop(i ->
+                    i.getItemType() == ItemType.CAST_MINE ||
+                    i.getItemType() == ItemType.MINE_PICK ||
+                    i.getItemType() == ItemType.MINE ||
+                    i.getItemType() == ItemType.MINE_RARE ||
+                    i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                    i.getItemType() == ItemType.MINE_RARE_PICK, false, random
+            ).forEach(i -> items.add(8, i));
+            case MINE -> oldItemDrop(i ->
+                    (i.getItemType() == ItemType.MINE ||
+                    i.getItemType() == ItemType.CAST_OBTAINABLE ||
+                    i.getItemType() == ItemType.MINE_PICK) && i != ItemReference.ROCK, true, random
+            ).forEach(i -> items.add(8, i));
+            default -> throw new IllegalArgumentException("Not tested: " + type);
+        }
+
+        return List.of(items.next());
+    }
+
+    private static List<Item> oldItemDrop(Predicate<Item> predicate, boolean normal, Random random) {
+        return Arrays.stream(ItemReference.ALL)
+                .filter(i -> i.isBuyable() || i.isSellable())
+                .filter(predicate)
+                .filter(item -> {
+                    if (normal) {
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
+                            return random.nextFloat() <= 0.02f;
+                        }
+
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 100) {
+                            return random.nextFloat() <= 0.05f;
+                        }
+                    } else {
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 5)) {
+                            return random.nextFloat() <= 0.10f;
+                        }
+
+                        if ((item instanceof Tiered tiered && tiered.getTier() >= 3) || item.getValue() >= 300) {
+                            return random.nextFloat() <= 0.40f;
+                        }
+                    }
+
+                    return true;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.image;
+
+import net.kodehawa.lib.imageboards.entities.BoardImage;
+import net.kodehawa.lib.imageboards.entities.Rating;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+class ImageboardPoolTest {
+    private static final Object BOARD = new Object();
+    private final Random random = new Random(42);
+
+    @Test
+    void testServesFromFetchedPage() {
+        var board = new StubBoard(page(0, 60));
+        var pool = new ImageboardPool(image -> true);
+        var served = new HashSet<String>();
+
+        // The whole page is served before fetching it again, as a tag search would only bring back the same images.
+        for (int i = 0; i < 59; i++) {
+            var pick = take(pool, board, List.of("Cat", "dog"), Set.of());
+            Assertions.assertEquals(ImageboardPool.Status.FOUND, pick.status());
+            Assertions.assertTrue(served.add(pick.image().getURL()), "Served twice: " + pick.image().getURL());
+        }
+
+        Assertions.assertEquals(1, board.fetches);
+        var last = take(pool, board, List.of("dog", "cat", "cat"), Set.of());
+        Assertions.assertTrue(served.add(last.image().getURL()), "Served twice: " + last.image().getURL());
+        Assertions.assertEquals(2, board.fetches);
+        Assertions.assertEquals(List.of("cat", "dog"), board.lastTags);
+
+        // Other ratings are other searches.
+        take(pool, board, Rating.EXPLICIT, List.of("cat", "dog"), Set.of());
+        Assertions.assertEquals(3, board.fetches);
+    }
+
+    @Test
+    void testRefillSkipsServed() {
+        var board = new StubBoard(page(0, 60));
+        // Refilled early, like a random search, even if the page is the same.
+        board.repeats = false;
+        var pool = new ImageboardPool(image -> true);
+        var served = new HashSet<String>();
+
+        // Refills bring back the same page, but what was served already stays out.
+        for (int i = 0; i < 60; i++) {
+            var pick = take(pool, board, List.of("cat"), Set.of());
+            Assertions.assertEquals(ImageboardPool.Status.FOUND, pick.status());
+            Assertions.assertTrue(served.add(pick.image().getURL()), "Served twice: " + pick.image().getURL());
+        }
+
+        Assertions.assertTrue(board.fetches > 1);
+
+        // Once the whole page went out, it starts over.
+        Assertions.assertEquals(ImageboardPool.Status.FOUND, take(pool, board, List.of("cat"), Set.of()).status());
+    }
+
+    @Test
+    void testWaitersShareFetch() {
+        var board = new StubBoard(page(0, 5));
+        board.deferred = true;
+        var pool = new ImageboardPool(image -> true);
+        var picks = new ArrayList<ImageboardPool.Pick>();
+        for (int i = 0; i < 7; i++) {
+            pool.take(BOARD, board, List.of("cat"), Rating.SAFE, Set.of(), new Random(i), picks::add);
+        }
+
+        Assertions.assertEquals(1, board.fetches);
+        Assertions.assertTrue(picks.isEmpty());
+        board.complete();
+
+        // Only five images to go around.
+        Assertions.assertEquals(7, picks.size());
+        Assertions.assertEquals(5, picks.stream().filter(pick -> pick.status() == ImageboardPool.Status.FOUND).count());
+        Assertions.assertEquals(5, picks.stream().filter(pick -> pick.image() != null).map(pick -> pick.image().getURL()).distinct().count());
+    }
+
+    @Test
+    void testBlacklistAppliedWhenServing() {
+        var images = page(0, 40);
+        images.add(image("tagged", false, Rating.SAFE, "cat", "spoiler"));
+        var board = new StubBoard(images);
+        var pool = new ImageboardPool(image -> true);
+
+        for (int i = 0; i < 15; i++) {
+            var pick = take(pool, board, List.of("cat"), Set.of("spoiler"));
+            Assertions.assertFalse(pick.image().getTags().contains("spoiler"));
+        }
+
+        // Another guild can still get it.
+        var found = false;
+        for (int i = 0; i < 26 && !found; i++) {
+            found = take(pool, board, List.of("cat"), Set.of()).image().getTags().contains("spoiler");
+        }
+
+        Assertions.assertTrue(found);
+    }
+
+    @Test
+    void testEverythingBlacklisted() {
+        var board = new StubBoard(List.of(image("a", false, Rating.SAFE, "spoiler")));
+        var pool = new ImageboardPool(image -> true);
+        Assertions.assertEquals(ImageboardPool.Status.BLACKLISTED, take(pool, board, List.of(), Set.of("spoiler")).status());
+        Assertions.assertEquals(ImageboardPool.Status.FOUND, take(pool, board, List.of(), Set.of()).status());
+    }
+
+    @Test
+    void testFilteredAndFailed() {
+        var pool = new ImageboardPool(image -> !image.isPending());
+        var pending = new StubBoard(List.of(image("a", true, Rating.SAFE), image("b", true, Rating.SAFE)));
+        Assertions.assertEquals(ImageboardPool.Status.NO_IMAGES, take(pool, pending, List.of("pending"), Set.of()).status());
+
+        var empty = new StubBoard(null);
+        Assertions.assertEquals(ImageboardPool.Status.NULL_RESPONSE, take(pool, empty, List.of("null"), Set.of()).status());
+
+        var failing = new StubBoard(page(0, 10));
+        failing.fail = true;
+        var pick = take(pool, failing, List.of("fail"), Set.of());
+        Assertions.assertEquals(ImageboardPool.Status.FAILED, pick.status());
+        Assertions.assertNotNull(pick.error());
+
+        // Failures aren't kept around.
+        failing.fail = false;
+        Assertions.assertEquals(ImageboardPool.Status.FOUND, take(pool, failing, List.of("fail"), Set.of()).status());
+        Assertions.assertEquals(2, failing.fetches);
+    }
+
+    private ImageboardPool.Pick take(ImageboardPool pool, StubBoard board, List<String> tags, Set<String> blacklisted) {
+        return take(pool, board, Rating.SAFE, tags, blacklisted);
+    }
+
+    private ImageboardPool.Pick take(ImageboardPool pool, StubBoard board, Rating rating, List<String> tags,
+                                     Set<String> blacklisted) {
+        var picks = new ArrayList<ImageboardPool.Pick>();
+        pool.take(BOARD, board, tags, rating, blacklisted, random, picks::add);
+        Assertions.assertEquals(1, picks.size());
+        return picks.get(0);
+    }
+
+    private static List<BoardImage> page(int first, int count) {
+        var images = new ArrayList<BoardImage>();
+        for (int i = first; i < first + count; i++) {
+            images.add(image("image-" + i, false, Rating.SAFE, "cat"));
+        }
+
+        return images;
+    }
+
+    private static BoardImage image(String name, boolean pending, Rating rating, String... tags) {
+        var url = "https://example.com/" + name + ".png";
+        return (BoardImage) Proxy.newProxyInstance(
+                BoardImage.class.getClassLoader(),
+                new Class<?>[] { BoardImage.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getURL" -> url;
+                    case "getTags" -> List.of(tags);
+                    case "getRating" -> rating;
+                    case "isPending" -> pending;
+                    case "getWidth", "getHeight" -> 100;
+                    case "hashCode" -> url.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> url;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    // Stands in for an ImageBoard: every search returns the same page, like a tag search does.
+    private static class StubBoard implements ImageboardPool.Fetcher {
+        private final List<BoardImage> page;
+        private boolean repeats = true;
+        private int fetches;
+        private List<String> lastTags;
+        private boolean fail;
+        private boolean deferred;
+        private Consumer<List<? extends BoardImage>> pending;
+
+        private StubBoard(List<BoardImage> page) {
+            this.page = page;
+        }
+
+        @Override
+        public void fetch(List<String> tags, Rating rating, Consumer<List<? extends BoardImage>> success,
+                          Consumer<Throwable> failure) {
+            fetches++;
+            lastTags = tags;
+            if (fail) {
+                failure.accept(new RuntimeException("Board is down"));
+            } else if (deferred) {
+                pending = success;
+            } else {
+                success.accept(page);
+            }
+        }
+
+        @Override
+        public boolean repeats() {
+            return repeats;
+        }
+
+        private void complete() {
+            pending.accept(page);
+        }
+    }
+}
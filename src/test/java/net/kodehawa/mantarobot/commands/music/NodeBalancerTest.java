@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+class NodeBalancerTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void testParsesStats() {
+        var load = stats(120, 100, 0.25, 5900, 10, 20);
+        Assertions.assertEquals(120, load.players());
+        Assertions.assertEquals(100, load.playingPlayers());
+        Assertions.assertEquals(0.25, load.systemLoad());
+        Assertions.assertEquals(20, load.framesDeficit());
+        Assertions.assertFalse(load.isDegraded(NOW));
+        // Same as Lavalink-Client: 100 players, (int) 1.05^25 * 10 - 10 for CPU, 62 for deficit and 2 * 15 for nulled frames.
+        Assertions.assertEquals(100 + 20 + 62 + 2 * 15, load.basePenalty());
+        // 20 idle players, and 85% of the memory used.
+        Assertions.assertEquals(5 + 50, load.extraPenalty(NOW));
+
+        // Young nodes don't report frames.
+        var young = NodeLoad.fromStats(new JSONObject("""
+                {"op":"stats","players":0,"playingPlayers":0,"uptime":1000,
+                 "memory":{"free":100,"used":100,"allocated":200,"reservable":1000},
+                 "cpu":{"cores":4,"systemLoad":0.0,"lavalinkLoad":0.0}}
+                """), NOW);
+        Assertions.assertEquals(-1, young.framesDeficit());
+        Assertions.assertEquals(0, young.basePenalty());
+    }
+
+    @Test
+    void testStaleAndLossyNodesAreDegraded() {
+        var load = stats(10, 10, 0.1, 3000, 0, 0);
+        Assertions.assertFalse(load.isDegraded(NOW + TimeUnit.MINUTES.toMillis(2)));
+        Assertions.assertTrue(load.isDegraded(NOW + TimeUnit.MINUTES.toMillis(4)));
+        Assertions.assertTrue(NodeLoad.UNKNOWN.isDegraded(NOW));
+        Assertions.assertTrue(stats(10, 10, 0.1, 2700, 100, 200).isDegraded(NOW));
+    }
+
+    @Test
+    void testBalancedNodesStay() {
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", false, 400, guilds(0, 300), List.of()),
+                new NodeBalancer.Node("b", false, 350, guilds(1000, 280), List.of())
+        ), 10);
+
+        Assertions.assertTrue(moves.isEmpty());
+    }
+
+    @Test
+    void testIdleClusterStays() {
+        // Lopsided, but nowhere near overloaded.
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", false, 200, guilds(0, 200), List.of()),
+                new NodeBalancer.Node("b", false, 0, List.of(), List.of())
+        ), 10);
+
+        Assertions.assertTrue(moves.isEmpty());
+    }
+
+    @Test
+    void testMovesOffOverloadedNode() {
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", false, 1000, guilds(0, 500), List.of()),
+                new NodeBalancer.Node("b", false, 100, guilds(1000, 100), List.of()),
+                new NodeBalancer.Node("c", false, 120, guilds(2000, 120), List.of())
+        ), 1000);
+
+        Assertions.assertFalse(moves.isEmpty());
+        var toB = moves.stream().filter(move -> move.to().equals("b")).count();
+        var toC = moves.stream().filter(move -> move.to().equals("c")).count();
+        for (var move : moves) {
+            Assertions.assertEquals("a", move.from());
+            Assertions.assertEquals("overloaded", move.reason());
+            Assertions.assertTrue(move.guildId() < 500);
+        }
+
+        // Each link carries 2 points: a ends around the others, and b and c end up about even.
+        Assertions.assertTrue(Math.abs(toB - toC) <= 11, "b got " + toB + ", c got " + toC);
+        var remaining = 1000 - 2 * moves.size();
+        Assertions.assertTrue(remaining - (100 + 2 * toB) <= NodeBalancer.IMBALANCE_MARGIN + 2);
+        Assertions.assertTrue(remaining >= 100 + 2 * toB - 2);
+    }
+
+    @Test
+    void testMoveLimit() {
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", false, 5000, guilds(0, 500), List.of()),
+                new NodeBalancer.Node("b", false, 0, List.of(), List.of())
+        ), NodeBalancer.MAX_MOVES_PER_RUN);
+
+        Assertions.assertEquals(NodeBalancer.MAX_MOVES_PER_RUN, moves.size());
+    }
+
+    @Test
+    void testEmptiesDegradedNode() {
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", true, 10_050, guilds(0, 3), guilds(100, 2)),
+                new NodeBalancer.Node("b", false, 50, guilds(1000, 50), List.of()),
+                new NodeBalancer.Node("c", false, 10, guilds(2000, 10), List.of())
+        ), 10);
+
+        Assertions.assertEquals(5, moves.size());
+        // Playing links first.
+        Assertions.assertEquals(List.of(0L, 1L, 2L, 100L, 101L), moves.stream().map(NodeBalancer.Move::guildId).toList());
+        for (var move : moves) {
+            Assertions.assertEquals("degraded", move.reason());
+            Assertions.assertEquals("c", move.to());
+        }
+    }
+
+    @Test
+    void testNothingHealthy() {
+        var moves = NodeBalancer.plan(List.of(
+                new NodeBalancer.Node("a", true, 10_000, guilds(0, 10), List.of()),
+                new NodeBalancer.Node("b", true, 10_000, guilds(100, 10), List.of())
+        ), 10);
+
+        Assertions.assertTrue(moves.isEmpty());
+    }
+
+    // A stats message as a Lavalink node sends it.
+    private static NodeLoad stats(int players, int playing, double systemLoad, int sent, int nulled, int deficit) {
+        return NodeLoad.fromStats(new JSONObject("""
+                {"op":"stats","players":%d,"playingPlayers":%d,"uptime":86400000,
+                 "memory":{"free":1000,"used":850,"allocated":1000,"reservable":1000},
+                 "cpu":{"cores":4,"systemLoad":%s,"lavalinkLoad":0.1},
+                 "frameStats":{"sent":%d,"nulled":%d,"deficit":%d}}
+                """.formatted(players, playing, systemLoad, sent, nulled, deficit)), NOW);
+    }
+
+    private static List<Long> guilds(long first, int count) {
+        return LongStream.range(first, first + count).boxed().toList();
+    }
+}
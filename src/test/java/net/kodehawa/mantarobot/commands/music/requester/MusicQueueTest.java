@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.commands.music.requester;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MusicQueueTest {
+    @Test
+    void testMatchesDeque() {
+        var random = new Random(7);
+        var queue = new MusicQueue();
+        Deque<AudioTrack> expected = new ArrayDeque<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            var op = random.nextInt(10);
+            if (op < 3) {
+                var track = track(random.nextInt(50), random.nextInt(5) == 0 ? Long.MAX_VALUE : random.nextInt(600_000));
+                queue.offer(track);
+                expected.offer(track);
+            } else if (op < 4) {
+                var track = track(random.nextInt(50), random.nextInt(600_000));
+                queue.addFirst(track);
+                expected.addFirst(track);
+            } else if (op < 8) {
+                Assertions.assertSame(expected.poll(), queue.poll());
+            } else if (!expected.isEmpty()) {
+                var list = new ArrayList<>(expected);
+                var remove = new HashSet<Integer>();
+                for (int r = random.nextInt(3); r >= 0; r--) {
+                    remove.add(random.nextInt(list.size()));
+                }
+
+                Assertions.assertEquals(remove.size(), queue.removeAll(remove));
+                expected.clear();
+                for (int j = 0; j < list.size(); j++) {
+                    if (!remove.contains(j)) {
+                        expected.add(list.get(j));
+                    }
+                }
+            }
+
+            assertConsistent(queue, new ArrayList<>(expected));
+        }
+    }
+
+    @Test
+    void testPaging() {
+        var queue = new MusicQueue();
+        for (int i = 0; i < 100; i++) {
+            queue.addFirst(track(i, 1000));
+        }
+
+        var page = queue.page(90, 30);
+        Assertions.assertEquals(10, page.size());
+        Assertions.assertSame(queue.get(90), page.get(0));
+        Assertions.assertEquals("track:9", page.get(0).getInfo().uri);
+        Assertions.assertTrue(queue.page(100, 30).isEmpty());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> queue.get(100));
+    }
+
+    @Test
+    void testShuffleKeepsTracks() {
+        var queue = new MusicQueue();
+        var tracks = new ArrayList<AudioTrack>();
+        for (int i = 0; i < 1000; i++) {
+            var track = track(i % 10, i);
+            tracks.add(track);
+            queue.offer(track);
+        }
+
+        queue.poll();
+        tracks.remove(0);
+        queue.shuffle(new Random(1));
+
+        var shuffled = queue.asList();
+        Assertions.assertNotEquals(tracks, shuffled);
+        Assertions.assertEquals(Set.copyOf(tracks), Set.copyOf(shuffled));
+        assertConsistent(queue, shuffled);
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        var queue = new MusicQueue();
+        var threads = 8;
+        var perThread = 20_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var added = new AtomicInteger();
+        var polled = new AtomicInteger();
+        var futures = new ArrayList<Future<?>>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                var seed = t;
+                futures.add(executor.submit(() -> {
+                    var random = new Random(seed);
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        switch (random.nextInt(6)) {
+                            case 0, 1 -> {
+                                queue.offer(track(random.nextInt(50), 1000));
+                                added.incrementAndGet();
+                            }
+                            case 2 -> {
+                                queue.addFirst(track(random.nextInt(50), 1000));
+                                added.incrementAndGet();
+                            }
+                            case 3 -> {
+                                if (queue.poll() != null) {
+                                    polled.incrementAndGet();
+                                }
+                            }
+                            case 4 -> queue.shuffle(random);
+                            default -> {
+                                // Reads never see a half-updated queue.
+                                var page = queue.page(random.nextInt(Math.max(1, queue.size())), 30);
+                                for (var track : page) {
+                                    Assertions.assertNotNull(track);
+                                }
+                            }
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertConsistent(queue, queue.asList());
+
+        // Drain it: every track that went in comes out exactly once.
+        var drained = 0;
+        while (queue.poll() != null) {
+            drained++;
+        }
+
+        Assertions.assertEquals(0, queue.size());
+        Assertions.assertEquals(0, queue.getTotalDuration());
+        for (int uri = 0; uri < 50; uri++) {
+            Assertions.assertEquals(0, queue.countOf("track:" + uri));
+        }
+
+        Assertions.assertEquals(added.get() - polled.get(), drained);
+    }
+
+    private static void assertConsistent(MusicQueue queue, List<AudioTrack> expected) {
+        Assertions.assertEquals(expected.size(), queue.size());
+        Assertions.assertEquals(expected.isEmpty(), queue.isEmpty());
+        Assertions.assertEquals(expected, queue.asList());
+        Assertions.assertEquals(
+                expected.stream().mapToLong(t -> t.getInfo().length).filter(l -> l != Long.MAX_VALUE).sum(),
+                queue.getTotalDuration()
+        );
+
+        var counts = new HashMap<String, Integer>();
+        for (var track : expected) {
+            counts.merge(track.getInfo().uri, 1, Integer::sum);
+        }
+
+        for (int uri = 0; uri < 50; uri++) {
+            var key = "track:" + uri;
+            Assertions.assertEquals(counts.getOrDefault(key, 0), queue.countOf(key));
+        }
+    }
+
+    // Only the track info is ever read by the queue.
+    static AudioTrack track(int uri, long length) {
+        var info = new AudioTrackInfo("Track " + uri, "Author", length, "id" + uri, length == Long.MAX_VALUE, "track:" + uri);
+        return (AudioTrack) Proxy.newProxyInstance(
+                AudioTrack.class.getClassLoader(),
+                new Class<?>[] { AudioTrack.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInfo" -> info;
+                    case "getDuration" -> length;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> info.title;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
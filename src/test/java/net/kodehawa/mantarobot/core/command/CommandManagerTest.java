@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.core.command;
+
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CommandManagerTest {
+    @Test
+    void testHashIgnoresOrder() {
+        var hash = CommandManager.hash(List.of(ping(), profile()));
+        Assertions.assertEquals(hash, CommandManager.hash(List.of(profile(), ping())));
+        Assertions.assertEquals(hash, CommandManager.hash(List.of(ping(), profile())));
+    }
+
+    @Test
+    void testHashChanges() {
+        var hash = CommandManager.hash(List.of(ping(), profile()));
+        Assertions.assertNotEquals(hash, CommandManager.hash(List.of(ping())));
+        Assertions.assertNotEquals(hash, CommandManager.hash(List.of(
+                ping(), Commands.slash("profile", "[Currency] Shows a profile").setGuildOnly(true)
+        )));
+
+        // Option order is what users see, so it counts.
+        var reordered = Commands.slash("ping", "[Info] Pong")
+                .addOption(OptionType.BOOLEAN, "verbose", "More info")
+                .addOption(OptionType.STRING, "target", "What to ping");
+        Assertions.assertNotEquals(hash, CommandManager.hash(List.of(reordered, profile())));
+    }
+
+    private static CommandData ping() {
+        return Commands.slash("ping", "[Info] Pong")
+                .addOption(OptionType.STRING, "target", "What to ping")
+                .addOption(OptionType.BOOLEAN, "verbose", "More info");
+    }
+
+    private static CommandData profile() {
+        return Commands.user("Show currency profile").setGuildOnly(true);
+    }
+}
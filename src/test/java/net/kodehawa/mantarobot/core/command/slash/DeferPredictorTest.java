@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.core.command.slash;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static net.kodehawa.mantarobot.core.command.slash.DeferPredictor.Decision;
+
+class DeferPredictorTest {
+    @Test
+    void testP99() {
+        var predictor = new DeferPredictor(2500, 100, 10);
+        for (int i = 1; i <= 9; i++) {
+            predictor.record("ping", i);
+        }
+
+        // Not enough runs yet.
+        Assertions.assertEquals(-1, predictor.p99("ping"));
+        predictor.record("ping", 10);
+        Assertions.assertEquals(10, predictor.p99("ping"));
+
+        for (int i = 1; i <= 100; i++) {
+            predictor.record("ping", i * 10);
+        }
+
+        Assertions.assertEquals(990, predictor.p99("ping"));
+        Assertions.assertEquals(-1, predictor.p99("pong"));
+
+        // Only the latest runs count.
+        for (int i = 0; i < 100; i++) {
+            predictor.record("ping", 5);
+        }
+
+        Assertions.assertEquals(5, predictor.p99("ping"));
+    }
+
+    @Test
+    void testDecide() {
+        var predictor = new DeferPredictor(2500, 100, 10);
+        Assertions.assertEquals(Decision.ANNOTATED, predictor.decide("ping", true, 0, 50));
+        Assertions.assertEquals(Decision.LAGGING, predictor.decide("ping", false, 0, 700));
+        Assertions.assertEquals(Decision.NONE, predictor.decide("ping", false, 100, 50));
+        // Waited too long to get here, even if we don't know anything about the command.
+        Assertions.assertEquals(Decision.PREDICTED, predictor.decide("ping", false, 2600, 50));
+
+        for (int i = 0; i < 100; i++) {
+            predictor.record("slow", i < 95 ? 200 : 2400);
+        }
+
+        Assertions.assertEquals(Decision.PREDICTED, predictor.decide("slow", false, 100, 50));
+        Assertions.assertEquals(Decision.NONE, predictor.decide("ping", false, 100, 50));
+        Assertions.assertFalse(Decision.NONE.defer());
+        Assertions.assertTrue(Decision.PREDICTED.defer());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.core.listeners.helpers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class GuildEventBatcherTest {
+    @Test
+    void testBatchesPerGuild() throws InterruptedException {
+        var scheduler = new ScheduledThreadPoolExecutor(1);
+        var batches = new LinkedBlockingQueue<List<String>>();
+        var batcher = new GuildEventBatcher<String>("test", 200, scheduler, Runnable::run, batches::add);
+
+        try {
+            batcher.add(1, "a");
+            batcher.add(2, "x");
+            batcher.add(1, "b");
+            batcher.add(1, "c");
+
+            var first = batches.poll(5, TimeUnit.SECONDS);
+            var second = batches.poll(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(List.of("a", "b", "c"), first);
+            Assertions.assertEquals(List.of("x"), second);
+
+            // A closed batch doesn't take more events, the next one opens a new batch.
+            batcher.add(1, "d");
+            Assertions.assertEquals(List.of("d"), batches.poll(5, TimeUnit.SECONDS));
+            Assertions.assertNull(batches.poll(300, TimeUnit.MILLISECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
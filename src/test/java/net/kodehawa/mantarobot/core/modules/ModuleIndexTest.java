@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.core.modules;
+
+import net.kodehawa.mantarobot.options.annotations.Option;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+class ModuleIndexTest {
+    @Test
+    void testRead() throws IOException {
+        var index = read("""
+                module net.kodehawa.mantarobot.commands.ActionCmds
+                module net.kodehawa.mantarobot.commands.music.MusicCmds
+
+                module net.kodehawa.mantarobot.other.Thing
+                option net.kodehawa.mantarobot.options.GuildOptions
+                """);
+
+        Assertions.assertEquals(
+                List.of("net.kodehawa.mantarobot.commands.ActionCmds", "net.kodehawa.mantarobot.commands.music.MusicCmds"),
+                index.getModules("net.kodehawa.mantarobot.commands")
+        );
+        Assertions.assertEquals(List.of("net.kodehawa.mantarobot.options.GuildOptions"), index.getOptions("net.kodehawa.mantarobot.options"));
+        // Package prefixes only match whole package names.
+        Assertions.assertEquals(List.of(), index.getModules("net.kodehawa.mantarobot.comm"));
+    }
+
+    @Test
+    void testReadInvalid() {
+        Assertions.assertThrows(IllegalStateException.class, () -> read("module"));
+        Assertions.assertThrows(IllegalStateException.class, () -> read("command net.kodehawa.mantarobot.commands.ActionCmds"));
+    }
+
+    @Test
+    void testBundledIndexMatchesAnnotations() throws ClassNotFoundException {
+        var index = ModuleIndex.load();
+        var modules = index.getModules("net.kodehawa.mantarobot");
+        var options = index.getOptions("net.kodehawa.mantarobot");
+        Assertions.assertFalse(modules.isEmpty());
+        Assertions.assertFalse(options.isEmpty());
+
+        for (var name : modules) {
+            Assertions.assertTrue(load(name).isAnnotationPresent(Module.class), name);
+        }
+
+        for (var name : options) {
+            Assertions.assertTrue(load(name).isAnnotationPresent(Option.class), name);
+        }
+    }
+
+    private static Class<?> load(String name) throws ClassNotFoundException {
+        // Don't run static initializers, some of them need a config.
+        return Class.forName(name, false, ModuleIndexTest.class.getClassLoader());
+    }
+
+    private static ModuleIndex read(String index) throws IOException {
+        return ModuleIndex.read(new BufferedReader(new StringReader(index)));
+    }
+}
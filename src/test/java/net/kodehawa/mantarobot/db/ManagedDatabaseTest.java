@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.db;
+
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+
+class ManagedDatabaseTest {
+    @Test
+    void testPartialCantBeSaved() {
+        // Never connects: the save is rejected before anything goes to the database.
+        try (var client = MongoClients.create("mongodb://localhost:1")) {
+            var db = new ManagedDatabase(client);
+            var entity = new Entity();
+            db.markPartial(entity);
+
+            var e = Assertions.assertThrows(IllegalStateException.class, () -> db.saveMongo(entity, Entity.class));
+            Assertions.assertTrue(e.getMessage().contains("test 1"));
+        }
+    }
+
+    private static class Entity implements ManagedMongoObject {
+        @Nonnull
+        @Override
+        public String getId() {
+            return "1";
+        }
+
+        @Nonnull
+        @Override
+        public String getTableName() {
+            return "test";
+        }
+
+        @Override
+        public void insertOrReplace() { }
+
+        @Override
+        public void delete() { }
+    }
+}
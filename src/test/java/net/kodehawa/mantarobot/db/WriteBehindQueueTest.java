@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.db;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class WriteBehindQueueTest {
+    @Test
+    void testCoalesce() {
+        var written = new LinkedHashMap<String, List<WriteModel<BsonDocument>>>();
+        var queue = new WriteBehindQueue(60_000, written::put);
+
+        queue.set("players", "1", BsonDocument.parse("{newMoney: 10, level: 2}"));
+        queue.set("players", "1", BsonDocument.parse("{newMoney: 20}"));
+        queue.set("players", "2", BsonDocument.parse("{newMoney: 5}"));
+        queue.set("users", "1", BsonDocument.parse("{premiumUntil: 1}"));
+        Assertions.assertTrue(queue.isPending("players", "1"));
+        Assertions.assertFalse(queue.isPending("players", "3"));
+
+        queue.flush();
+        Assertions.assertFalse(queue.isPending("players", "1"));
+        Assertions.assertEquals(List.of("players", "users"), List.copyOf(written.keySet()));
+        Assertions.assertEquals(
+                List.of("{\"$set\": {\"newMoney\": 20, \"level\": 2}}", "{\"$set\": {\"newMoney\": 5}}"),
+                updates(written.get("players"))
+        );
+        Assertions.assertEquals(List.of("{\"$set\": {\"premiumUntil\": 1}}"), updates(written.get("users")));
+
+        // Nothing left to write.
+        written.clear();
+        queue.flush();
+        Assertions.assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void testMergePaths() {
+        var sets = new ArrayList<BsonDocument>();
+        WriteBehindQueue.merge(sets, BsonDocument.parse("{\"equippedItems.durability\": {}, \"equippedItems.effects\": []}"));
+        // A whole field replaces its subfields.
+        WriteBehindQueue.merge(sets, BsonDocument.parse("{equippedItems: {effects: []}}"));
+        Assertions.assertEquals(List.of(BsonDocument.parse("{equippedItems: {effects: []}}")), sets);
+
+        // A subfield of a pending field can't go on the same $set.
+        WriteBehindQueue.merge(sets, BsonDocument.parse("{\"equippedItems.effects\": [1]}"));
+        Assertions.assertEquals(2, sets.size());
+        Assertions.assertEquals(BsonDocument.parse("{\"equippedItems.effects\": [1]}"), sets.get(1));
+
+        // The queued documents are copies.
+        var set = BsonDocument.parse("{level: 1}");
+        var copies = new ArrayList<BsonDocument>();
+        WriteBehindQueue.merge(copies, set);
+        set.put("level", new BsonInt32(2));
+        Assertions.assertEquals(BsonDocument.parse("{level: 1}"), copies.get(0));
+    }
+
+    @Test
+    void testFailedFlushKeepsUpdates() {
+        var written = new LinkedHashMap<String, List<WriteModel<BsonDocument>>>();
+        var failing = new AtomicBoolean(true);
+        var queue = new WriteBehindQueue(60_000, (table, models) -> {
+            if (failing.get() && table.equals("players")) {
+                throw new IllegalStateException("Database on fire");
+            }
+
+            written.put(table, models);
+        });
+
+        queue.set("players", "1", BsonDocument.parse("{newMoney: 10, level: 2}"));
+        queue.set("users", "1", BsonDocument.parse("{premiumUntil: 1}"));
+        Assertions.assertThrows(IllegalStateException.class, queue::flush);
+        Assertions.assertTrue(written.isEmpty());
+        Assertions.assertTrue(queue.isPending("players", "1"));
+        Assertions.assertTrue(queue.isPending("users", "1"));
+
+        // Newer values win over the ones that failed to be written.
+        queue.set("players", "1", BsonDocument.parse("{newMoney: 20}"));
+        failing.set(false);
+        queue.flush();
+        Assertions.assertEquals(List.of("{\"$set\": {\"newMoney\": 20, \"level\": 2}}"), updates(written.get("players")));
+        Assertions.assertEquals(List.of("{\"$set\": {\"premiumUntil\": 1}}"), updates(written.get("users")));
+        Assertions.assertFalse(queue.isPending("players", "1"));
+    }
+
+    private static List<String> updates(List<WriteModel<BsonDocument>> models) {
+        return models.stream()
+                .map(model -> ((UpdateOneModel<BsonDocument>) model).getUpdate())
+                .map(update -> ((BsonDocument) update).toJson())
+                .toList();
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.db.codecs;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.Conventions;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.codecs.pojo.annotations.BsonIgnore;
+import org.bson.codecs.pojo.annotations.BsonProperty;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mongodb.MongoClientSettings.getDefaultCodecRegistry;
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * EntityCodec has to read and write the same documents the POJO codec does. The entity classes themselves need a
+ * config to be instantiated, so this uses a class laid out the same way they are.
+ */
+class EntityCodecTest {
+    // Same as MantaroData.
+    private static final List<Convention> conventions = Arrays.asList(
+            Conventions.CLASS_AND_PROPERTY_CONVENTION, Conventions.ANNOTATION_CONVENTION, Conventions.OBJECT_ID_GENERATORS, Conventions.SET_PRIVATE_FIELDS_CONVENTION
+    );
+    private static final PojoCodecProvider pojoCodecProvider = PojoCodecProvider.builder()
+            .automatic(true)
+            .register(new MapCodecProvider())
+            .conventions(conventions)
+            .build();
+    private static final CodecRegistry pojoRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(pojoCodecProvider));
+    private static final CodecRegistry entityRegistry = fromRegistries(getDefaultCodecRegistry(), fromProviders(
+            new EntityCodecProvider(conventions, Account.class), pojoCodecProvider
+    ));
+    private static final Codec<Account> pojoCodec = pojoRegistry.get(Account.class);
+    private static final EntityCodec<Account> entityCodec = (EntityCodec<Account>) entityRegistry.get(Account.class);
+
+    @Test
+    void testEncodesSameAsPojoCodec() {
+        Assertions.assertEquals(encode(pojoCodec, filled()), encode(entityCodec, filled()));
+        Assertions.assertEquals(encode(pojoCodec, new Account()), encode(entityCodec, new Account()));
+    }
+
+    @Test
+    void testDecodesSameAsPojoCodec() {
+        var document = encode(pojoCodec, filled());
+        var decoded = decode(entityCodec, document);
+        Assertions.assertEquals(document, encode(pojoCodec, decoded));
+
+        // Without a getter it isn't written, but whether it's read has to match too.
+        Assertions.assertFalse(document.containsKey("experience"));
+        document.put("experience", new BsonInt64(10));
+        Assertions.assertEquals(decode(pojoCodec, document).experience, decode(entityCodec, document).experience);
+    }
+
+    @Test
+    void testDecodeSkipsUnknownAndConvertsNumbers() {
+        var decoded = decode(entityCodec, BsonDocument.parse("""
+                {"_id": "1", "gone": {"a": [1, 2, {"b": null}]}, "level": 5, "multiplier": 2, "lastCrate": {"$numberLong": "7"}, "description": null}
+                """));
+
+        Assertions.assertEquals("1", decoded.getId());
+        Assertions.assertEquals(5, decoded.getLevel());
+        Assertions.assertEquals(2, decoded.getMultiplier());
+        Assertions.assertEquals(7, decoded.getLastCrate());
+        Assertions.assertNull(decoded.getDescription());
+    }
+
+    @Test
+    void testSelecting() {
+        var partial = entityCodec.selecting("level", "inventory");
+        var decoded = decode(partial, encode(pojoCodec, filled()));
+
+        Assertions.assertEquals(1000, decoded.getLevel());
+        Assertions.assertEquals(Map.of("fish", 3, "rod", 1), decoded.getInventory());
+        Assertions.assertNull(decoded.getId());
+        Assertions.assertNull(decoded.getDescription());
+        Assertions.assertTrue(decoded.getKinds().isEmpty());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> encode(partial, decoded));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entityCodec.selecting("nothing"));
+    }
+
+    private static Account filled() {
+        var account = new Account();
+        account.setId("339872348098");
+        account.setLevel(1000);
+        account.experience = 10;
+        account.setLastCrate(3);
+        account.setShowBadge(false);
+        account.setMultiplier(0.25);
+        account.setDescription("hi");
+        account.setLockedUntil(1700000000000L);
+        account.setKind(Kind.B);
+        account.setPet(new Pet());
+        account.getPet().setName("cat");
+        account.getPet().setHunger(40);
+        account.getKinds().addAll(List.of(Kind.B, Kind.A));
+        account.getComponents().addAll(List.of("header", "footer"));
+        account.getBlacklist().add("123");
+        account.getInventory().putAll(Map.of("fish", 3, "rod", 1));
+        account.getRules().put("1", List.of(Kind.A));
+        account.getRules().put("2", new ArrayList<>());
+        account.getEquipment().put(Kind.A, 12);
+        account.getAutoroles().put("a", null);
+        account.getAutoroles().put("b", "1");
+        return account;
+    }
+
+    private static <T> BsonDocument encode(Codec<T> codec, T value) {
+        var document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+
+    private static <T> T decode(Codec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    public enum Kind {
+        A, B
+    }
+
+    public static class Pet {
+        private String name;
+        private long hunger;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getHunger() {
+            return hunger;
+        }
+
+        public void setHunger(long hunger) {
+            this.hunger = hunger;
+        }
+    }
+
+    public static class Account {
+        @BsonIgnore
+        private static final String DB_TABLE = "accounts";
+        @BsonIgnore
+        public Map<String, Object> fieldTracker = new HashMap<>();
+        @BsonIgnore
+        private final String config = "config";
+
+        @BsonId
+        private String id;
+        private long level;
+        // No getter or setter.
+        private long experience = 5;
+        private int lastCrate = 69;
+        private boolean showBadge = true;
+        private double multiplier = 1;
+        private String description = null;
+        private Long lockedUntil;
+        private Kind kind = Kind.A;
+        private Pet pet;
+        private List<Kind> kinds = new ArrayList<>();
+        private List<String> components = new LinkedList<>();
+        private Set<String> blacklist = new HashSet<>();
+        private Map<String, Integer> inventory = new HashMap<>();
+        private Map<String, List<Kind>> rules = new HashMap<>();
+        private Map<Kind, Integer> equipment = new HashMap<>();
+        private Map<String, String> autoroles = new HashMap<>();
+
+        public Account() { }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public long getLevel() {
+            return level;
+        }
+
+        public void setLevel(long level) {
+            this.level = level;
+        }
+
+        public int getLastCrate() {
+            return lastCrate;
+        }
+
+        public void setLastCrate(int lastCrate) {
+            this.lastCrate = lastCrate;
+        }
+
+        public boolean isShowBadge() {
+            return showBadge;
+        }
+
+        public void setShowBadge(boolean showBadge) {
+            this.showBadge = showBadge;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public Long getLockedUntil() {
+            return lockedUntil;
+        }
+
+        public void setLockedUntil(Long lockedUntil) {
+            this.lockedUntil = lockedUntil;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public void setKind(Kind kind) {
+            this.kind = kind;
+        }
+
+        public Pet getPet() {
+            return pet;
+        }
+
+        public void setPet(Pet pet) {
+            this.pet = pet;
+        }
+
+        // No setters for these, they're set through the fields.
+        public List<Kind> getKinds() {
+            return kinds;
+        }
+
+        public List<String> getComponents() {
+            return components;
+        }
+
+        public Set<String> getBlacklist() {
+            return blacklist;
+        }
+
+        public Map<String, Integer> getInventory() {
+            return inventory;
+        }
+
+        public Map<String, List<Kind>> getRules() {
+            return rules;
+        }
+
+        public Map<Kind, Integer> getEquipment() {
+            return equipment;
+        }
+
+        public Map<String, String> getAutoroles() {
+            return autoroles;
+        }
+
+        @BsonIgnore
+        public long getTotalExperience() {
+            return level + experience;
+        }
+
+        @SuppressWarnings("unused")
+        @BsonProperty("inventory")
+        public Map<String, Integer> rawInventory() {
+            return new HashMap<>(inventory);
+        }
+    }
+}
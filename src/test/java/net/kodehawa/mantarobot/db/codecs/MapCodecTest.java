@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package net.kodehawa.mantarobot.db.codecs;
+
+import net.kodehawa.mantarobot.commands.currency.item.PlayerEquipment.EquipmentType;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Conventions;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mongodb.MongoClientSettings.getDefaultCodecRegistry;
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+class MapCodecTest {
+    // Same setup as MantaroData.
+    private static final CodecRegistry registry = fromRegistries(getDefaultCodecRegistry(), fromProviders(
+            PojoCodecProvider.builder()
+                    .automatic(true)
+                    .register(new MapCodecProvider())
+                    .conventions(Arrays.asList(Conventions.CLASS_AND_PROPERTY_CONVENTION, Conventions.ANNOTATION_CONVENTION, Conventions.OBJECT_ID_GENERATORS, Conventions.SET_PRIVATE_FIELDS_CONVENTION))
+                    .build()
+    ));
+    private static final Codec<Maps> codec = registry.get(Maps.class);
+
+    // What the previous codec wrote: keys are the plain string (or enum name), values as usual.
+    private static final String EXISTING = """
+            {
+                "inventory": {"fish": 3, "pickaxe": 1, "he said \\"hi\\"": 2},
+                "equipment": {"PICK": 12, "ROD": 3},
+                "rules": {"339872348098": ["play", "skip"], "1": []},
+                "autoroles": {"a": null, "b": "1234"},
+                "letters": {"x": 1}
+            }
+            """;
+
+    @Test
+    void testDecodeExistingDocument() {
+        var maps = decode(BsonDocument.parse(EXISTING));
+
+        Assertions.assertEquals(Map.of("fish", 3, "pickaxe", 1, "he said \"hi\"", 2), maps.getInventory());
+        Assertions.assertEquals(Map.of(EquipmentType.PICK, 12, EquipmentType.ROD, 3), maps.getEquipment());
+        Assertions.assertEquals(Map.of("339872348098", List.of("play", "skip"), "1", List.of()), maps.getRules());
+        Assertions.assertEquals(Map.of('x', 1), maps.getLetters());
+
+        var autoroles = new HashMap<String, String>();
+        autoroles.put("a", null);
+        autoroles.put("b", "1234");
+        Assertions.assertEquals(autoroles, maps.getAutoroles());
+    }
+
+    @Test
+    void testEncodeMatchesExistingDocument() {
+        var existing = BsonDocument.parse(EXISTING);
+        Assertions.assertEquals(existing, encode(decode(existing)));
+    }
+
+    @Test
+    void testLongKeysRoundTrip() {
+        var maps = new Maps();
+        maps.setIds(Map.of(339872348098L, "a", -1L, "b"));
+
+        var document = encode(maps);
+        Assertions.assertEquals(BsonDocument.parse("{\"339872348098\": \"a\", \"-1\": \"b\"}"), document.getDocument("ids"));
+        Assertions.assertEquals(maps.getIds(), decode(document).getIds());
+    }
+
+    @Test
+    void testUnknownEnumKey() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decode(BsonDocument.parse("{\"equipment\": {\"SWORD\": 1}}")));
+    }
+
+    private static Maps decode(BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    private static BsonDocument encode(Maps maps) {
+        var document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), maps, EncoderContext.builder().build());
+        return document;
+    }
+
+    public static class Maps {
+        private Map<String, Integer> inventory;
+        private Map<EquipmentType, Integer> equipment;
+        private Map<String, List<String>> rules;
+        private Map<String, String> autoroles;
+        // No specialized codec for these, goes through CharacterCodec.
+        private Map<Character, Integer> letters;
+        private Map<Long, String> ids;
+
+        public Map<String, Integer> getInventory() {
+            return inventory;
+        }
+
+        public void setInventory(Map<String, Integer> inventory) {
+            this.inventory = inventory;
+        }
+
+        public Map<EquipmentType, Integer> getEquipment() {
+            return equipment;
+        }
+
+        public void setEquipment(Map<EquipmentType, Integer> equipment) {
+            this.equipment = equipment;
+        }
+
+        public Map<String, List<String>> getRules() {
+            return rules;
+        }
+
+        public void setRules(Map<String, List<String>> rules) {
+            this.rules = rules;
+        }
+
+        public Map<String, String> getAutoroles() {
+            return autoroles;
+        }
+
+        public void setAutoroles(Map<String, String> autoroles) {
+            this.autoroles = autoroles;
+        }
+
+        public Map<Character, Integer> getLetters() {
+            return letters;
+        }
+
+        public void setLetters(Map<Character, Integer> letters) {
+            this.letters = letters;
+        }
+
+        public Map<Long, String> getIds() {
+            return ids;
+        }
+
+        public void setIds(Map<Long, String> ids) {
+            this.ids = ids;
+        }
+    }
+}
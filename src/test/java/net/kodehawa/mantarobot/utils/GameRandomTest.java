@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+class GameRandomTest {
+    @Test
+    void testSeeded() {
+        GameRandom.setSeed(42);
+        var first = rolls();
+        GameRandom.setSeed(42);
+        Assertions.assertEquals(first, rolls());
+        GameRandom.setSeed(43);
+        Assertions.assertNotEquals(first, rolls());
+    }
+
+    @Test
+    void testBounds() {
+        var random = GameRandom.get();
+        for (int i = 0; i < 10_000; i++) {
+            var roll = random.nextInt(7);
+            Assertions.assertTrue(roll >= 0 && roll < 7);
+            var d = random.nextDouble();
+            Assertions.assertTrue(d >= 0 && d < 1);
+            var f = random.nextFloat();
+            Assertions.assertTrue(f >= 0 && f < 1);
+        }
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> random.setSeed(1));
+    }
+
+    @Test
+    void testThreadsGetDifferentRolls() throws InterruptedException {
+        var seen = ConcurrentHashMap.<List<Integer>>newKeySet();
+        var threads = 8;
+        var latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                seen.add(rolls());
+                latch.countDown();
+            }).start();
+        }
+
+        latch.await();
+        Assertions.assertEquals(threads, seen.size());
+    }
+
+    private static List<Integer> rolls() {
+        var rolls = new ArrayList<Integer>();
+        for (int i = 0; i < 20; i++) {
+            rolls.add(GameRandom.get().nextInt(1000));
+        }
+
+        return rolls;
+    }
+}
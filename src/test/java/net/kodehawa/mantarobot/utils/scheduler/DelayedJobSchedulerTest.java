@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro. If not, see http://www.gnu.org/licenses/
+ *
+ */
+package net.kodehawa.mantarobot.utils.scheduler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class DelayedJobSchedulerTest {
+    @Test
+    void testRunsDueJobs() throws InterruptedException {
+        var store = new MemoryJobStore();
+        var ran = new LinkedBlockingQueue<String>();
+        var scheduler = new DelayedJobScheduler("ztest", store, () -> List.of(0, 1), ran::add, 50, 1000, 5000);
+        var now = System.currentTimeMillis();
+
+        scheduler.schedule(0, "late", now - 100);
+        scheduler.schedule(1, "soon", now + 200);
+        scheduler.schedule(1, "later", now + 60_000);
+        scheduler.schedule(2, "other shard", now);
+        scheduler.poll();
+
+        Assertions.assertEquals("late", ran.poll(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("soon", ran.poll(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.currentTimeMillis() >= now + 200);
+        Assertions.assertNull(ran.poll(200, TimeUnit.MILLISECONDS));
+
+        // Not due yet, or not on this node's shards.
+        Assertions.assertEquals(Map.of("later", now + 60_000), store.queues.get("ztest:1"));
+        Assertions.assertEquals(Map.of("other shard", now), store.queues.get("ztest:2"));
+        Assertions.assertTrue(store.leases.get("ztest:1").isEmpty());
+    }
+
+    @Test
+    void testCancelClaimedJob() throws InterruptedException {
+        var store = new MemoryJobStore();
+        var ran = new LinkedBlockingQueue<String>();
+        var scheduler = new DelayedJobScheduler("ztest", store, () -> List.of(0), ran::add, 50, 1000, 5000);
+        var now = System.currentTimeMillis();
+
+        scheduler.schedule(0, "cancelled", now + 200);
+        scheduler.schedule(0, "kept", now + 250);
+        scheduler.poll();
+        // Both are claimed now, the timer of the cancelled one shouldn't do anything.
+        Assertions.assertTrue(scheduler.cancel(0, "cancelled"));
+        Assertions.assertEquals("kept", ran.poll(1, TimeUnit.SECONDS));
+        Assertions.assertNull(ran.poll(200, TimeUnit.MILLISECONDS));
+        Assertions.assertFalse(scheduler.cancel(0, "cancelled"));
+    }
+
+    @Test
+    void testExpiredLease() throws InterruptedException {
+        var store = new MemoryJobStore();
+        var now = System.currentTimeMillis();
+        // Claimed by a node that went away before running it.
+        store.add("ztest:0", "abandoned", now - 2000);
+        Assertions.assertEquals(1, store.claim(List.of("ztest:0"), now - 2000, now - 2000, 1000, 10).size());
+
+        var ran = new LinkedBlockingQueue<String>();
+        var scheduler = new DelayedJobScheduler("ztest", store, () -> List.of(0), ran::add, 50, 1000, 1000);
+        scheduler.poll();
+        Assertions.assertEquals("abandoned", ran.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClaimsEverythingDue() throws InterruptedException {
+        var store = new MemoryJobStore();
+        BlockingQueue<String> ran = new LinkedBlockingQueue<>();
+        var scheduler = new DelayedJobScheduler("ztest", store, () -> List.of(0), ran::add, 50, 1000, 5000);
+        var now = System.currentTimeMillis();
+        for (int i = 0; i < 250; i++) {
+            scheduler.schedule(0, "job" + i, now - i);
+        }
+
+        scheduler.poll();
+        var jobs = new ArrayList<String>();
+        for (int i = 0; i < 250; i++) {
+            jobs.add(ran.poll(1, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(250, jobs.stream().distinct().count());
+    }
+
+    // Same semantics as the lua script RedisJobStore uses.
+    private static class MemoryJobStore implements JobStore {
+        private final Map<String, Map<String, Long>> queues = new HashMap<>();
+        private final Map<String, Map<String, Long>> leases = new HashMap<>();
+
+        @Override
+        public synchronized void add(String queue, String job, long dueAt) {
+            queue(queue).put(job, dueAt);
+        }
+
+        @Override
+        public synchronized boolean remove(String queue, String job) {
+            var removed = queue(queue).remove(job) != null;
+            return leases(queue).remove(job) != null || removed;
+        }
+
+        @Override
+        public synchronized List<ClaimedJob> claim(List<String> queues, long now, long until, long leaseMillis, int limit) {
+            var claimed = new ArrayList<ClaimedJob>();
+            for (var queue : queues) {
+                var leased = leases(queue);
+                leased.entrySet().removeIf(e -> {
+                    if (e.getValue() <= now) {
+                        queue(queue).put(e.getKey(), e.getValue() - leaseMillis);
+                        return true;
+                    }
+
+                    return false;
+                });
+
+                var due = queue(queue).entrySet().stream()
+                        .filter(e -> e.getValue() <= until)
+                        .sorted(Map.Entry.comparingByValue())
+                        .limit(limit - claimed.size())
+                        .toList();
+                for (var e : due) {
+                    queue(queue).remove(e.getKey());
+                    leased.put(e.getKey(), Math.max(e.getValue(), now) + leaseMillis);
+                    claimed.add(new ClaimedJob(queue, e.getKey(), e.getValue()));
+                }
+            }
+
+            return claimed;
+        }
+
+        @Override
+        public synchronized boolean ack(String queue, String job) {
+            return leases(queue).remove(job) != null;
+        }
+
+        private Map<String, Long> queue(String queue) {
+            return queues.computeIfAbsent(queue, k -> new HashMap<>());
+        }
+
+        private Map<String, Long> leases(String queue) {
+            return leases.computeIfAbsent(queue, k -> new HashMap<>());
+        }
+    }
+}